@@ -0,0 +1,43 @@
+package cache;
+
+import java.util.Arrays;
+
+/**
+ * A recorded sequence of cache accesses (byte address and read/write), kept in primitive arrays.
+ * Record one with {@link Cache#setAccessTrace(AccessTrace)} and replay it with {@link Cache#replay(AccessTrace)},
+ * for example to evaluate the offline {@link BeladyPolicy}.
+ */
+public class AccessTrace {
+    private long[] addresses = new long[1024];
+    private long[] writeBits = new long[1024 / Long.SIZE];
+    private int size = 0;
+
+    public void add(long address, boolean write) {
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, size * 2);
+            writeBits = Arrays.copyOf(writeBits, size * 2 / Long.SIZE);
+        }
+        addresses[size] = address;
+        if (write) {
+            writeBits[size / Long.SIZE] |= 1L << (size % Long.SIZE);
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getAddress(int index) {
+        return addresses[index];
+    }
+
+    public boolean isWrite(int index) {
+        return (writeBits[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0;
+    }
+
+    public void clear() {
+        Arrays.fill(writeBits, 0);
+        size = 0;
+    }
+}
@@ -0,0 +1,154 @@
+package cache;
+
+import utility.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Bélády's optimal (MIN) replacement: evicts the line whose next use lies furthest in the future.
+ * It needs future knowledge, so it only works offline while a recorded {@link AccessTrace} is
+ * replayed through {@link Cache#replay(AccessTrace)}. The trace positions of every line are indexed
+ * once, so each fill or hit learns the next use of its own line: demand accesses in O(1), and
+ * prefetch, victim and write-back fills of other lines by a binary search.
+ *
+ * On a lower level the index still refers to the whole trace, so OPT is exact for L1 and an
+ * approximation below it.
+ */
+public class BeladyPolicy implements ReplacementPolicy {
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private final AccessTrace trace;
+    private final int lineShift;
+    private final int[] nextUse;            // za svaku poziciju traga: sljedeća pozicija iste linije
+    private final LongIntHashMap lineIds;   // linija -> redni broj linije
+    private final int[] lineStart;          // pozicije linije id su positions[lineStart[id]..lineStart[id + 1])
+    private final int[] positions;
+    private int associativity;
+    private int[] lineNextUse;              // za svaku liniju keša: pozicija njene sljedeće upotrebe
+    private int position = -1;
+
+    /**
+     * Indexes the positions of every line of the trace.
+     *
+     * @param trace    The trace that will be replayed.
+     * @param lineSize The line size of the level using this policy.
+     */
+    public BeladyPolicy(AccessTrace trace, int lineSize) {
+        this.trace = trace;
+        this.lineShift = Integer.numberOfTrailingZeros(lineSize);
+        int size = trace.size();
+        lineIds = new LongIntHashMap(1024);
+        int[] idAt = new int[size];
+        int[] counts = new int[16];
+        for (int i = 0; i < size; i++) {
+            long line = trace.getAddress(i) >>> lineShift;
+            int id = lineIds.get(line, -1);
+            if (id < 0) {
+                id = lineIds.size();
+                lineIds.put(line, id);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id * 2);
+                }
+            }
+            idAt[i] = id;
+            counts[id]++;
+        }
+        // Pozicije grupisane po liniji, rastuće unutar grupe
+        lineStart = new int[lineIds.size() + 1];
+        for (int id = 0; id < lineIds.size(); id++) {
+            lineStart[id + 1] = lineStart[id] + counts[id];
+        }
+        positions = new int[size];
+        int[] cursor = Arrays.copyOf(lineStart, lineIds.size());
+        for (int i = 0; i < size; i++) {
+            positions[cursor[idAt[i]]++] = i;
+        }
+        nextUse = new int[size];
+        for (int id = 0; id < lineIds.size(); id++) {
+            for (int k = lineStart[id]; k < lineStart[id + 1]; k++) {
+                nextUse[positions[k]] = k + 1 < lineStart[id + 1] ? positions[k + 1] : NEVER;
+            }
+        }
+    }
+
+    @Override
+    public void initialize(int numSets, int associativity) {
+        this.associativity = associativity;
+        this.lineNextUse = new int[numSets * associativity];
+        this.position = -1;
+    }
+
+    @Override
+    public long getStateBytes() {
+        return ((long) nextUse.length + positions.length + lineStart.length + lineNextUse.length) * Integer.BYTES;
+    }
+
+    @Override
+    public void onTracePosition(int position) {
+        this.position = position;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        throw new UnsupportedOperationException("Bélády replacement needs the line address");
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        throw new UnsupportedOperationException("Bélády replacement needs the line address");
+    }
+
+    @Override
+    public void onHit(int set, int way, long address) {
+        lineNextUse[set * associativity + way] = nextUseOf(address);
+    }
+
+    @Override
+    public void onFill(int set, int way, long address) {
+        lineNextUse[set * associativity + way] = nextUseOf(address);
+    }
+
+    @Override
+    public int selectVictim(int set) {
+        int base = set * associativity;
+        int victim = 0;
+        for (int way = 1; way < associativity; way++) {
+            if (lineNextUse[base + way] > lineNextUse[base + victim]) {
+                victim = way;
+            }
+        }
+        return victim;
+    }
+
+    // Sljedeća upotreba linije poslije trenutne pozicije traga
+    private int nextUseOf(long address) {
+        if (position < 0 || position >= nextUse.length) {
+            throw new IllegalStateException("Bélády replacement only works while replaying its access trace");
+        }
+        long line = address >>> lineShift;
+        if (line == trace.getAddress(position) >>> lineShift) {
+            return nextUse[position];
+        }
+        // Linija koju nije tražio trenutni pristup (prefetch, žrtva, write-back)
+        int id = lineIds.get(line, -1);
+        if (id < 0) {
+            return NEVER;
+        }
+        int low = lineStart[id];
+        int high = lineStart[id + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[middle] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < lineStart[id + 1] ? positions[low] : NEVER;
+    }
+
+    @Override
+    public String getName() {
+        return "Belady";
+    }
+}
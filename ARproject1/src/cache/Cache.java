@@ -1,22 +1,26 @@
 package cache;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 
 import memory.Memory;
 
-import static org.junit.Assert.assertEquals;
-
+/**
+ * Multi-level cache model in front of {@link Memory}. Every level is a set-associative tag store
+ * ({@link CacheLevel}); the data itself is always read from and written to memory, so the
+ * cache never returns stale bytes and its hit/miss statistics reflect the configured geometry.
+ */
 public class Cache {
 
-    // Cache levels and sizes
+    // Cache levels and sizes (podrazumijevana konfiguracija, ista kao u Emulator-u)
     private static final int L1_CACHE_SIZE = 32 * 1024; // 32 kB
     private static final int L2_CACHE_SIZE = 512 * 1024; // 512 kB
     private static final int L3_CACHE_SIZE = 32 * 1024 * 1024; // 32 MB
+    private static final int[] DEFAULT_ASSOCIATIVITIES = {4, 8, 16};
+    private static final int DEFAULT_MEMORY_LATENCY = 200; // ciklusi
     // Cache line size
 
    /*
@@ -26,16 +30,10 @@ public class Cache {
    *    Cache line veličina određuje koliko podataka se može čuvati u jednoj liniji keša.
    */
     private static final int CACHE_LINE_SIZE = 64; // 64 bytes
-    // Cache levels                                                             --from the old systems version
-    // private Map<Long, CacheLevel> l1Cache = new LruCache<>(L1_CACHE_SIZE);   --from the old systems version
-    // private Map<Long, CacheLevel> l2Cache = new LruCache<>(L2_CACHE_SIZE);   --from the old systems version
-    // private Map<Long, CacheLevel> l3Cache = new LruCache<>(L3_CACHE_SIZE);   --from the old systems version
 
-    // Lista cacheLevels predstavlja hijerarhiju keš nivoa.
-    // Svaki keš nivo je predstavljen mapom gde su ključevi adrese (tipa Long) i vrednosti CacheLevel objekti.
-    // Ova struktura omogućava organizaciju i efikasno upravljanje keširanim podacima na različitim nivoima keš memorije.
-    // Korišćenje liste omogućava lako proširivanje sistema dodavanjem novih keš nivoa.
-    private List<Map<Long, CacheLevel>> cacheLevels = new ArrayList<>();    // index-cachelevel 0-L1,   1-L2,   2-L3
+    // Niz levels predstavlja hijerarhiju keš nivoa: indeks 0 - L1, 1 - L2, 2 - L3.
+    // Svaki nivo adresu dijeli na tag, indeks seta i offset unutar linije prema svojoj geometriji.
+    private CacheLevel[] levels;
 
     // Cache levels and sizes
     private int numCacheLevels;        // Number of cache levels: 1, 2 or 3 ..
@@ -72,19 +70,50 @@ public class Cache {
     * */
     private int[] associativities;
     private int cacheLineSize;         // Cache line size
-    private int cacheHits = 0;          //  counter for the number of cache hits
-    private int cacheMisses = 0;        //  counter for the number of cache misses
+    private long cacheHits = 0;         //  counter for the number of cache hits (pogodak u bilo kojem nivou)
+    private long cacheMisses = 0;       //  counter for the number of cache misses (promašaj u svim nivoima)
+    // Model latencije: svaki pristup plaća latenciju svih nivoa do onog koji ga posluži (i memorije)
+    private int memoryLatency = DEFAULT_MEMORY_LATENCY;
+    private long accessCycles = 0;
     private Memory memory;              // Reference to the Memory instance
-
-    // Constructor to initialize Memory instance --lakrdija koju treba eliminisati!!
+    // Slušaoci koji se obavještavaju o svakom upisu koji stigne do memorije (npr. keš dekodiranih blokova)
+    private final List<MemoryWriteListener> writeListeners = new ArrayList<>();
+    private final List<CacheAccessListener> accessListeners = new ArrayList<>();
+    // Saobraćaj prema memoriji: čitanja linija, upisi (write-through / no-allocate) i writeback-ovi
+    private long memoryReads = 0;
+    private long memoryWrites = 0;
+    private long memoryWritebacks = 0;
+    private AccessTrace accessTrace;    // ako nije null, svaki pristup se bilježi (za offline analizu)
+    private final InclusionPolicy inclusionPolicy;
+    // Višejezgarni režim: ovo je privatna hijerarhija jezgra coreId, ispod nje je magistrala
+    private CoherenceBus coherenceBus;
+    private int coreId = -1;
+    // Prefetch zahtjevi se skupljaju tokom pristupa i izvršavaju tek kada se pristup završi
+    private LongConsumer[] prefetchIssuers;
+    private long[] prefetchQueue = new long[16];
+    private int[] prefetchQueueLevels = new int[16];
+    private int prefetchQueueSize = 0;
+    private LongSupplier programCounterSource;  // PC instrukcije koja pristupa (za stride prefetcher)
+
+    // Constructor with the default three-level configuration (32 KiB / 512 KiB / 32 MiB, 64 B lines)
     public Cache(Memory memory) {
-        this.memory = memory;
-        initializeCaches();
+        this(memory, 3, new int[]{L1_CACHE_SIZE, L2_CACHE_SIZE, L3_CACHE_SIZE}, DEFAULT_ASSOCIATIVITIES, CACHE_LINE_SIZE);
     }
 
     //  Constructor
     public Cache(Memory memory, int numCacheLevels, int[] cacheSizes, int[] associativities, int cacheLineSize) {
+        this(memory, numCacheLevels, cacheSizes, associativities, cacheLineSize, InclusionPolicy.NINE);
+    }
+
+    /**
+     * Creates a cache hierarchy with the given inclusion policy.
+     * In {@link InclusionPolicy#EXCLUSIVE} mode every access allocates in L1 (the write miss policies
+     * are ignored) and dirty lines leaving the last level are written to memory.
+     */
+    public Cache(Memory memory, int numCacheLevels, int[] cacheSizes, int[] associativities, int cacheLineSize,
+                 InclusionPolicy inclusionPolicy) {
         this.memory = memory;
+        this.inclusionPolicy = inclusionPolicy;
         this.numCacheLevels = numCacheLevels;
         this.cacheSizes = cacheSizes;
         this.associativities = associativities;
@@ -92,395 +121,762 @@ public class Cache {
         initializeCaches();
     }
 
-    /*
+    /**
+     * Creates one set-associative level per configured size, associativity and the shared line size.
+     *
+     * @throws IllegalArgumentException If a level's geometry is not a power-of-two number of sets.
+     */
     private void initializeCaches() {
+        levels = new CacheLevel[numCacheLevels];
+        prefetchIssuers = new LongConsumer[numCacheLevels];
         for (int i = 0; i < numCacheLevels; i++) {
-            int cacheSize = cacheSizes[i];
-            int associativity = associativities[i];
-            Map<Long, CacheLevel> cache = switch (i) {
-                case 0 -> new LruCache<>(cacheSize);
-                case 1 -> new LruCache<>(cacheSize);
-                case 2 -> new LruCache<>(cacheSize);
-                default -> throw new IllegalArgumentException("Invalid cache level: " + i);
-            };
-            initializeCacheLevel(cache, cacheSize, associativity);
-            switch (i) {
-                case 0 -> {
-                    l1Cache = cache;
-                    initializeCacheLevel(l1Cache, cacheSize, associativity);
+            levels[i] = new CacheLevel(i, cacheSizes[i], associativities[i], cacheLineSize);
+            int level = i;
+            prefetchIssuers[i] = address -> enqueuePrefetch(level, address);
+        }
+    }
+
+    /**
+     * Runs one access through the hierarchy, starting at L1 and following each level's write policies.
+     *
+     * @return The first level that hit, or -1 if the access had to go to memory.
+     */
+    private int accessHierarchy(long address, boolean write) {
+        if (coherenceBus != null) {
+            // Druga jezgra mijenjaju ovu hijerarhiju (invalidacije), pa pristup drži magistralu
+            synchronized (coherenceBus) {
+                return accessLevels(address, write);
+            }
+        }
+        return accessLevels(address, write);
+    }
+
+    private int accessLevels(long address, boolean write) {
+        if (accessTrace != null) {
+            accessTrace.add(address, write);
+        }
+        for (int i = 0; i < accessListeners.size(); i++) {
+            accessListeners.get(i).onCacheAccess(address, write);
+        }
+        int servedBy;
+        if (inclusionPolicy == InclusionPolicy.EXCLUSIVE) {
+            servedBy = exclusiveAccess(address, write);
+        } else {
+            servedBy = write ? writeAccess(0, address) : readAccess(0, address);
+        }
+        drainPrefetches();
+        if (coherenceBus != null && write) {
+            coherenceBus.write(this, address, servedBy < 0);
+        }
+        if (servedBy >= 0) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+        int last = servedBy >= 0 ? servedBy : levels.length - 1;
+        for (int i = 0; i <= last; i++) {
+            accessCycles += levels[i].getLatency();
+        }
+        if (servedBy < 0) {
+            accessCycles += memoryLatency;
+        }
+        return servedBy;
+    }
+
+    // Čitanje: nivoi se probaju redom do prvog pogotka, svaki nivo koji promaši dobija liniju
+    private int readAccess(int level, long address) {
+        if (level == levels.length) {
+            readBelow(address, false);
+            return -1;
+        }
+        boolean hit = levels[level].access(address, false);
+        trainPrefetcher(level, address, hit);
+        if (hit) {
+            return level;
+        }
+        writeBackVictim(level);
+        return readAccess(level + 1, address);
+    }
+
+    // Upis prema politikama nivoa (write-back/write-through, allocate/no-allocate)
+    private int writeAccess(int level, long address) {
+        if (level == levels.length) {
+            writeBelow(address);
+            return -1;
+        }
+        CacheLevel cacheLevel = levels[level];
+        boolean writeBack = cacheLevel.getWriteHitPolicy() == WriteHitPolicy.WRITE_BACK;
+        boolean allocate = cacheLevel.getWriteMissPolicy() == WriteMissPolicy.WRITE_ALLOCATE;
+        boolean hit = cacheLevel.access(address, true, allocate);
+        trainPrefetcher(level, address, hit);
+        if (hit) {
+            if (!writeBack) {
+                writeAccess(level + 1, address);
+            }
+            return level;
+        }
+        if (allocate) {
+            writeBackVictim(level);
+            if (writeBack) {
+                // Ostatak linije se dohvata iz nižeg nivoa
+                return readForWrite(level + 1, address);
+            }
+        }
+        return writeAccess(level + 1, address);
+    }
+
+    // Kao readAccess, ali promašaj svih nivoa traži liniju sa namjerom upisa (BusRdX)
+    private int readForWrite(int level, long address) {
+        if (level == levels.length) {
+            readBelow(address, true);
+            return -1;
+        }
+        boolean hit = levels[level].access(address, false);
+        trainPrefetcher(level, address, hit);
+        if (hit) {
+            return level;
+        }
+        writeBackVictim(level);
+        return readForWrite(level + 1, address);
+    }
+
+    // Saobraćaj ispod posljednjeg nivoa: memorija, ili magistrala u višejezgarnom režimu
+    private void readBelow(long address, boolean forWrite) {
+        memoryReads++;
+        if (coherenceBus != null) {
+            coherenceBus.read(this, address, forWrite);
+        }
+    }
+
+    private void writeBelow(long address) {
+        memoryWrites++;
+        if (coherenceBus != null) {
+            coherenceBus.writeThrough(address);
+        }
+    }
+
+    private void writeBackBelow(long lineAddress) {
+        memoryWritebacks++;
+        if (coherenceBus != null) {
+            coherenceBus.writeBack(lineAddress);
+        }
+    }
+
+    // Ako je posljednje punjenje nivoa izbacilo prljavu liniju, ona se upisuje u niži nivo.
+    // Kod INCLUSIVE hijerarhije izbačena linija se poništava i u svim višim nivoima (back-invalidation),
+    // a njihova prljava kopija se upisuje zajedno sa njom.
+    private void writeBackVictim(int level) {
+        CacheLevel cacheLevel = levels[level];
+        if (!cacheLevel.hasEvicted()) {
+            return;
+        }
+        long victim = cacheLevel.getEvictedAddress();
+        boolean dirty = cacheLevel.isEvictedDirty();
+        if (inclusionPolicy == InclusionPolicy.INCLUSIVE) {
+            for (int upper = 0; upper < level; upper++) {
+                if (levels[upper].contains(victim)) {
+                    dirty |= levels[upper].invalidate(victim);
+                    levels[upper].recordBackInvalidation();
                 }
-                case 1 -> {
-                    l2Cache = cache;
-                    initializeCacheLevel(l2Cache, cacheSize, associativity);
+            }
+        }
+        if (dirty) {
+            cacheLevel.recordWriteback();
+            writeBack(level + 1, victim);
+        }
+    }
+
+    // EXCLUSIVE: linija se uvijek smješta u L1; ako je nađena u nižem nivou, tamo se uklanja,
+    // a žrtva iz L1 silazi u L2 (i dalje, kaskadno)
+    private int exclusiveAccess(long address, boolean write) {
+        CacheLevel first = levels[0];
+        boolean writeBack = first.getWriteHitPolicy() == WriteHitPolicy.WRITE_BACK;
+        boolean hit = first.access(address, write);
+        trainPrefetcher(0, address, hit);
+        if (hit) {
+            if (write && !writeBack) {
+                writeBelow(address);
+            }
+            return 0;
+        }
+        int servedBy = -1;
+        for (int i = 1; i < levels.length; i++) {
+            boolean lowerHit = levels[i].access(address, false, false);
+            trainPrefetcher(i, address, lowerHit);
+            if (lowerHit) {
+                if (levels[i].invalidate(address)) {
+                    first.markDirty(address);
+                }
+                servedBy = i;
+                break;
+            }
+        }
+        if (servedBy < 0) {
+            readBelow(address, write);
+        }
+        if (write && !writeBack) {
+            writeBelow(address);
+        }
+        spillVictim(0);
+        return servedBy;
+    }
+
+    // EXCLUSIVE: žrtva nivoa 'level' postaje linija nivoa ispod (victim fill); iz posljednjeg nivoa
+    // prljave linije idu u memoriju
+    private void spillVictim(int level) {
+        CacheLevel cacheLevel = levels[level];
+        if (!cacheLevel.hasEvicted()) {
+            return;
+        }
+        long victim = cacheLevel.getEvictedAddress();
+        boolean dirty = cacheLevel.isEvictedDirty();
+        if (dirty) {
+            cacheLevel.recordWriteback();
+        }
+        if (level + 1 == levels.length) {
+            if (dirty) {
+                writeBackBelow(victim);
+            }
+            return;
+        }
+        CacheLevel below = levels[level + 1];
+        below.fill(victim);
+        below.recordVictimFill();
+        if (dirty) {
+            below.markDirty(victim);
+        }
+        spillVictim(level + 1);
+    }
+
+    // Upis cijele linije u nivo 'level' (ili memoriju); ne broji se kao pristup procesora
+    private void writeBack(int level, long lineAddress) {
+        if (level == levels.length) {
+            writeBackBelow(lineAddress);
+            return;
+        }
+        CacheLevel cacheLevel = levels[level];
+        boolean writeBack = cacheLevel.getWriteHitPolicy() == WriteHitPolicy.WRITE_BACK;
+        if (writeBack && cacheLevel.contains(lineAddress)) {
+            cacheLevel.markDirty(lineAddress);
+        } else if (writeBack && cacheLevel.getWriteMissPolicy() == WriteMissPolicy.WRITE_ALLOCATE) {
+            // Cijela linija stiže odozgo, pa nema dohvata iz nižeg nivoa
+            cacheLevel.fill(lineAddress);
+            cacheLevel.markDirty(lineAddress);
+            writeBackVictim(level);
+        } else {
+            writeBack(level + 1, lineAddress);
+        }
+    }
+
+    private void trainPrefetcher(int level, long address, boolean hit) {
+        CacheLevel cacheLevel = levels[level];
+        Prefetcher prefetcher = cacheLevel.getPrefetcher();
+        if (prefetcher != null) {
+            long programCounter = programCounterSource != null ? programCounterSource.getAsLong() : 0;
+            prefetcher.onAccess(programCounter, address, hit, cacheLevel.wasPrefetchHit(), prefetchIssuers[level]);
+        }
+    }
+
+    private void enqueuePrefetch(int level, long address) {
+        if (address < 0) {
+            return;
+        }
+        if (prefetchQueueSize == prefetchQueue.length) {
+            prefetchQueue = Arrays.copyOf(prefetchQueue, prefetchQueueSize * 2);
+            prefetchQueueLevels = Arrays.copyOf(prefetchQueueLevels, prefetchQueueSize * 2);
+        }
+        prefetchQueue[prefetchQueueSize] = address;
+        prefetchQueueLevels[prefetchQueueSize] = level;
+        prefetchQueueSize++;
+    }
+
+    private void drainPrefetches() {
+        for (int i = 0; i < prefetchQueueSize; i++) {
+            prefetchLine(prefetchQueueLevels[i], prefetchQueue[i] & -cacheLineSize);
+        }
+        prefetchQueueSize = 0;
+    }
+
+    // Dohvata liniju u nivo 'level' iz prvog nižeg nivoa koji je ima (ili iz memorije)
+    private void prefetchLine(int level, long lineAddress) {
+        CacheLevel target = levels[level];
+        if (target.contains(lineAddress)) {
+            return;
+        }
+        if (inclusionPolicy == InclusionPolicy.EXCLUSIVE) {
+            for (int upper = 0; upper < level; upper++) {
+                if (levels[upper].contains(lineAddress)) {
+                    return;
                 }
-                case 2 -> {
-                    l3Cache = cache;
-                    initializeCacheLevel(l3Cache, cacheSize, associativity);
+            }
+            boolean found = false;
+            boolean dirty = false;
+            for (int i = level + 1; i < levels.length && !found; i++) {
+                if (levels[i].contains(lineAddress)) {
+                    dirty = levels[i].invalidate(lineAddress);
+                    found = true;
                 }
-                default -> throw new IllegalArgumentException("Invalid cache level: " + i);
             }
+            if (!found) {
+                readBelow(lineAddress, false);
+            }
+            target.prefetch(lineAddress);
+            if (dirty) {
+                target.markDirty(lineAddress);
+            }
+            spillVictim(level);
+            return;
+        }
+        // Nivoi na putu koji nemaju liniju se usput pune
+        int i = level;
+        while (i < levels.length && !levels[i].contains(lineAddress)) {
+            levels[i].prefetch(lineAddress);
+            writeBackVictim(i);
+            i++;
+        }
+        if (i == levels.length) {
+            readBelow(lineAddress, false);
         }
     }
-    */
 
-    /*
-     Ova metoda initializeCaches() ima zadatak da inicijalizuje nivoe keša na osnovu specificiranih parametara.
-     Za svaki nivo keša, kreira keš određene veličine i asocijativnosti, inicijalizuje ga sa  linijama keša i dodaje ga na listu keš nivoa.
-     Iteracija kroz nivoe keša:
-     Petlja for prolazi kroz svaki nivo keša.
-     Dohvatanje veličine i asocijativnosti:
-     Za svaki nivo keša, dohvaćaju se veličina keša i asocijativnost iz odgovarajućih nizova cacheSizes i associativities.
-     Kreiranje novog keša: Na osnovu veličine keša,
-     kreira se novi keš koristeći LRU strategiju zamene (Least Recently Used) kako bi se osiguralo optimalno upravljanje kešom.
-     Inicijalizacija nivoa keša: Poziva se metoda initializeCacheLevel() kako bi se inicijalizovao nivo keša sa linijama keša.
-     Dodavanje keša u listu: Inicijalizovani keš se dodaje u listu cacheLevels koja sadrži sve nivoe keša.
-    */
     /**
-     * Initializes the cache levels based on the specified parameters.
-     * For each cache level, creates a cache with the given size and associativity,
-     * initializes it with cache lines, and adds it to the list of cache levels.
+     * Attaches a prefetcher to one level, or detaches it if null.
+     *
+     * @param level      The level index, 0 for L1.
+     * @param prefetcher The prefetcher, trained on the level's demand accesses.
      */
-    private void initializeCaches() {
-        // Iterate over each cache level
-        for (int i = 0; i < numCacheLevels; i++) {
-            // Retrieve cache size and associativity for the current level
-            int cacheSize = cacheSizes[i];
-            int associativity = associativities[i];
+    public void setPrefetcher(int level, Prefetcher prefetcher) {
+        levels[level].setPrefetcher(prefetcher);
+    }
 
-            // Create a new LRU cache with the specified size for the current level
-            Map<Long, CacheLevel> cache = new LruCache<>(cacheSize);
+    /**
+     * Sets where prefetchers read the program counter of the accessing instruction from,
+     * normally {@code processor::getProgramCounter}.
+     */
+    public void setProgramCounterSource(LongSupplier programCounterSource) {
+        this.programCounterSource = programCounterSource;
+    }
 
-            // Initialize the cache level with cache lines
-            initializeCacheLevel(cache, cacheSize, associativity);
+    /**
+     * Writes every dirty line back, from L1 down to memory, leaving all lines clean.
+     * Guest data is always current in memory, so this only affects the traffic statistics.
+     */
+    public void flush() {
+        if (coherenceBus != null) {
+            synchronized (coherenceBus) {
+                flushLevels();
+            }
+        } else {
+            flushLevels();
+        }
+    }
 
-            // Add the initialized cache to the list of cache levels
-            cacheLevels.add(cache);
+    private void flushLevels() {
+        for (int i = 0; i < levels.length; i++) {
+            if (inclusionPolicy == InclusionPolicy.EXCLUSIVE) {
+                // Linija ne postoji ni u jednom drugom nivou, pa ide direktno u memoriju
+                levels[i].cleanDirtyLines(this::writeBackBelow);
+            } else {
+                int below = i + 1;
+                levels[i].cleanDirtyLines(lineAddress -> writeBack(below, lineAddress));
+            }
         }
     }
 
     /**
-     * Initializes a cache level with cache lines based on the specified cache size and associativity.
-     * Creates cache lines within the cache map using sequential indices as keys.
+     * Returns how much of a level's contents is not duplicated in the levels above it:
+     * the bytes of its valid lines that no closer level holds. Under {@link InclusionPolicy#EXCLUSIVE}
+     * this is the whole occupied size; under {@link InclusionPolicy#INCLUSIVE} the copies of upper
+     * level lines are subtracted.
      *
-     * @param cache         The cache map to initialize.
-     * @param cacheSize     The size of the cache level in bytes.
-     * @param associativity The associativity of the cache level, indicating how many cache lines can hold data mapped to the same index.
+     * @param level The level index, 0 for L1.
+     * @return The effective (non-duplicated) capacity in bytes.
      */
-    private void initializeCacheLevel(Map<Long, CacheLevel> cache, int cacheSize, int associativity) {
-        // Calculate the number of cache lines based on the cache size and line size
-        int numCacheLines = cacheSize / CACHE_LINE_SIZE;
+    public long getEffectiveCapacity(int level) {
+        long[] unique = new long[1];
+        levels[level].forEachValidLine(lineAddress -> {
+            for (int upper = 0; upper < level; upper++) {
+                if (levels[upper].contains(lineAddress)) {
+                    return;
+                }
+            }
+            unique[0]++;
+        });
+        return unique[0] * cacheLineSize;
+    }
 
-        // Create cache lines within the cache map using sequential indices as keys
-        for (long j = 0; j < numCacheLines; j++) {
-            // Each cache line is represented by an instance of CacheLevel
-            cache.put(j, new CacheLevel());
+    /**
+     * Returns the number of distinct bytes held by the whole hierarchy.
+     */
+    public long getEffectiveCapacity() {
+        long total = 0;
+        for (int i = 0; i < levels.length; i++) {
+            total += getEffectiveCapacity(i);
         }
+        return total;
     }
 
     /**
-     * Reads data from the cache at the specified address.
-     * If the data is present in the cache (cache hit), it is returned.
-     * If the data is not present in the cache (cache miss), it is read from RAM,
-     * updated in the cache, and then returned.
+     * Sets the hit latency of one level in cycles.
      *
-     * @param address The memory address to read from.
-     * @return The data read from the cache or RAM.
+     * @param level  The level index, 0 for L1.
+     * @param cycles The latency.
      */
-    public byte readFromCache(long address) {
-        // Get the cache level corresponding to the address
-        CacheLevel cacheLevel = getCacheLevel(address);
-
-        // Check if the cache level is not null (cache hit)
-        if (cacheLevel != null) {
-            try {
-                // Read data from the cache level
-                byte data = cacheLevel.read(address);
-
-                // If data is read from the cache (cache hit)
-                if (data != 0) {
-                    cacheHits++; // Increment cache hits counter
-                    System.out.println(cacheHits); // Print cache hits count
-                } else {
-                    System.out.println(cacheMisses); // Print cache misses count
-                }
+    public void setLatency(int level, int cycles) {
+        levels[level].setLatency(cycles);
+    }
+
+    public int getMemoryLatency() {
+        return memoryLatency;
+    }
+
+    /**
+     * Turns 3C miss classification (compulsory, capacity, conflict) on or off for every level.
+     */
+    public void setMissClassification(boolean enabled) {
+        for (CacheLevel level : levels) {
+            level.setMissClassification(enabled);
+        }
+    }
 
-                // Print cache hit message with the retrieved data
-                System.out.println("Cache Hit!! Data: " + data);
-                return data; // Return the data read from the cache
-            } catch (IllegalStateException e) {
-                // Handle any exceptions thrown during cache read
-                System.err.println("Exception caught: " + e.getMessage());
-                return 0; // Return default value (0) if an exception occurs
+    /**
+     * Sets the latency of a memory access (after missing the last level) in cycles.
+     */
+    public void setMemoryLatency(int cycles) {
+        if (cycles < 0) {
+            throw new IllegalArgumentException("Latency must not be negative: " + cycles);
+        }
+        this.memoryLatency = cycles;
+    }
+
+    /**
+     * Returns the average memory access time in cycles over all accesses since the last reset:
+     * each access costs the latency of every level it visited, plus the memory latency if all missed.
+     */
+    public double getAverageMemoryAccessTime() {
+        long accesses = cacheHits + cacheMisses;
+        return accesses > 0 ? (double) accessCycles / accesses : 0;
+    }
+
+    /**
+     * Returns the cycles spent beyond an L1 hit, summed over all accesses since the last reset.
+     */
+    public long getStallCycles() {
+        return accessCycles - (cacheHits + cacheMisses) * levels[0].getLatency();
+    }
+
+    public long getAccessCycles() {
+        return accessCycles;
+    }
+
+    // Poziva CoherenceBus pri priključivanju jezgra
+    void attachToBus(CoherenceBus bus, int coreId) {
+        this.coherenceBus = bus;
+        this.coreId = coreId;
+    }
+
+    public CoherenceBus getCoherenceBus() {
+        return coherenceBus;
+    }
+
+    /**
+     * Returns the core index on the coherence bus, or -1 for a single-core cache.
+     */
+    public int getCoreId() {
+        return coreId;
+    }
+
+    // Operacije koje magistrala izvodi nad privatnom hijerarhijom (pod bravom magistrale)
+    boolean holdsLine(long lineAddress) {
+        return getCacheLevel(lineAddress) != null;
+    }
+
+    boolean isLineDirty(long lineAddress) {
+        for (CacheLevel level : levels) {
+            if (level.isDirty(lineAddress)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        // If cache level is null (cache miss)
-        System.out.println("cacheLevel = 0");
-        cacheMisses++; // Increment cache misses counter
+    // Silazak iz M u S: prljave kopije postaju čiste; vraća true ako je neka bila prljava
+    boolean cleanLine(long lineAddress) {
+        boolean dirty = false;
+        for (CacheLevel level : levels) {
+            dirty |= level.clean(lineAddress);
+        }
+        return dirty;
+    }
 
-        // Read data from RAM
-        byte[] dataFromRAM = readFromRAM(address);
-        String str = "";
-        // Convert the data read from RAM to string for printing
-        for (byte s : dataFromRAM) {
-            str += s;
-            str += " ";
+    // Vraća -1 ako linija nije bila prisutna, 1 ako je bila prljava, inače 0
+    int invalidateLine(long lineAddress) {
+        boolean present = false;
+        boolean dirty = false;
+        for (CacheLevel level : levels) {
+            if (level.contains(lineAddress)) {
+                present = true;
+                dirty |= level.invalidate(lineAddress);
+            }
         }
-        System.out.println("Cache Miss!! Data read From RAM: " + str); // Print cache miss message with data from RAM
+        return present ? (dirty ? 1 : 0) : -1;
+    }
 
-        // Update caches with data read from RAM
-        updateCaches(address, dataFromRAM);
+    public InclusionPolicy getInclusionPolicy() {
+        return inclusionPolicy;
+    }
 
-        // Return the data read from RAM
-        return dataFromRAM[getOffset(address)];
+    /**
+     * Sets the write policies of one level.
+     *
+     * @param level     The level index, 0 for L1.
+     * @param hitPolicy What a store hitting the level does.
+     * @param missPolicy What a store missing the level does.
+     */
+    public void setWritePolicy(int level, WriteHitPolicy hitPolicy, WriteMissPolicy missPolicy) {
+        levels[level].setWritePolicy(hitPolicy, missPolicy);
+    }
+
+    /**
+     * Reads data from the cache at the specified address.
+     * The access is recorded in the cache hierarchy (hit or miss with line fill) and the byte is
+     * returned from memory, which always holds the current data.
+     *
+     * @param address The memory address to read from.
+     * @return The data at the address.
+     */
+    public byte readFromCache(long address) {
+        accessHierarchy(address, false);
+        return memory.readFromVirtualAddress(address);
     }
-    /*
-    * Ova metoda readFromCache() čita podatke iz keša na određenoj adresi.
-    * Ako su podaci prisutni u kešu (pogodak u kešu), oni se vraćaju.
-    * Ako podaci nisu prisutni u kešu (promašaj u kešu), čitaju se iz RAM-a, a zatim se ažuriraju u kešu i vraćaju.
-    * Parametar metode:
-    * address: Adresa memorije s koje se čita.
-    * Čitanje iz keša:
-    * Dobija se nivo keša koji odgovara adresi.
-    * Proverava se da li je nivo keša različit od null (pogodak u kešu).
-    * Ako je nivo keša različit od null, podaci se čitaju iz tog nivoa.
-    * Ako su podaci pročitani iz keša (pogodak u kešu),
-    * brojač pogodaka keša se povećava, a zatim se prikazuju informacije o pogotku keša i vraćaju se pročitani podaci.
-    * Ako dođe do izuzetka prilikom čitanja iz keša, hvata se izuzetak i vraća se podrazumevana vrednost (0).
-    * Promašaj u kešu:
-    * Ako je nivo keša jednak null (promašaj u kešu), povećava se brojač promašaja keša.
-    * Podaci se čitaju iz RAM-a na osnovu adrese.
-    * Prikazuju se informacije o promašaju keša i podaci se ažuriraju u kešu sa podacima pročitanim iz RAM-a.
-    * Vraća se pročitani podatak iz RAM-a.
-    * */
 
     /**
      * Writes data to the cache at the specified address.
-     * If the data is present in the cache (cache hit), it is updated with the new data.
-     * If the data is not present in the cache (cache miss), it is written to RAM and then updated in the cache.
+     * The access is simulated according to each level's write policies (dirty lines, writebacks);
+     * the byte itself always reaches memory immediately, so guest data never depends on the policy.
      *
      * @param address The memory address to write to.
      * @param data    The data to write.
      */
     public void writeToCache(long address, byte data) {
-        System.out.println("Write to Cache <address,data>: " + "<" + address + "," + data + ">"); // Print message indicating write to cache
-
-        // Get the cache level corresponding to the address
-        CacheLevel cacheLevel = getCacheLevel(address);
-
-        // Check if the cache level is not null (cache hit)
-        if (cacheLevel != null) {
-            System.out.println("cacheLevel != 0"); // Print message indicating cache hit
-            System.out.println("Cache Hit!! Data: " + data); // Print message indicating cache hit with data
-            cacheLevel.write(address, data); // Write data to the cache level
-            cacheHits++; // Increment cache hits counter
-        } else {
-            // If cache level is null (cache miss), print message indicating cache miss
-            System.out.println("cacheLevel = 0");
-
-            // Write data to RAM
-            writeToRAM(address, data);
+        accessHierarchy(address, true);
+        memory.writeToVirtualAddress(address, data);
+        notifyWriteListeners(address, 1);
+    }
 
-            // Update caches with data written to RAM
-            updateCaches(address, new byte[]{data});
+    /**
+     * Reads a 32-bit little-endian value through the cache: the read access is simulated for every
+     * line the value touches and the value is read from memory with a single translation.
+     * Used for instruction fetch.
+     *
+     * @param address The first byte address.
+     * @return The value at the address.
+     */
+    public int readIntFromCache(long address) {
+        accessHierarchy(address, false);
+        long last = address + Integer.BYTES - 1;
+        if ((last & -cacheLineSize) != (address & -cacheLineSize)) {
+            accessHierarchy(last, false);
+        }
+        return memory.readInt(address);
+    }
 
-            // Increment both cache hits and misses counters
-            cacheHits++;
-            cacheMisses++;
+    /**
+     * Writes a 64-bit little-endian value through the cache: the write access is simulated for every
+     * line the value touches (one, or two if it crosses a line) and the value reaches memory at once.
+     *
+     * @param address The first byte address.
+     * @param data    The value to write.
+     */
+    public void writeLongToCache(long address, long data) {
+        accessHierarchy(address, true);
+        long last = address + Long.BYTES - 1;
+        if ((last & -cacheLineSize) != (address & -cacheLineSize)) {
+            accessHierarchy(last, true);
         }
+        memory.writeLong(address, data);
+        notifyWriteListeners(address, Long.BYTES);
     }
 
     // Method to get cache hit percentage
     public double getCacheHitPercentage() {
-        System.out.println("Method: getCacheHitPercentage ");
-        int totalAccesses = cacheHits + cacheMisses; // mozda kao atribut klase? Onda monitorujem procente, a ne ceste pogotke/promasaje..
+        long totalAccesses = cacheHits + cacheMisses; // mozda kao atribut klase? Onda monitorujem procente, a ne ceste pogotke/promasaje..
         if (totalAccesses > 0) {
             return ((double) cacheHits / totalAccesses) * 100;
         }
         return 0;
     }
 
-    // Method to get the cache level based on the address
-    /*
+    /**
+     * Returns the first (closest to the processor) level holding the line of the address.
+     *
+     * @param address The byte address.
+     * @return The level, or null if no level holds the line.
+     */
     public CacheLevel getCacheLevel(long address) {
-        System.out.println("Method: getCacheLevel");
-        long index = getIndex(address);
-        if (l1Cache.containsKey(index)) {
-            return l1Cache.get(index);
-        } else if (l2Cache.containsKey(index)) {
-            return l2Cache.get(index);
-        } else if (l3Cache.containsKey(index)) {
-            return l3Cache.get(index);
+        for (CacheLevel level : levels) {
+            if (level.contains(address)) {
+                return level;
+            }
         }
         return null;
     }
-    */
-    public CacheLevel getCacheLevel(long address) {
-        for (Map<Long, CacheLevel> cache : cacheLevels) {
-            if (cache.containsKey(address)) {
-                return cache.get(address);
+
+    /**
+     * Sets the replacement policy of one level; see {@link CacheLevel#setReplacementPolicy}.
+     *
+     * @param level  The level index, 0 for L1.
+     * @param policy The new policy.
+     */
+    public void setReplacementPolicy(int level, ReplacementPolicy policy) {
+        levels[level].setReplacementPolicy(policy);
+    }
+
+    /**
+     * Starts recording every cache access into {@code trace}, or stops recording if it is null.
+     */
+    public void setAccessTrace(AccessTrace trace) {
+        this.accessTrace = trace;
+    }
+
+    /**
+     * Runs a recorded trace through the hierarchy, updating only tags and statistics
+     * (memory is not touched). Offline policies are told the trace position before each access.
+     *
+     * @param trace The trace to replay.
+     */
+    public void replay(AccessTrace trace) {
+        AccessTrace recording = accessTrace;
+        accessTrace = null;
+        for (int i = 0; i < trace.size(); i++) {
+            for (CacheLevel level : levels) {
+                level.getReplacementPolicy().onTracePosition(i);
             }
+            accessHierarchy(trace.getAddress(i), trace.isWrite(i));
         }
-        return null;
+        accessTrace = recording;
+    }
+
+    /**
+     * Empties every level and resets the hit and miss counters.
+     */
+    public void clear() {
+        for (CacheLevel level : levels) {
+            level.clear();
+        }
+        resetStatistics();
+    }
+
+    /**
+     * Resets every counter (hierarchy, per-level and memory traffic) but keeps the cached lines,
+     * so a measurement phase can start with a warm cache.
+     */
+    public void resetStatistics() {
+        for (CacheLevel level : levels) {
+            level.resetStatistics();
+        }
+        accessCycles = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        memoryReads = 0;
+        memoryWrites = 0;
+        memoryWritebacks = 0;
     }
 
+    public CacheLevel getLevel(int index) {
+        return levels[index];
+    }
+
+    public int getNumCacheLevels() {
+        return numCacheLevels;
+    }
+
+    public int getCacheLineSize() {
+        return cacheLineSize;
+    }
 
-    // Method to read from RAM
+    // Method to read a whole cache line from RAM
     public byte[] readFromRAM(long address) {
-        System.out.println("Method: readFromRAM");
-        // Use the Memory instance to read from virtual address
-        int cacheLineSize = CACHE_LINE_SIZE;
         byte[] dataFromRAM = new byte[cacheLineSize];
-        for (int i = 0; i < cacheLineSize; i++) {
-            dataFromRAM[i] = memory.readFromVirtualAddress(address + i);
-        }
-        // cacheMisses++; kakav, jes lud?
-        cacheHits++;
+        // Cijela linija jednim prevođenjem po stranici
+        memory.readBlock(address - (address & (cacheLineSize - 1)), dataFromRAM, 0, cacheLineSize);
         return dataFromRAM;
     }
 
     // Method to write to RAM
     public void writeToRAM(long address, byte data) {
-        System.out.println("writeToRAM");
         // Use the Memory instance to write to virtual address
         memory.writeToVirtualAddress(address, data);
-        // cacheMisses++; kakav, jes lud?
+        notifyWriteListeners(address, 1);
     }
 
-    // Method to update caches after a cache miss
-
-    public void updateCaches(long address, byte[] data) {
-        System.out.println("Method: updateCaches");
-        // Assuming LRU strategy for simplicity
-        CacheLevel cacheLevel = getCacheLevel(address);
-        if (cacheLevel != null) {
-            cacheLevel.write(address, data[0]);
-            cacheHits++; // Ovde je bio problem, jer se cacheHits povećavao iako je došlo do promašaja u kešu
-        } else {
-            cacheMisses++; // Ovde je ispravno povećati brojač promašaja u kešu
-        }
+    /**
+     * Writes a 64-bit little-endian value straight to RAM with a single translation
+     * (two if the value crosses a page boundary).
+     *
+     * @param address The first byte address.
+     * @param data    The value to write.
+     */
+    public void writeLongToRAM(long address, long data) {
+        memory.writeLong(address, data);
+        notifyWriteListeners(address, Long.BYTES);
     }
 
-    /*
-    private void updateCaches(long address, byte[] data) {
-        System.out.println("Method: updateCaches");
-        // Assuming LRU strategy for simplicity
-        CacheLevel cacheLevel = getCacheLevel(address);
-        if (cacheLevel != null) {
-            cacheLevel.write(address, data[0]);
-            cacheHits++;
-        }
+    /**
+     * Registers a listener that is notified about every write reaching guest memory
+     * through {@link #writeToCache(long, byte)}, {@link #writeLongToCache(long, long)} or the RAM writes.
+     *
+     * @param listener The listener to register.
+     */
+    public void addWriteListener(MemoryWriteListener listener) {
+        writeListeners.add(listener);
     }
-    */
 
-    // Method to get the index from the address
-    private long getIndex(long address) {
-        System.out.println("Method: getIndex");
-        return (address / CACHE_LINE_SIZE) % L1_CACHE_SIZE;
+    public void removeWriteListener(MemoryWriteListener listener) {
+        writeListeners.remove(listener);
     }
 
-    // Method to get the offset from the address
-    private int getOffset(long address) {
-        System.out.println("Method: getOffset");
-        return (int) (address % CACHE_LINE_SIZE);
+    /**
+     * Registers a listener that sees every access entering the hierarchy,
+     * e.g. a {@link ReuseDistanceAnalyzer}.
+     *
+     * @param listener The listener to register.
+     */
+    public void addAccessListener(CacheAccessListener listener) {
+        accessListeners.add(listener);
     }
 
-    // Cache level class
-    public static class CacheLevel {
-        // Use LinkedHashMap to maintain insertion order for LRU
-        private Map<Long, CacheLine> cacheLines = new LinkedHashMap<>(16, 0.75f, true);
-        public byte read(long address) {
-            CacheLine cacheLine = cacheLines.get(getLineIndex(address));
-            if (cacheLine != null) {
-                return cacheLine.read(getOffset(address));
-            }
-            return 0; // Placeholder, replace with actual implementation
-        }
-
-        public void write(long address, byte data) {
-            long lineIndex = getLineIndex(address);
-            CacheLine cacheLine = cacheLines.computeIfAbsent(lineIndex, k -> new CacheLine());
-            cacheLine.write(getOffset(address), data);
-        }
-
-        private long getLineIndex(long address) {
-            if (cacheLines.isEmpty()) {
-                // Ako je cacheLines prazna, dodajte bar jednu liniju
-                cacheLines.put(0L, new CacheLine());
-            }
-            return (address / CACHE_LINE_SIZE) % cacheLines.size();
-        }
-
-        private int getOffset(long address) {
-            return (int) (address % CACHE_LINE_SIZE);
-        }
-
-        // Cache line class
-        private static class CacheLine {
-            private byte[] data = new byte[CACHE_LINE_SIZE];
-            public byte read(int offset) {
-                return data[offset];
-            }
-            public void write(int offset, byte value) {
-                data[offset] = value;
-            }
-        }
+    public void removeAccessListener(CacheAccessListener listener) {
+        accessListeners.remove(listener);
     }
 
-    // LRU-based cache class
-    private static class LruCache<K, V> extends LinkedHashMap<K, V> {
-        private static final long serialVersionUID = 1L;
-        private final int maxSize;
-
-        LruCache(int maxSize) {
-            super(maxSize, 0.75f, true);
-            this.maxSize = maxSize;
-        }
-        /*
-            `super(maxSize, 0.75f, true)` poziva konstruktor nadređene klase, odnosno konstruktor `LinkedHashMap` klase.
-            Evo šta svaki od parametara znači:
-            1. **maxSize**:
-                Ovaj parametar predstavlja maksimalnu veličinu keša.
-                Kada broj unosa u kešu dostigne ovu vrednost,
-                primenjuje se LRU strategija kako bi se oslobodilo mesto za nove unose.
-            2. **0.75f**:
-                Ovaj parametar predstavlja faktor opterećenja (load factor) koji se koristi za
-                automatsko povećanje veličine keša kada se dostigne određeni procenat od maksimalne veličine.
-                U ovom slučaju, kada se keš napuni 75%, veličina će biti automatski povećana.
-            3. **true**:
-                Ovaj parametar označava da se koristi poredak uvođenja (access order) umesto podrazumevanog poretka uvođenja.
-                Kod LRU keša,
-                želimo pratiti redosled pristupa elementima kako bismo mogli tačno odrediti koji elementi su najmanje korišćeni i ukloniti ih prilikom potrebe. Postavljanjem ovog parametra na `true`, keš će pratiti redosled pristupa prilikom uvođenja novih elemenata.
-            Dakle, poziv `super(maxSize, 0.75f, true)`
-            inicijalizuje `LinkedHashMap` sa specifičnim postavkama koje su prilagođene LRU strategiji.
-         */
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return size() > maxSize;
-        }
-        /*
-            Ova metoda `removeEldestEntry` je preklopljeni (overridden)
-            metod u klasi `LruCache` koja proširuje klasu `LinkedHashMap`.
-            Ovaj metod je od suštinskog značaja za implementaciju LRU (Least Recently Used) keša.
-            Evo šta ova metoda radi:
-                1. **Map.Entry<K, V> eldest**:
-                    Parametar `eldest` predstavlja najstariji unos (entry) u kešu.
-                    "Najstariji" se odnosi na unos koji je bio najmanje korišćen ili koji je bio u kešu najduže vreme.
-                2. **return size() > maxSize**:
-                Ova linija koda proverava da li je trenutna veličina keša (`size()`) veća od maksimalne veličine (`maxSize`).
-                Ako je to tačno, metoda vraća `true`, što znači da će najstariji unos biti uklonjen iz keša.
-
-            Ova provera je ključna za implementaciju LRU strategije.
-            Kada keš dostigne svoju maksimalnu veličinu, ova metoda će biti pozvana pre nego što se novi unos doda u keš.
-            Ako vrati `true`, to znači da je keš premašio svoju maksimalnu veličinu i najstariji unos će biti uklonjen,
-            praveći mesto za novi unos. Ako vrati `false`, novi unos će biti dodat u keš, a najstariji će ostati nepromenjen.
-         */
+    private void notifyWriteListeners(long address, int length) {
+        for (int i = 0; i < writeListeners.size(); i++) {
+            writeListeners.get(i).onMemoryWrite(address, length);
+        }
     }
 
     public void cacheMonitor(){
         System.out.println("No. of Cache hits: " + this.cacheHits + "\n");
         System.out.println("No. of Cache misses: " + this.cacheMisses + "\n");
+        System.out.println("Inclusion policy: " + inclusionPolicy + "\n");
+        for (int i = 0; i < levels.length; i++) {
+            System.out.println(levels[i] + "\n");
+            System.out.println("Effective capacity: " + getEffectiveCapacity(i) + " B\n");
+            if (levels[i].getMissClassifier() != null) {
+                System.out.println("Misses: " + levels[i].getMissClassifier() + "\n");
+            }
+            if (levels[i].getPrefetcher() != null) {
+                System.out.printf("Prefetch accuracy: %.2f%%, coverage: %.2f%%%n%n",
+                        levels[i].getPrefetchAccuracy(), levels[i].getPrefetchCoverage());
+            }
+        }
+        System.out.printf("AMAT: %.2f cycles, stall cycles: %d%n%n", getAverageMemoryAccessTime(), getStallCycles());
+        System.out.println("Memory traffic: " + memoryReads + " line reads, " + memoryWrites + " writes, "
+                + memoryWritebacks + " writebacks\n");
+        if (memory.getTlb() != null) {
+            memory.getTlb().tlbMonitor();
+        }
     }
 
     @Override
@@ -489,7 +885,7 @@ public class Cache {
 
         // Iterirajte kroz sve keš nivoe
         for (int i = 0; i < numCacheLevels; i++) {
-            result.append("l").append(i + 1).append("Cache=").append(cacheLevels.get(i)).append(", ");
+            result.append("l").append(i + 1).append("Cache=").append(levels[i]).append(", ");
         }
 
         // Dodajte preostale informacije
@@ -497,6 +893,7 @@ public class Cache {
                 .append(", cacheSizes=").append(Arrays.toString(cacheSizes))
                 .append(", associativities=").append(Arrays.toString(associativities))
                 .append(", cacheLineSize=").append(cacheLineSize)
+                .append(", inclusionPolicy=").append(inclusionPolicy)
                 .append(", cacheHits=").append(cacheHits)
                 .append(", cacheMisses=").append(cacheMisses)
                 .append(/*", memory=" + memory +*/ '}');
@@ -504,28 +901,23 @@ public class Cache {
         return result.toString();
     }
 
-    /*
-    * @Override
-    public String toString() {
-        return "Cache{" +
-                "l1Cache=" + l1Cache +
-                ", l2Cache=" + l2Cache +
-                ", l3Cache=" + l3Cache +
-                ", numCacheLevels=" + numCacheLevels +
-                ", cacheSizes=" + Arrays.toString(cacheSizes) +
-                ", associativities=" + Arrays.toString(associativities) +
-                ", cacheLineSize=" + cacheLineSize +
-                ", cacheHits=" + cacheHits +
-                ", cacheMisses=" + cacheMisses +
-                 //", memory=" + memory +
-                '}';
-        }*/
-
-    public int getCacheHits(){
+    public long getMemoryReads() {
+        return memoryReads;
+    }
+
+    public long getMemoryWrites() {
+        return memoryWrites;
+    }
+
+    public long getMemoryWritebacks() {
+        return memoryWritebacks;
+    }
+
+    public long getCacheHits(){
         return this.cacheHits;
     }
 
-    public int getCacheMisses(){
+    public long getCacheMisses(){
         return this.cacheMisses;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package cache;
+
+/**
+ * Callback notified about every access entering a {@link Cache} (including replayed ones),
+ * before the hierarchy is updated. Used by profilers such as {@link ReuseDistanceAnalyzer}.
+ */
+public interface CacheAccessListener {
+
+    /**
+     * @param address The byte address accessed.
+     * @param write   True for a store.
+     */
+    void onCacheAccess(long address, boolean write);
+}
@@ -0,0 +1,710 @@
+package cache;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * One level of the cache hierarchy modelled as a set-associative tag store.
+ * Data is not kept here: the cache is a timing/statistics model and the bytes always come
+ * from {@link memory.Memory}. An address is split into {@code tag | set index | line offset}
+ * according to the configured line size and number of sets.
+ *
+ * Lookups only index primitive arrays and never allocate. Which line of a full set is evicted is
+ * decided by the level's {@link ReplacementPolicy} (LRU by default).
+ */
+public class CacheLevel {
+    // Asocijativnost je ograničena na 64 jer su valid/dirty bitovi seta jedan long
+    public static final int MAX_ASSOCIATIVITY = Long.SIZE;
+
+    private final int level;                // 0 - L1, 1 - L2, 2 - L3
+    private final int sizeBytes;
+    private final int associativity;
+    private final int lineSize;
+    private final int numSets;
+    private final int lineShift;            // log2(lineSize)
+    private final int setBits;              // log2(numSets)
+    private final long setMask;
+
+    // Tagovi se alociraju lijeno, u komadima od SETS_PER_CHUNK setova, pri prvom punjenju.
+    // Unutar komada set s zauzima indekse [(s % SETS_PER_CHUNK) * associativity, ... + associativity).
+    // Set bez važećih linija se nikad ne čita iz komada, pa nealocirani komad znači prazan set.
+    static final int SETS_PER_CHUNK = 64;
+    private static final int MAX_POLLUTION_FILTER = 4096;
+    // Podrazumijevana latencija pogotka po nivou (ciklusi): L1, L2, L3 i dalje
+    private static final int[] DEFAULT_LATENCIES = {4, 12, 40};
+    private final long[][] tagChunks;
+    private int allocatedChunks = 0;
+    private final long[] validBits;         // po jedan long po setu, bit w = put (way) w
+    private final long[] dirtyBits;
+    private ReplacementPolicy replacementPolicy;
+    private WriteHitPolicy writeHitPolicy = WriteHitPolicy.WRITE_BACK;
+    private WriteMissPolicy writeMissPolicy = WriteMissPolicy.WRITE_ALLOCATE;
+
+    // Posljednja izbačena linija (bez alokacije povratnog objekta)
+    private boolean evicted;
+    private long evictedAddress;
+    private boolean evictedDirty;
+    private boolean evictedPrefetched;
+    private boolean prefetchHit;            // da li je posljednji pogodak bio prvi pogodak prefetch-ovane linije
+
+    // Prefetch: stanje se alocira tek kada se u nivo prvi put prefetch-uje
+    private Prefetcher prefetcher;
+    private long[] prefetchedBits;          // po jedan long po setu, linije još neiskorištene od prefetch-a
+    private long[] pollutionFilter;         // linije koje je izbacio prefetch (heširano), -1 ako je prazno
+    private long prefetches = 0;
+    private long usefulPrefetches = 0;      // prefetch-ovane linije koje je zatim pogodio zahtjev
+    private long unusedPrefetches = 0;      // prefetch-ovane linije izbačene prije upotrebe
+    private long pollutionMisses = 0;       // promašaji na linijama koje je izbacio prefetch
+
+    // Statistika: long brojači, dovoljno jeftini da ostanu uključeni i u dugim izvršavanjima
+    private long readHits = 0;
+    private long writeHits = 0;
+    private long readMisses = 0;
+    private long writeMisses = 0;
+    private long evictions = 0;
+    private long writebacks = 0;
+    // Saobraćaj između nivoa
+    private long fills = 0;                 // linije primljene u ovaj nivo (iz bilo kojeg razloga)
+    private long victimFills = 0;           // linije primljene kao žrtve nivoa iznad (EXCLUSIVE)
+    private long backInvalidations = 0;     // linije poništene jer ih je niži nivo izbacio (INCLUSIVE)
+    private int latency;                    // ciklusi za pogodak u ovom nivou
+    private MissClassifier missClassifier;  // 3C klasifikacija promašaja, null ako je isključena
+
+    /**
+     * Creates an empty cache level.
+     *
+     * @param level         The level number, 0 for L1.
+     * @param sizeBytes     The capacity in bytes.
+     * @param associativity The number of ways per set (1 is direct-mapped).
+     * @param lineSize      The line size in bytes, a power of two.
+     * @throws IllegalArgumentException If the geometry does not give a power-of-two number of sets.
+     */
+    public CacheLevel(int level, int sizeBytes, int associativity, int lineSize) {
+        this(level, sizeBytes, associativity, lineSize, new LruPolicy());
+    }
+
+    /**
+     * Creates an empty cache level with the given replacement policy.
+     *
+     * @param replacementPolicy The policy choosing victims in full sets; it is initialized for this geometry.
+     */
+    public CacheLevel(int level, int sizeBytes, int associativity, int lineSize, ReplacementPolicy replacementPolicy) {
+        if (lineSize <= 0 || Integer.bitCount(lineSize) != 1) {
+            throw new IllegalArgumentException("Cache line size must be a power of two: " + lineSize);
+        }
+        if (associativity <= 0 || associativity > MAX_ASSOCIATIVITY) {
+            throw new IllegalArgumentException("Invalid associativity for L" + (level + 1) + ": " + associativity);
+        }
+        int numLines = sizeBytes / lineSize;
+        if (numLines <= 0 || numLines % associativity != 0 || Integer.bitCount(numLines / associativity) != 1) {
+            throw new IllegalArgumentException("L" + (level + 1) + " size " + sizeBytes
+                    + " does not give a power-of-two number of " + associativity + "-way sets of " + lineSize + " byte lines");
+        }
+        this.level = level;
+        this.sizeBytes = sizeBytes;
+        this.associativity = associativity;
+        this.lineSize = lineSize;
+        this.numSets = numLines / associativity;
+        this.lineShift = Integer.numberOfTrailingZeros(lineSize);
+        this.setBits = Integer.numberOfTrailingZeros(numSets);
+        this.setMask = numSets - 1;
+        int chunks = (numSets + SETS_PER_CHUNK - 1) / SETS_PER_CHUNK;
+        this.tagChunks = new long[chunks][];
+        this.validBits = new long[numSets];
+        this.dirtyBits = new long[numSets];
+        this.latency = DEFAULT_LATENCIES[Math.min(level, DEFAULT_LATENCIES.length - 1)];
+        setReplacementPolicy(replacementPolicy);
+    }
+
+    /**
+     * Switches the replacement policy. Cached lines are kept; the new policy starts from its initial order.
+     */
+    public void setReplacementPolicy(ReplacementPolicy replacementPolicy) {
+        replacementPolicy.initialize(numSets, associativity);
+        this.replacementPolicy = replacementPolicy;
+    }
+
+    public ReplacementPolicy getReplacementPolicy() {
+        return replacementPolicy;
+    }
+
+    public int getSetIndex(long address) {
+        return (int) ((address >>> lineShift) & setMask);
+    }
+
+    public long getTag(long address) {
+        return address >>> (lineShift + setBits);
+    }
+
+    public int getLineOffset(long address) {
+        return (int) (address & (lineSize - 1));
+    }
+
+    /**
+     * Returns the way holding the line of {@code address}, or -1. Does not touch replacement state.
+     */
+    public int lookup(long address) {
+        int set = getSetIndex(address);
+        long valid = validBits[set];
+        if (valid == 0) {
+            return -1;
+        }
+        long tag = getTag(address);
+        long[] tags = tagChunks[set / SETS_PER_CHUNK];
+        int base = chunkBase(set);
+        for (int way = 0; way < associativity; way++) {
+            if ((valid & (1L << way)) != 0 && tags[base + way] == tag) {
+                return way;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(long address) {
+        return lookup(address) >= 0;
+    }
+
+    /**
+     * Performs one access: a hit is reported to the replacement policy, a miss fills the line,
+     * evicting the policy's victim if the set is full.
+     * After a miss {@link #hasEvicted()} tells whether a valid line was displaced.
+     *
+     * @param address The byte address accessed.
+     * @param write   True for a store; the line is then marked dirty if the level is write-back.
+     * @return True on a hit.
+     */
+    public boolean access(long address, boolean write) {
+        return access(address, write, true);
+    }
+
+    /**
+     * Performs one access that fills the line on a miss only if {@code allocate} is true.
+     *
+     * @param address  The byte address accessed.
+     * @param write    True for a store (counted as a write, dirty under write-back).
+     * @param allocate False to leave the level unchanged on a miss (no-write-allocate).
+     * @return True on a hit.
+     */
+    public boolean access(long address, boolean write, boolean allocate) {
+        int set = getSetIndex(address);
+        int way = lookup(address);
+        boolean hit = way >= 0;
+        prefetchHit = false;
+        if (missClassifier != null) {
+            missClassifier.access(address >>> lineShift, hit);
+        }
+        if (hit) {
+            if (write) {
+                writeHits++;
+            } else {
+                readHits++;
+            }
+            evicted = false;
+            replacementPolicy.onHit(set, way, address);
+            if (prefetchedBits != null && (prefetchedBits[set] & (1L << way)) != 0) {
+                prefetchedBits[set] &= ~(1L << way);
+                usefulPrefetches++;
+                prefetchHit = true;
+            }
+        } else {
+            if (write) {
+                writeMisses++;
+            } else {
+                readMisses++;
+            }
+            if (pollutionFilter != null) {
+                int slot = pollutionSlot(address);
+                if (pollutionFilter[slot] == (address & -lineSize)) {
+                    pollutionFilter[slot] = -1;
+                    pollutionMisses++;
+                }
+            }
+            if (!allocate) {
+                evicted = false;
+                return false;
+            }
+            way = fill(address);
+        }
+        if (write && writeHitPolicy == WriteHitPolicy.WRITE_BACK) {
+            dirtyBits[set] |= 1L << way;
+        }
+        return hit;
+    }
+
+    /**
+     * Brings the line of {@code address} into the level without counting an access.
+     *
+     * @return The way the line was placed in.
+     */
+    public int fill(long address) {
+        int set = getSetIndex(address);
+        evicted = false;
+        int existing = lookup(address);
+        if (existing >= 0) {
+            return existing;
+        }
+        int chunk = set / SETS_PER_CHUNK;
+        if (tagChunks[chunk] == null) {
+            tagChunks[chunk] = new long[SETS_PER_CHUNK * associativity];
+            allocatedChunks++;
+        }
+        long[] tags = tagChunks[chunk];
+        int base = chunkBase(set);
+        long valid = validBits[set];
+        int victim;
+        if (valid != fullMask()) {
+            // Slobodan put: prvi nevažeći
+            victim = Long.numberOfTrailingZeros(~valid);
+        } else {
+            victim = replacementPolicy.selectVictim(set);
+            evicted = true;
+            evictedAddress = lineAddress(tags[base + victim], set);
+            evictedDirty = (dirtyBits[set] & (1L << victim)) != 0;
+            evictedPrefetched = prefetchedBits != null && (prefetchedBits[set] & (1L << victim)) != 0;
+            if (evictedPrefetched) {
+                unusedPrefetches++;
+            }
+            evictions++;
+        }
+        if (prefetchedBits != null) {
+            prefetchedBits[set] &= ~(1L << victim);
+        }
+        fills++;
+        tags[base + victim] = getTag(address);
+        validBits[set] = valid | (1L << victim);
+        dirtyBits[set] &= ~(1L << victim);
+        replacementPolicy.onFill(set, victim, address);
+        return victim;
+    }
+
+    /**
+     * Drops the line of {@code address} if present.
+     *
+     * @return True if the dropped line was dirty.
+     */
+    public boolean invalidate(long address) {
+        int way = lookup(address);
+        if (way < 0) {
+            return false;
+        }
+        int set = getSetIndex(address);
+        boolean dirty = (dirtyBits[set] & (1L << way)) != 0;
+        validBits[set] &= ~(1L << way);
+        dirtyBits[set] &= ~(1L << way);
+        if (prefetchedBits != null) {
+            prefetchedBits[set] &= ~(1L << way);
+        }
+        replacementPolicy.onInvalidate(set, way);
+        return dirty;
+    }
+
+    /**
+     * Brings the line of {@code address} in on behalf of a prefetcher. The line is tagged until a
+     * demand access hits it; if it displaces a demand-fetched line, that line is remembered so a
+     * later miss on it is counted as pollution.
+     *
+     * @return The way the line was placed in.
+     */
+    public int prefetch(long address) {
+        if (prefetchedBits == null) {
+            prefetchedBits = new long[numSets];
+            pollutionFilter = new long[Math.min(numSets * associativity, MAX_POLLUTION_FILTER)];
+            Arrays.fill(pollutionFilter, -1);
+        }
+        boolean present = contains(address);
+        int way = fill(address);
+        if (present) {
+            return way;
+        }
+        prefetches++;
+        prefetchedBits[getSetIndex(address)] |= 1L << way;
+        if (evicted && !evictedPrefetched) {
+            pollutionFilter[pollutionSlot(evictedAddress)] = evictedAddress;
+        }
+        return way;
+    }
+
+    private int pollutionSlot(long address) {
+        long line = address >>> lineShift;
+        return (int) ((line ^ (line >>> 17)) & (pollutionFilter.length - 1));
+    }
+
+    /**
+     * Attaches a prefetcher to the level, or detaches it if null. The cache trains it on every
+     * demand access of the level.
+     */
+    public void setPrefetcher(Prefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+        if (prefetcher != null) {
+            prefetcher.initialize(lineSize);
+        }
+    }
+
+    public Prefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * Returns true if the last {@link #access} was the first demand hit on a prefetched line.
+     */
+    public boolean wasPrefetchHit() {
+        return prefetchHit;
+    }
+
+    /**
+     * Marks the line of {@code address} clean if present.
+     *
+     * @return True if the line was dirty.
+     */
+    public boolean clean(long address) {
+        int way = lookup(address);
+        if (way < 0) {
+            return false;
+        }
+        int set = getSetIndex(address);
+        boolean dirty = (dirtyBits[set] & (1L << way)) != 0;
+        dirtyBits[set] &= ~(1L << way);
+        return dirty;
+    }
+
+    /**
+     * Marks the line of {@code address} dirty if present.
+     */
+    public void markDirty(long address) {
+        int way = lookup(address);
+        if (way >= 0) {
+            dirtyBits[getSetIndex(address)] |= 1L << way;
+        }
+    }
+
+    /**
+     * Passes the address of every dirty line to {@code sink} and marks the lines clean.
+     * Every such line is counted as a writeback.
+     *
+     * @return The number of dirty lines found.
+     */
+    public int cleanDirtyLines(LongConsumer sink) {
+        int count = 0;
+        for (int set = 0; set < numSets; set++) {
+            long dirty = dirtyBits[set];
+            if (dirty == 0) {
+                continue;
+            }
+            dirtyBits[set] = 0;
+            long[] tags = tagChunks[set / SETS_PER_CHUNK];
+            int base = chunkBase(set);
+            while (dirty != 0) {
+                int way = Long.numberOfTrailingZeros(dirty);
+                dirty &= dirty - 1;
+                sink.accept(lineAddress(tags[base + way], set));
+                count++;
+            }
+        }
+        writebacks += count;
+        return count;
+    }
+
+    // Poziva Cache kada izbačena prljava linija ide u niži nivo
+    void recordWriteback() {
+        writebacks++;
+    }
+
+    void recordVictimFill() {
+        victimFills++;
+    }
+
+    void recordBackInvalidation() {
+        backInvalidations++;
+    }
+
+    /**
+     * Passes the address of every valid line to {@code sink}.
+     */
+    public void forEachValidLine(LongConsumer sink) {
+        for (int set = 0; set < numSets; set++) {
+            long valid = validBits[set];
+            if (valid == 0) {
+                continue;
+            }
+            long[] tags = tagChunks[set / SETS_PER_CHUNK];
+            int base = chunkBase(set);
+            while (valid != 0) {
+                int way = Long.numberOfTrailingZeros(valid);
+                valid &= valid - 1;
+                sink.accept(lineAddress(tags[base + way], set));
+            }
+        }
+    }
+
+    public boolean isDirty(long address) {
+        int way = lookup(address);
+        return way >= 0 && (dirtyBits[getSetIndex(address)] & (1L << way)) != 0;
+    }
+
+    /**
+     * Drops every line and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(validBits, 0);
+        Arrays.fill(dirtyBits, 0);
+        Arrays.fill(tagChunks, null);
+        allocatedChunks = 0;
+        replacementPolicy.initialize(numSets, associativity);
+        evicted = false;
+        if (prefetchedBits != null) {
+            Arrays.fill(prefetchedBits, 0);
+            Arrays.fill(pollutionFilter, -1);
+        }
+        if (prefetcher != null) {
+            prefetcher.initialize(lineSize);
+        }
+        prefetchHit = false;
+        if (missClassifier != null) {
+            missClassifier.clear();
+        }
+        resetStatistics();
+    }
+
+    /**
+     * Resets the counters without touching the cached lines, e.g. between measurement phases.
+     */
+    public void resetStatistics() {
+        if (missClassifier != null) {
+            missClassifier.resetStatistics();
+        }
+        readHits = 0;
+        writeHits = 0;
+        readMisses = 0;
+        writeMisses = 0;
+        evictions = 0;
+        writebacks = 0;
+        fills = 0;
+        victimFills = 0;
+        backInvalidations = 0;
+        prefetches = 0;
+        usefulPrefetches = 0;
+        unusedPrefetches = 0;
+        pollutionMisses = 0;
+    }
+
+    private int chunkBase(int set) {
+        return (set % SETS_PER_CHUNK) * associativity;
+    }
+
+    /**
+     * Returns the heap bytes currently used by tag state (valid/dirty bitmasks included) and by the
+     * replacement policy.
+     */
+    public long getStateBytes() {
+        long chunkBytes = (long) SETS_PER_CHUNK * associativity * Long.BYTES;
+        long prefetchBytes = prefetchedBits == null ? 0
+                : (long) (prefetchedBits.length + pollutionFilter.length) * Long.BYTES;
+        return allocatedChunks * chunkBytes + (long) numSets * Long.BYTES * 2 + prefetchBytes
+                + replacementPolicy.getStateBytes();
+    }
+
+    private long fullMask() {
+        return associativity == Long.SIZE ? -1L : (1L << associativity) - 1;
+    }
+
+    private long lineAddress(long tag, int set) {
+        return ((tag << setBits) | set) << lineShift;
+    }
+
+    public boolean hasEvicted() {
+        return evicted;
+    }
+
+    public long getEvictedAddress() {
+        return evictedAddress;
+    }
+
+    public boolean isEvictedDirty() {
+        return evictedDirty;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public int getAssociativity() {
+        return associativity;
+    }
+
+    public int getLineSize() {
+        return lineSize;
+    }
+
+    public int getNumSets() {
+        return numSets;
+    }
+
+    public long getHits() {
+        return readHits + writeHits;
+    }
+
+    public long getMisses() {
+        return readMisses + writeMisses;
+    }
+
+    public long getReadHits() {
+        return readHits;
+    }
+
+    public long getWriteHits() {
+        return writeHits;
+    }
+
+    public long getReadMisses() {
+        return readMisses;
+    }
+
+    public long getWriteMisses() {
+        return writeMisses;
+    }
+
+    /**
+     * Local miss rate in percent: misses of this level over the accesses that reached it.
+     */
+    public double getMissPercentage() {
+        long total = getHits() + getMisses();
+        return total > 0 ? (double) getMisses() / total * 100 : 0;
+    }
+
+    /**
+     * Turns 3C classification of this level's misses on or off. Turning it on starts with an
+     * empty history, so lines cached before count as first touches.
+     */
+    public void setMissClassification(boolean enabled) {
+        missClassifier = enabled ? new MissClassifier(numSets * associativity) : null;
+    }
+
+    /**
+     * Returns the miss classifier, or null if classification is off.
+     */
+    public MissClassifier getMissClassifier() {
+        return missClassifier;
+    }
+
+    public int getLatency() {
+        return latency;
+    }
+
+    /**
+     * Sets the hit latency of the level in cycles.
+     */
+    public void setLatency(int latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("Latency must not be negative: " + latency);
+        }
+        this.latency = latency;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getWritebacks() {
+        return writebacks;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    public long getVictimFills() {
+        return victimFills;
+    }
+
+    public long getBackInvalidations() {
+        return backInvalidations;
+    }
+
+    public long getPrefetches() {
+        return prefetches;
+    }
+
+    public long getUsefulPrefetches() {
+        return usefulPrefetches;
+    }
+
+    public long getUnusedPrefetches() {
+        return unusedPrefetches;
+    }
+
+    public long getPollutionMisses() {
+        return pollutionMisses;
+    }
+
+    /**
+     * Percentage of prefetched lines that a demand access used.
+     */
+    public double getPrefetchAccuracy() {
+        return prefetches > 0 ? (double) usefulPrefetches / prefetches * 100 : 0;
+    }
+
+    /**
+     * Percentage of would-be misses removed by prefetching: useful prefetches over useful
+     * prefetches plus the remaining demand misses.
+     */
+    public double getPrefetchCoverage() {
+        long total = usefulPrefetches + getMisses();
+        return total > 0 ? (double) usefulPrefetches / total * 100 : 0;
+    }
+
+    public WriteHitPolicy getWriteHitPolicy() {
+        return writeHitPolicy;
+    }
+
+    public WriteMissPolicy getWriteMissPolicy() {
+        return writeMissPolicy;
+    }
+
+    /**
+     * Sets the write policies. Switching to write-through does not clean lines that are already dirty;
+     * call {@link Cache#flush()} first if that matters.
+     */
+    public void setWritePolicy(WriteHitPolicy writeHitPolicy, WriteMissPolicy writeMissPolicy) {
+        this.writeHitPolicy = writeHitPolicy;
+        this.writeMissPolicy = writeMissPolicy;
+    }
+
+    public int getValidLineCount() {
+        int count = 0;
+        for (long valid : validBits) {
+            count += Long.bitCount(valid);
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "L" + (level + 1) + "{" +
+                "size=" + sizeBytes +
+                ", associativity=" + associativity +
+                ", lineSize=" + lineSize +
+                ", policy=" + replacementPolicy.getName() +
+                ", write=" + writeHitPolicy + "/" + writeMissPolicy +
+                ", sets=" + numSets +
+                ", latency=" + latency +
+                ", readHits=" + readHits +
+                ", writeHits=" + writeHits +
+                ", readMisses=" + readMisses +
+                ", writeMisses=" + writeMisses +
+                ", evictions=" + evictions +
+                ", writebacks=" + writebacks +
+                ", fills=" + fills +
+                ", victimFills=" + victimFills +
+                ", backInvalidations=" + backInvalidations +
+                (prefetcher == null ? "" : ", prefetcher=" + prefetcher.getName() +
+                        ", prefetches=" + prefetches +
+                        ", usefulPrefetches=" + usefulPrefetches +
+                        ", unusedPrefetches=" + unusedPrefetches +
+                        ", pollutionMisses=" + pollutionMisses) +
+                '}';
+    }
+}
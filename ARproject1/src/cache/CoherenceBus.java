@@ -0,0 +1,339 @@
+package cache;
+
+import java.util.Arrays;
+
+import utility.LongIntHashMap;
+
+/**
+ * Snooping bus keeping the private {@link Cache} hierarchies of several cores coherent with the
+ * MESI protocol, in front of a last level shared by all cores. A directory of sharers (one bit
+ * per core for every line) limits snoops to the cores that may hold a line; the bits of cores
+ * that evicted a line silently are dropped at the next snoop.
+ * <ul>
+ *     <li>A private miss is a bus read (BusRd, or BusRdX for a store). A core holding the line
+ *     modified supplies it (cache-to-cache transfer) and writes it back to the shared level.</li>
+ *     <li>A store invalidates the copies of every other core; a store hitting a shared line is
+ *     counted as an upgrade (BusUpgr). Stores to exclusive or modified lines are silent.</li>
+ *     <li>A miss on a line lost to an invalidation is a coherence miss. It is true sharing if the
+ *     missing access touches an 8-byte word written by another core since, false sharing otherwise.</li>
+ * </ul>
+ * Caches hold the bus lock for a whole access, so the bus is also what makes the per-core caches
+ * safe to use from one host thread per core; guest data itself always lives in {@link memory.Memory}.
+ */
+public class CoherenceBus {
+    public static final int MAX_CORES = 31;
+    private static final int WORD_SHIFT = 3;            // riječ od 8 bajtova za praćenje dijeljenja
+
+    private final CacheLevel sharedLevel;               // null - ispod magistrale je direktno memorija
+    private final int lineSize;
+    private final Cache[] cores = new Cache[MAX_CORES];
+    private int coreCount = 0;
+
+    private final LongIntHashMap sharers = new LongIntHashMap();   // linija -> maska jezgara
+    private final LongIntHashMap[] invalidatedWords = new LongIntHashMap[MAX_CORES];
+
+    // Koherentni saobraćaj
+    private long busReads = 0;
+    private long busReadExclusives = 0;
+    private long busUpgrades = 0;
+    private long invalidations = 0;
+    private long cacheToCacheTransfers = 0;
+    private long coherenceWritebacks = 0;
+    private long memoryReads = 0;
+    private long memoryWrites = 0;
+    private long memoryWritebacks = 0;
+    private final long[] coherenceMisses = new long[MAX_CORES];
+    private final long[] trueSharingMisses = new long[MAX_CORES];
+    private final long[] falseSharingMisses = new long[MAX_CORES];
+
+    /**
+     * @param sharedLevel The last level shared by all cores, or null for none.
+     * @param lineSize    The line size of every attached cache.
+     */
+    public CoherenceBus(CacheLevel sharedLevel, int lineSize) {
+        if (sharedLevel != null && sharedLevel.getLineSize() != lineSize) {
+            throw new IllegalArgumentException("Shared level line size must be " + lineSize);
+        }
+        this.sharedLevel = sharedLevel;
+        this.lineSize = lineSize;
+    }
+
+    /**
+     * Attaches the private hierarchy of a new core.
+     *
+     * @return The core index.
+     * @throws IllegalArgumentException If the line size differs or the cache is already attached.
+     * @throws IllegalStateException    If {@link #MAX_CORES} cores are attached.
+     */
+    public synchronized int attach(Cache cache) {
+        if (cache.getCacheLineSize() != lineSize) {
+            throw new IllegalArgumentException("Core cache line size must be " + lineSize);
+        }
+        if (cache.getCoherenceBus() != null) {
+            throw new IllegalArgumentException("Cache is already attached to a bus");
+        }
+        if (coreCount == MAX_CORES) {
+            throw new IllegalStateException("At most " + MAX_CORES + " cores are supported");
+        }
+        int core = coreCount++;
+        cores[core] = cache;
+        invalidatedWords[core] = new LongIntHashMap();
+        cache.attachToBus(this, core);
+        return core;
+    }
+
+    // Promašaj privatne hijerarhije jezgra: njuškanje ostalih jezgara pa dijeljeni nivo
+    void read(Cache requester, long address, boolean forWrite) {
+        int core = requester.getCoreId();
+        long line = address & -lineSize;
+        if (forWrite) {
+            busReadExclusives++;
+        } else {
+            busReads++;
+        }
+        int written = invalidatedWords[core].remove(line, -1);
+        if (written != -1) {
+            coherenceMisses[core]++;
+            if ((written & wordBit(address)) != 0) {
+                trueSharingMisses[core]++;
+            } else {
+                falseSharingMisses[core]++;
+            }
+        }
+        int mask = sharers.get(line, 0);
+        boolean supplied = false;
+        for (int others = mask & ~(1 << core); others != 0; others &= others - 1) {
+            int other = Integer.numberOfTrailingZeros(others);
+            if (!cores[other].holdsLine(line)) {
+                mask &= ~(1 << other);
+            } else if (cores[other].cleanLine(line)) {
+                // M -> S: vlasnik isporučuje liniju i upisuje je u dijeljeni nivo
+                cacheToCacheTransfers++;
+                coherenceWritebacks++;
+                writeBackShared(line);
+                supplied = true;
+            }
+        }
+        sharers.put(line, mask | (1 << core));
+        if (!supplied) {
+            sharedRead(address);
+        }
+    }
+
+    // Upis jezgra (poslije pristupa privatnoj hijerarhiji): poništavanje kopija ostalih jezgara
+    void write(Cache requester, long address, boolean missed) {
+        int core = requester.getCoreId();
+        long line = address & -lineSize;
+        int word = wordBit(address);
+        for (int other = 0; other < coreCount; other++) {
+            if (other != core && invalidatedWords[other].containsKey(line)) {
+                invalidatedWords[other].put(line, invalidatedWords[other].get(line, 0) | word);
+            }
+        }
+        int mask = sharers.get(line, 0);
+        boolean invalidated = false;
+        for (int others = mask & ~(1 << core); others != 0; others &= others - 1) {
+            int other = Integer.numberOfTrailingZeros(others);
+            int result = cores[other].invalidateLine(line);
+            if (result < 0) {
+                continue;
+            }
+            invalidated = true;
+            invalidations++;
+            invalidatedWords[other].put(line, word);
+            if (result > 0) {
+                coherenceWritebacks++;
+                writeBackShared(line);
+            }
+        }
+        if (invalidated && !missed) {
+            busUpgrades++;
+        }
+        if (requester.holdsLine(line)) {
+            sharers.put(line, 1 << core);
+        } else {
+            sharers.remove(line, 0);
+        }
+    }
+
+    // Upis koji prolazi kroz privatnu hijerarhiju (write-through / no-write-allocate)
+    void writeThrough(long address) {
+        if (sharedLevel == null) {
+            memoryWrites++;
+            return;
+        }
+        boolean hit = sharedLevel.access(address, true);
+        if (!hit) {
+            memoryReads++;
+        }
+        sharedVictim();
+    }
+
+    // Prljava linija izbačena iz privatne hijerarhije
+    void writeBack(long lineAddress) {
+        writeBackShared(lineAddress);
+    }
+
+    private void sharedRead(long address) {
+        if (sharedLevel == null) {
+            memoryReads++;
+            return;
+        }
+        if (!sharedLevel.access(address, false)) {
+            memoryReads++;
+            sharedVictim();
+        }
+    }
+
+    private void writeBackShared(long lineAddress) {
+        if (sharedLevel == null) {
+            memoryWritebacks++;
+            return;
+        }
+        if (!sharedLevel.contains(lineAddress)) {
+            // Cijela linija stiže odozgo, pa nema čitanja iz memorije
+            sharedLevel.fill(lineAddress);
+            sharedVictim();
+        }
+        sharedLevel.markDirty(lineAddress);
+    }
+
+    private void sharedVictim() {
+        if (sharedLevel.hasEvicted() && sharedLevel.isEvictedDirty()) {
+            sharedLevel.recordWriteback();
+            memoryWritebacks++;
+        }
+    }
+
+    private int wordBit(long address) {
+        return 1 << ((int) ((address & (lineSize - 1)) >>> WORD_SHIFT) & 31);
+    }
+
+    /**
+     * Returns the MESI state of the line of {@code address} in the private hierarchy of a core.
+     */
+    public synchronized MesiState getState(int core, long address) {
+        long line = address & -lineSize;
+        Cache cache = cores[core];
+        if (!cache.holdsLine(line)) {
+            return MesiState.INVALID;
+        }
+        if (cache.isLineDirty(line)) {
+            return MesiState.MODIFIED;
+        }
+        for (int others = sharers.get(line, 0) & ~(1 << core); others != 0; others &= others - 1) {
+            if (cores[Integer.numberOfTrailingZeros(others)].holdsLine(line)) {
+                return MesiState.SHARED;
+            }
+        }
+        return MesiState.EXCLUSIVE;
+    }
+
+    /**
+     * Resets the coherence counters (not the cached lines or the directory).
+     */
+    public synchronized void resetStatistics() {
+        busReads = 0;
+        busReadExclusives = 0;
+        busUpgrades = 0;
+        invalidations = 0;
+        cacheToCacheTransfers = 0;
+        coherenceWritebacks = 0;
+        memoryReads = 0;
+        memoryWrites = 0;
+        memoryWritebacks = 0;
+        Arrays.fill(coherenceMisses, 0);
+        Arrays.fill(trueSharingMisses, 0);
+        Arrays.fill(falseSharingMisses, 0);
+        if (sharedLevel != null) {
+            sharedLevel.resetStatistics();
+        }
+    }
+
+    public int getCoreCount() {
+        return coreCount;
+    }
+
+    public Cache getCore(int core) {
+        return cores[core];
+    }
+
+    public CacheLevel getSharedLevel() {
+        return sharedLevel;
+    }
+
+    public long getBusReads() {
+        return busReads;
+    }
+
+    public long getBusReadExclusives() {
+        return busReadExclusives;
+    }
+
+    public long getBusUpgrades() {
+        return busUpgrades;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getCacheToCacheTransfers() {
+        return cacheToCacheTransfers;
+    }
+
+    public long getCoherenceWritebacks() {
+        return coherenceWritebacks;
+    }
+
+    public long getMemoryReads() {
+        return memoryReads;
+    }
+
+    public long getMemoryWrites() {
+        return memoryWrites;
+    }
+
+    public long getMemoryWritebacks() {
+        return memoryWritebacks;
+    }
+
+    public long getCoherenceMisses(int core) {
+        return coherenceMisses[core];
+    }
+
+    public long getTrueSharingMisses(int core) {
+        return trueSharingMisses[core];
+    }
+
+    public long getFalseSharingMisses(int core) {
+        return falseSharingMisses[core];
+    }
+
+    public synchronized void coherenceMonitor() {
+        System.out.println(this + "\n");
+        if (sharedLevel != null) {
+            System.out.println("Shared " + sharedLevel + "\n");
+        }
+        for (int core = 0; core < coreCount; core++) {
+            System.out.println("Core " + core + ": coherence misses " + coherenceMisses[core]
+                    + " (true sharing " + trueSharingMisses[core] + ", false sharing " + falseSharingMisses[core] + ")\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoherenceBus{" +
+                "cores=" + coreCount +
+                ", busReads=" + busReads +
+                ", busReadExclusives=" + busReadExclusives +
+                ", busUpgrades=" + busUpgrades +
+                ", invalidations=" + invalidations +
+                ", cacheToCacheTransfers=" + cacheToCacheTransfers +
+                ", coherenceWritebacks=" + coherenceWritebacks +
+                ", memoryReads=" + memoryReads +
+                ", memoryWrites=" + memoryWrites +
+                ", memoryWritebacks=" + memoryWritebacks +
+                '}';
+    }
+}
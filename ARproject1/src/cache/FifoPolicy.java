@@ -0,0 +1,17 @@
+package cache;
+
+/**
+ * First in, first out replacement: the line filled longest ago is evicted, hits do not matter.
+ */
+public class FifoPolicy extends LruPolicy {
+
+    @Override
+    public void onHit(int set, int way) {
+        // Redoslijed se mijenja samo pri punjenju
+    }
+
+    @Override
+    public String getName() {
+        return "FIFO";
+    }
+}
@@ -0,0 +1,22 @@
+package cache;
+
+/**
+ * How lines are shared between the levels of a {@link Cache}.
+ */
+public enum InclusionPolicy {
+    /**
+     * Every line of an upper level is also present below. Misses fill every level on the way;
+     * a line evicted from a lower level is back-invalidated in the levels above it.
+     */
+    INCLUSIVE,
+    /**
+     * A line lives in at most one level. Misses fill only L1; a line found in a lower level is
+     * moved up, and lines evicted from a level are placed in the level below (victim fills).
+     */
+    EXCLUSIVE,
+    /**
+     * Non-inclusive, non-exclusive: misses fill every level on the way, evictions do not affect
+     * other levels.
+     */
+    NINE
+}
@@ -0,0 +1,92 @@
+package cache;
+
+/**
+ * Least recently used replacement. Every line has a recency rank inside its set
+ * (0 - most recently used, associativity - 1 - least recently used), stored in one byte.
+ * Like the tags of {@link CacheLevel}, the ranks are allocated lazily per chunk of sets.
+ */
+public class LruPolicy implements ReplacementPolicy {
+    protected int associativity;
+    private byte[][] rankChunks;
+    private int allocatedChunks;
+
+    @Override
+    public void initialize(int numSets, int associativity) {
+        this.associativity = associativity;
+        this.rankChunks = new byte[(numSets + CacheLevel.SETS_PER_CHUNK - 1) / CacheLevel.SETS_PER_CHUNK][];
+        this.allocatedChunks = 0;
+    }
+
+    // Komad rangova za set; pri prvom pristupu rangovi unutar seta su permutacija 0..associativity-1
+    private byte[] ranksOf(int set) {
+        int chunk = set / CacheLevel.SETS_PER_CHUNK;
+        byte[] ranks = rankChunks[chunk];
+        if (ranks == null) {
+            ranks = new byte[CacheLevel.SETS_PER_CHUNK * associativity];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = (byte) (i % associativity);
+            }
+            rankChunks[chunk] = ranks;
+            allocatedChunks++;
+        }
+        return ranks;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        promote(set, way);
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        promote(set, way);
+    }
+
+    @Override
+    public int selectVictim(int set) {
+        byte[] ranks = ranksOf(set);
+        int base = (set % CacheLevel.SETS_PER_CHUNK) * associativity;
+        for (int way = 0; way < associativity; way++) {
+            if (ranks[base + way] == associativity - 1) {
+                return way;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        // Nevažeća linija postaje najstarija
+        byte[] ranks = ranksOf(set);
+        int base = (set % CacheLevel.SETS_PER_CHUNK) * associativity;
+        byte rank = ranks[base + way];
+        for (int i = base; i < base + associativity; i++) {
+            if (ranks[i] > rank) {
+                ranks[i]--;
+            }
+        }
+        ranks[base + way] = (byte) (associativity - 1);
+    }
+
+    protected void promote(int set, int way) {
+        byte[] ranks = ranksOf(set);
+        int base = (set % CacheLevel.SETS_PER_CHUNK) * associativity;
+        byte rank = ranks[base + way];
+        for (int i = base; i < base + associativity; i++) {
+            if (ranks[i] < rank) {
+                ranks[i]++;
+            }
+        }
+        ranks[base + way] = 0;
+    }
+
+    @Override
+    public long getStateBytes() {
+        return (long) allocatedChunks * CacheLevel.SETS_PER_CHUNK * associativity;
+    }
+
+    @Override
+    public String getName() {
+        return "LRU";
+    }
+}
@@ -0,0 +1,17 @@
+package cache;
+
+/**
+ * Callback notified whenever a write reaches guest memory through the {@link Cache}.
+ * Used by components that keep derived copies of guest memory (e.g. decoded instructions)
+ * and must drop them when the underlying bytes change.
+ */
+public interface MemoryWriteListener {
+
+    /**
+     * Called after {@code length} bytes starting at {@code address} have been written.
+     *
+     * @param address The first guest address that was written.
+     * @param length  The number of bytes written.
+     */
+    void onMemoryWrite(long address, int length);
+}
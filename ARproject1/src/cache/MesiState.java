@@ -0,0 +1,16 @@
+package cache;
+
+/**
+ * MESI coherence state of a line in the private hierarchy of one core,
+ * as reported by {@link CoherenceBus#getState(int, long)}.
+ */
+public enum MesiState {
+    /** The core holds the only copy and it differs from the shared level. */
+    MODIFIED,
+    /** The core holds the only copy and it is clean. */
+    EXCLUSIVE,
+    /** Several cores may hold clean copies. */
+    SHARED,
+    /** The core does not hold the line. */
+    INVALID
+}
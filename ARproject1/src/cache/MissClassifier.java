@@ -0,0 +1,153 @@
+package cache;
+
+import java.util.Arrays;
+
+import utility.LongHashSet;
+import utility.LongIntHashMap;
+
+/**
+ * 3C classification of the misses of one {@link CacheLevel}. A miss to a line never accessed
+ * before is compulsory; otherwise it is a capacity miss if a fully associative LRU cache with the
+ * same number of lines would also have missed, and a conflict miss if it would have hit.
+ * <p>
+ * The first-touch set and the shadow LRU (a hash index plus an intrusive doubly linked list in
+ * int arrays) are primitive structures growing with the lines actually seen, so classification
+ * can stay on for long runs.
+ */
+public class MissClassifier {
+    private static final int NONE = -1;
+
+    private final int capacity;                     // broj linija u sjenčanom LRU-u
+    private final LongHashSet touched = new LongHashSet();
+
+    // Sjenčani potpuno asocijativni LRU: slotovi povezani u listu od najnovijeg (head) do najstarijeg (tail)
+    private final LongIntHashMap index = new LongIntHashMap();
+    private long[] lines = new long[16];
+    private int[] prev = new int[16];
+    private int[] next = new int[16];
+    private int used = 0;
+    private int head = NONE;
+    private int tail = NONE;
+
+    private long compulsoryMisses = 0;
+    private long capacityMisses = 0;
+    private long conflictMisses = 0;
+
+    /**
+     * @param capacity The number of lines of the classified level.
+     */
+    public MissClassifier(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records one demand access of the level.
+     *
+     * @param line The line number (address shifted by the line size).
+     * @param hit  Whether the real level hit.
+     */
+    public void access(long line, boolean hit) {
+        boolean firstTouch = touched.add(line);
+        boolean shadowHit = accessShadow(line);
+        if (hit) {
+            return;
+        }
+        if (firstTouch) {
+            compulsoryMisses++;
+        } else if (shadowHit) {
+            conflictMisses++;
+        } else {
+            capacityMisses++;
+        }
+    }
+
+    private boolean accessShadow(long line) {
+        int slot = index.get(line, NONE);
+        if (slot != NONE) {
+            if (slot != head) {
+                unlink(slot);
+                linkHead(slot);
+            }
+            return true;
+        }
+        if (used < capacity) {
+            if (used == lines.length) {
+                int grown = Math.min(capacity, used * 2);
+                lines = Arrays.copyOf(lines, grown);
+                prev = Arrays.copyOf(prev, grown);
+                next = Arrays.copyOf(next, grown);
+            }
+            slot = used++;
+        } else {
+            slot = tail;
+            unlink(slot);
+            index.remove(lines[slot], NONE);
+        }
+        lines[slot] = line;
+        index.put(line, slot);
+        linkHead(slot);
+        return false;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tail = prev[slot];
+        }
+    }
+
+    private void linkHead(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+
+    /**
+     * Forgets every line seen so far and resets the counters.
+     */
+    public void clear() {
+        touched.clear();
+        index.clear();
+        used = 0;
+        head = NONE;
+        tail = NONE;
+        resetStatistics();
+    }
+
+    public void resetStatistics() {
+        compulsoryMisses = 0;
+        capacityMisses = 0;
+        conflictMisses = 0;
+    }
+
+    public long getCompulsoryMisses() {
+        return compulsoryMisses;
+    }
+
+    public long getCapacityMisses() {
+        return capacityMisses;
+    }
+
+    public long getConflictMisses() {
+        return conflictMisses;
+    }
+
+    @Override
+    public String toString() {
+        return "compulsory=" + compulsoryMisses +
+                ", capacity=" + capacityMisses +
+                ", conflict=" + conflictMisses;
+    }
+}
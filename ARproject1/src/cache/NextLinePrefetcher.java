@@ -0,0 +1,50 @@
+package cache;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Tagged next-line prefetcher: a miss, or the first hit on a prefetched line, fetches the
+ * {@code degree} lines starting {@code distance} lines after the accessed one.
+ */
+public class NextLinePrefetcher implements Prefetcher {
+    private final int degree;
+    private final int distance;
+    private int lineSize;
+
+    public NextLinePrefetcher() {
+        this(1, 1);
+    }
+
+    /**
+     * @param degree   Lines fetched per trigger, at least 1.
+     * @param distance How many lines ahead the first prefetch is, at least 1.
+     */
+    public NextLinePrefetcher(int degree, int distance) {
+        if (degree < 1 || distance < 1) {
+            throw new IllegalArgumentException("Prefetch degree and distance must be positive");
+        }
+        this.degree = degree;
+        this.distance = distance;
+    }
+
+    @Override
+    public void initialize(int lineSize) {
+        this.lineSize = lineSize;
+    }
+
+    @Override
+    public void onAccess(long programCounter, long address, boolean hit, boolean prefetchHit, LongConsumer issue) {
+        if (hit && !prefetchHit) {
+            return;
+        }
+        long line = address & -lineSize;
+        for (int i = 0; i < degree; i++) {
+            issue.accept(line + (long) (distance + i) * lineSize);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "NextLine(degree=" + degree + ", distance=" + distance + ")";
+    }
+}
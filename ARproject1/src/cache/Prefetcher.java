@@ -0,0 +1,30 @@
+package cache;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Hardware prefetcher attached to one {@link CacheLevel}. The cache reports every demand access
+ * of the level; the prefetcher answers by passing the byte addresses it wants fetched to
+ * {@code issue}. Lines already present are ignored by the cache. Implementations keep their
+ * training state in primitive arrays and must not allocate per access.
+ */
+public interface Prefetcher {
+
+    /**
+     * Sizes (or resets) the prefetcher state for a level with the given line size.
+     */
+    void initialize(int lineSize);
+
+    /**
+     * Called after a demand access of the level.
+     *
+     * @param programCounter The program counter of the instruction making the access, or 0 if unknown.
+     * @param address        The byte address accessed.
+     * @param hit            True if the access hit.
+     * @param prefetchHit    True if the access was the first hit on a prefetched line.
+     * @param issue          Receives the addresses to prefetch.
+     */
+    void onAccess(long programCounter, long address, boolean hit, boolean prefetchHit, LongConsumer issue);
+
+    String getName();
+}
@@ -0,0 +1,45 @@
+package cache;
+
+/**
+ * Random replacement driven by a seeded xorshift generator, so runs are reproducible.
+ */
+public class RandomPolicy implements ReplacementPolicy {
+    private final long seed;
+    private long state;
+    private int associativity;
+
+    public RandomPolicy() {
+        this(0x9E3779B97F4A7C15L);
+    }
+
+    public RandomPolicy(long seed) {
+        this.seed = seed == 0 ? 1 : seed;
+    }
+
+    @Override
+    public void initialize(int numSets, int associativity) {
+        this.associativity = associativity;
+        this.state = seed;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+    }
+
+    @Override
+    public int selectVictim(int set) {
+        state ^= state << 13;
+        state ^= state >>> 7;
+        state ^= state << 17;
+        return (int) ((state >>> 1) % associativity);
+    }
+
+    @Override
+    public String getName() {
+        return "Random";
+    }
+}
@@ -0,0 +1,68 @@
+package cache;
+
+/**
+ * Replacement policy of one {@link CacheLevel}. The level tracks tags and validity and fills
+ * invalid ways first; the policy only orders the valid ways of a set and picks the victim
+ * when the set is full. Implementations keep their per-set state in primitive arrays sized in
+ * {@link #initialize} and must not allocate in the per-access callbacks.
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * Sizes (or resets) the policy state for a level of the given geometry.
+     */
+    void initialize(int numSets, int associativity);
+
+    /**
+     * Called when an access hits {@code way} of {@code set}.
+     */
+    void onHit(int set, int way);
+
+    /**
+     * Called after a line has been placed in {@code way} of {@code set}.
+     */
+    void onFill(int set, int way);
+
+    /**
+     * Same as {@link #onHit(int, int)}, with the address of the accessed line. {@link CacheLevel} calls
+     * this variant; policies that need to know the line, such as {@link BeladyPolicy}, override it.
+     */
+    default void onHit(int set, int way, long address) {
+        onHit(set, way);
+    }
+
+    /**
+     * Same as {@link #onFill(int, int)}, with the address of the filled line, which is not necessarily
+     * the address being accessed (prefetches, victims and write-backs fill other lines).
+     */
+    default void onFill(int set, int way, long address) {
+        onFill(set, way);
+    }
+
+    /**
+     * Chooses the way to evict from a full set.
+     */
+    int selectVictim(int set);
+
+    /**
+     * Called when a line is invalidated without being replaced.
+     */
+    default void onInvalidate(int set, int way) {
+    }
+
+    /**
+     * Tells the policy which position of a recorded {@link AccessTrace} is about to be accessed.
+     * Only offline policies such as {@link BeladyPolicy} use it.
+     */
+    default void onTracePosition(int position) {
+    }
+
+    /**
+     * Returns the heap bytes currently used by the policy state; counted by {@link CacheLevel#getStateBytes()}.
+     */
+    default long getStateBytes() {
+        return 0;
+    }
+
+    String getName();
+}
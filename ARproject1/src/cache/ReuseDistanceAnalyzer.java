@@ -0,0 +1,226 @@
+package cache;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import utility.LongIntHashMap;
+
+/**
+ * Single-pass Mattson stack-distance profiler. For every configured line size it records, per
+ * access, how many distinct lines were touched since the previous access to the same line (the
+ * reuse distance). A fully associative LRU cache of {@code C} lines hits exactly the accesses with
+ * a distance below {@code C}, so the histogram gives the miss ratio of every capacity at once.
+ * <p>
+ * Distances are counted with a Fenwick tree over access timestamps holding a 1 at the latest access
+ * of every line, which makes each access O(log n) in the number of distinct lines. Timestamps are
+ * renumbered when the tree fills up, so memory stays proportional to the number of distinct lines.
+ */
+public class ReuseDistanceAnalyzer implements CacheAccessListener {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Profile[] profiles;
+
+    /**
+     * @param lineSizes The line sizes to profile, each a power of two.
+     */
+    public ReuseDistanceAnalyzer(int... lineSizes) {
+        if (lineSizes.length == 0) {
+            throw new IllegalArgumentException("At least one line size is required");
+        }
+        profiles = new Profile[lineSizes.length];
+        for (int i = 0; i < lineSizes.length; i++) {
+            if (lineSizes[i] <= 0 || Integer.bitCount(lineSizes[i]) != 1) {
+                throw new IllegalArgumentException("Line size must be a power of two: " + lineSizes[i]);
+            }
+            profiles[i] = new Profile(lineSizes[i]);
+        }
+    }
+
+    @Override
+    public void onCacheAccess(long address, boolean write) {
+        for (Profile profile : profiles) {
+            profile.access(address);
+        }
+    }
+
+    /**
+     * Returns the fully associative LRU miss ratio (0 to 1) of a cache with the given capacity.
+     *
+     * @param lineSize      One of the profiled line sizes.
+     * @param capacityBytes The cache capacity in bytes.
+     */
+    public double getMissRatio(int lineSize, long capacityBytes) {
+        Profile profile = profile(lineSize);
+        return profile.missRatio(capacityBytes / lineSize);
+    }
+
+    /**
+     * Returns the histogram of reuse distances: element {@code d} counts the accesses that had
+     * exactly {@code d} distinct lines between them and the previous access to their line.
+     * First accesses (cold misses) are not included; see {@link #getColdMisses(int)}.
+     */
+    public long[] getHistogram(int lineSize) {
+        Profile profile = profile(lineSize);
+        return Arrays.copyOf(profile.histogram, profile.maxDistance + 1);
+    }
+
+    public long getColdMisses(int lineSize) {
+        return profile(lineSize).coldMisses;
+    }
+
+    public long getAccesses() {
+        return profiles[0].accesses;
+    }
+
+    /**
+     * Writes the miss-ratio curve as CSV with the header {@code lineSize,capacityBytes,missRatio}.
+     * For each line size there is one row per capacity (in lines) at which the curve changes,
+     * from an empty cache up to one holding every line touched; between rows the ratio is constant.
+     */
+    public void writeMissRatioCurve(Writer out) throws IOException {
+        out.write("lineSize,capacityBytes,missRatio\n");
+        for (Profile profile : profiles) {
+            long misses = profile.coldMisses;
+            for (int d = 0; d <= profile.maxDistance; d++) {
+                misses += profile.histogram[d];
+            }
+            writeRow(out, profile, 0, misses);
+            // Kapacitet od d + 1 linija pretvara u pogotke sve pristupe sa udaljenošću d
+            for (int d = 0; d <= profile.maxDistance; d++) {
+                if (profile.histogram[d] != 0) {
+                    misses -= profile.histogram[d];
+                    writeRow(out, profile, d + 1, misses);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeRow(Writer out, Profile profile, long capacityLines, long misses) throws IOException {
+        double ratio = profile.accesses > 0 ? (double) misses / profile.accesses : 0;
+        out.write(profile.lineSize + "," + capacityLines * profile.lineSize + "," + ratio + "\n");
+    }
+
+    /**
+     * Forgets every recorded access.
+     */
+    public void reset() {
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = new Profile(profiles[i].lineSize);
+        }
+    }
+
+    private Profile profile(int lineSize) {
+        for (Profile profile : profiles) {
+            if (profile.lineSize == lineSize) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Line size " + lineSize + " is not profiled");
+    }
+
+    // Stanje analize za jednu veličinu linije
+    private static final class Profile {
+        final int lineSize;
+        final int lineShift;
+        final LongIntHashMap lastAccess = new LongIntHashMap();   // linija -> vrijeme posljednjeg pristupa
+        int[] tree = new int[INITIAL_CAPACITY + 1];              // Fenwick stablo po vremenima (1-based)
+        long[] lineAtTime = new long[INITIAL_CAPACITY + 1];
+        int nextTime = 1;
+        long[] histogram = new long[64];
+        int maxDistance = -1;
+        long coldMisses = 0;
+        long accesses = 0;
+
+        Profile(int lineSize) {
+            this.lineSize = lineSize;
+            this.lineShift = Integer.numberOfTrailingZeros(lineSize);
+        }
+
+        void access(long address) {
+            long line = address >>> lineShift;
+            if (nextTime == tree.length) {
+                compact();
+            }
+            accesses++;
+            int previous = lastAccess.put(line, nextTime, 0);
+            if (previous == 0) {
+                coldMisses++;
+            } else {
+                int distance = prefixSum(nextTime - 1) - prefixSum(previous);
+                record(distance);
+                add(previous, -1);
+            }
+            add(nextTime, 1);
+            lineAtTime[nextTime] = line;
+            nextTime++;
+        }
+
+        private void record(int distance) {
+            if (distance >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, Math.max(histogram.length * 2, distance + 1));
+            }
+            histogram[distance]++;
+            if (distance > maxDistance) {
+                maxDistance = distance;
+            }
+        }
+
+        double missRatio(long capacityLines) {
+            if (accesses == 0) {
+                return 0;
+            }
+            long misses = coldMisses;
+            for (long d = Math.max(capacityLines, 0); d <= maxDistance; d++) {
+                misses += histogram[(int) d];
+            }
+            return (double) misses / accesses;
+        }
+
+        // Prenumeriše živa vremena u 1..n (redoslijed se čuva) i po potrebi udvostruči stablo
+        private void compact() {
+            int live = lastAccess.size();
+            int capacity = tree.length - 1;
+            if (live * 2 > capacity) {
+                capacity *= 2;
+            }
+            long[] lines = new long[capacity + 1];
+            int time = 0;
+            for (int t = 1; t < nextTime; t++) {
+                long line = lineAtTime[t];
+                if (lastAccess.get(line, 0) == t) {
+                    lines[++time] = line;
+                    lastAccess.put(line, time);
+                }
+            }
+            lineAtTime = lines;
+            tree = new int[capacity + 1];
+            // Fenwick stablo sa jedinicama na pozicijama 1..live, izgrađeno u O(n)
+            for (int i = 1; i <= capacity; i++) {
+                if (i <= live) {
+                    tree[i]++;
+                }
+                int parent = i + (i & -i);
+                if (parent <= capacity) {
+                    tree[parent] += tree[i];
+                }
+            }
+            nextTime = live + 1;
+        }
+
+        private void add(int index, int delta) {
+            for (int i = index; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private int prefixSum(int index) {
+            int sum = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package cache;
+
+import java.util.Arrays;
+
+/**
+ * Static re-reference interval prediction (SRRIP) with 2-bit re-reference prediction values.
+ * New lines are inserted with a "long" interval, hits predict a "near" re-reference, and the
+ * victim is a line with a "distant" prediction, ageing the whole set until one exists.
+ */
+public class SrripPolicy implements ReplacementPolicy {
+    private static final byte DISTANT = 3;
+    private static final byte LONG = 2;
+
+    private int associativity;
+    private byte[] rrpv;
+
+    @Override
+    public void initialize(int numSets, int associativity) {
+        this.associativity = associativity;
+        this.rrpv = new byte[numSets * associativity];
+        Arrays.fill(rrpv, DISTANT);
+    }
+
+    @Override
+    public long getStateBytes() {
+        return rrpv.length;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        rrpv[set * associativity + way] = 0;
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        rrpv[set * associativity + way] = LONG;
+    }
+
+    @Override
+    public int selectVictim(int set) {
+        int base = set * associativity;
+        while (true) {
+            for (int way = 0; way < associativity; way++) {
+                if (rrpv[base + way] == DISTANT) {
+                    return way;
+                }
+            }
+            for (int i = base; i < base + associativity; i++) {
+                rrpv[i]++;
+            }
+        }
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        rrpv[set * associativity + way] = DISTANT;
+    }
+
+    @Override
+    public String getName() {
+        return "SRRIP";
+    }
+}
@@ -0,0 +1,102 @@
+package cache;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Stream prefetcher tracking a fixed number of ascending or descending line streams.
+ * A miss (or first hit on a prefetched line) close to a tracked stream advances it; after two
+ * steps in the same direction the stream fetches the {@code degree} lines starting
+ * {@code distance} lines ahead of the access. Misses far from every stream replace the least
+ * recently used one.
+ */
+public class StreamPrefetcher implements Prefetcher {
+    private static final int WINDOW = 16;           // koliko linija od posljednje linije toka se još prati
+    private static final int PREFETCH_CONFIDENCE = 2;
+
+    private final int degree;
+    private final int distance;
+    private int lineShift;
+
+    private final long[] lastLines;
+    private final int[] directions;                 // +1, -1 ili 0 dok smjer nije poznat
+    private final int[] confidence;
+    private final long[] lastUse;
+    private long useClock;
+
+    public StreamPrefetcher() {
+        this(8, 2, 1);
+    }
+
+    /**
+     * @param streams  Number of streams tracked at once.
+     * @param degree   Lines fetched per trigger, at least 1.
+     * @param distance How many lines ahead the first prefetch is, at least 1.
+     */
+    public StreamPrefetcher(int streams, int degree, int distance) {
+        if (streams < 1 || degree < 1 || distance < 1) {
+            throw new IllegalArgumentException("Stream count, degree and distance must be positive");
+        }
+        this.degree = degree;
+        this.distance = distance;
+        this.lastLines = new long[streams];
+        this.directions = new int[streams];
+        this.confidence = new int[streams];
+        this.lastUse = new long[streams];
+    }
+
+    @Override
+    public void initialize(int lineSize) {
+        this.lineShift = Integer.numberOfTrailingZeros(lineSize);
+        Arrays.fill(lastUse, 0);
+        Arrays.fill(confidence, 0);
+        Arrays.fill(directions, 0);
+        useClock = 0;
+    }
+
+    @Override
+    public void onAccess(long programCounter, long address, boolean hit, boolean prefetchHit, LongConsumer issue) {
+        if (hit && !prefetchHit) {
+            return;
+        }
+        long line = address >>> lineShift;
+        int stream = -1;
+        int victim = 0;
+        for (int i = 0; i < lastLines.length; i++) {
+            long delta = line - lastLines[i];
+            if (lastUse[i] != 0 && delta != 0 && Math.abs(delta) <= WINDOW) {
+                stream = i;
+                break;
+            }
+            if (lastUse[i] < lastUse[victim]) {
+                victim = i;
+            }
+        }
+        if (stream < 0) {
+            lastLines[victim] = line;
+            directions[victim] = 0;
+            confidence[victim] = 0;
+            lastUse[victim] = ++useClock;
+            return;
+        }
+        int direction = line > lastLines[stream] ? 1 : -1;
+        if (direction == directions[stream]) {
+            confidence[stream]++;
+        } else {
+            directions[stream] = direction;
+            confidence[stream] = 1;
+        }
+        lastLines[stream] = line;
+        lastUse[stream] = ++useClock;
+        if (confidence[stream] >= PREFETCH_CONFIDENCE) {
+            for (int i = 0; i < degree; i++) {
+                issue.accept((line + (long) direction * (distance + i)) << lineShift);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Stream(streams=" + lastLines.length + ", degree=" + degree + ", distance=" + distance + ")";
+    }
+}
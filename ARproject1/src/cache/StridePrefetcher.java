@@ -0,0 +1,94 @@
+package cache;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Reference prediction table prefetcher. Accesses are grouped by the program counter of the
+ * instruction making them; once the same non-zero stride has been seen twice in a row for an
+ * instruction, each of its accesses fetches {@code address + stride * (distance + i)} for
+ * {@code i < degree}. The table is direct-mapped and indexed by the program counter.
+ */
+public class StridePrefetcher implements Prefetcher {
+    private static final long NO_PC = -1L;
+    private static final int MAX_CONFIDENCE = 3;
+    private static final int PREFETCH_CONFIDENCE = 2;
+
+    private final int degree;
+    private final int distance;
+    private final int mask;
+
+    // Tabela predviđanja: po jedan ulaz za svaki (heširani) PC
+    private final long[] programCounters;
+    private final long[] lastAddresses;
+    private final long[] strides;
+    private final byte[] confidence;
+
+    public StridePrefetcher() {
+        this(256, 1, 1);
+    }
+
+    /**
+     * @param tableEntries Number of table entries, a power of two.
+     * @param degree       Prefetches per access of a trained instruction, at least 1.
+     * @param distance     How many strides ahead the first prefetch is, at least 1.
+     */
+    public StridePrefetcher(int tableEntries, int degree, int distance) {
+        if (tableEntries <= 0 || Integer.bitCount(tableEntries) != 1) {
+            throw new IllegalArgumentException("Stride table size must be a power of two: " + tableEntries);
+        }
+        if (degree < 1 || distance < 1) {
+            throw new IllegalArgumentException("Prefetch degree and distance must be positive");
+        }
+        this.degree = degree;
+        this.distance = distance;
+        this.mask = tableEntries - 1;
+        this.programCounters = new long[tableEntries];
+        this.lastAddresses = new long[tableEntries];
+        this.strides = new long[tableEntries];
+        this.confidence = new byte[tableEntries];
+    }
+
+    @Override
+    public void initialize(int lineSize) {
+        Arrays.fill(programCounters, NO_PC);
+        Arrays.fill(confidence, (byte) 0);
+    }
+
+    @Override
+    public void onAccess(long programCounter, long address, boolean hit, boolean prefetchHit, LongConsumer issue) {
+        int entry = (int) (programCounter ^ (programCounter >>> 16)) & mask;
+        if (programCounters[entry] != programCounter) {
+            programCounters[entry] = programCounter;
+            lastAddresses[entry] = address;
+            strides[entry] = 0;
+            confidence[entry] = 0;
+            return;
+        }
+        long stride = address - lastAddresses[entry];
+        lastAddresses[entry] = address;
+        if (stride == 0) {
+            return;
+        }
+        if (stride == strides[entry]) {
+            if (confidence[entry] < MAX_CONFIDENCE) {
+                confidence[entry]++;
+            }
+        } else if (confidence[entry] > 0) {
+            confidence[entry]--;
+        } else {
+            strides[entry] = stride;
+            confidence[entry] = 1;
+        }
+        if (confidence[entry] >= PREFETCH_CONFIDENCE) {
+            for (int i = 0; i < degree; i++) {
+                issue.accept(address + strides[entry] * (distance + i));
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Stride(entries=" + (mask + 1) + ", degree=" + degree + ", distance=" + distance + ")";
+    }
+}
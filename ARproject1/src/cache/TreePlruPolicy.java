@@ -0,0 +1,71 @@
+package cache;
+
+/**
+ * Tree pseudo-LRU replacement. Each set keeps {@code associativity - 1} bits of a binary tree in
+ * one long; an access flips the bits on its path to point away from the accessed way and the
+ * victim is found by following the bits from the root. Needs a power-of-two associativity.
+ */
+public class TreePlruPolicy implements ReplacementPolicy {
+    private int associativity;
+    private long[] treeBits;            // čvorovi 1..associativity-1 (kao u binarnom hipu)
+
+    @Override
+    public void initialize(int numSets, int associativity) {
+        if (Integer.bitCount(associativity) != 1) {
+            throw new IllegalArgumentException("Tree-PLRU needs a power-of-two associativity: " + associativity);
+        }
+        this.associativity = associativity;
+        this.treeBits = new long[numSets];
+    }
+
+    @Override
+    public long getStateBytes() {
+        return (long) treeBits.length * Long.BYTES;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        touch(set, way);
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        touch(set, way);
+    }
+
+    @Override
+    public int selectVictim(int set) {
+        long bits = treeBits[set];
+        int node = 1;
+        int way = 0;
+        for (int half = associativity / 2; half >= 1; half /= 2) {
+            boolean right = (bits & (1L << node)) != 0;
+            if (right) {
+                way |= half;
+            }
+            node = 2 * node + (right ? 1 : 0);
+        }
+        return way;
+    }
+
+    private void touch(int set, int way) {
+        long bits = treeBits[set];
+        int node = 1;
+        for (int half = associativity / 2; half >= 1; half /= 2) {
+            boolean right = (way & half) != 0;
+            // Bit čvora pokazuje na suprotnu polovinu od upravo korištenog puta
+            if (right) {
+                bits &= ~(1L << node);
+            } else {
+                bits |= 1L << node;
+            }
+            node = 2 * node + (right ? 1 : 0);
+        }
+        treeBits[set] = bits;
+    }
+
+    @Override
+    public String getName() {
+        return "Tree-PLRU";
+    }
+}
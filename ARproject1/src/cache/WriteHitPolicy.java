@@ -0,0 +1,11 @@
+package cache;
+
+/**
+ * What a cache level does when a store hits one of its lines.
+ */
+public enum WriteHitPolicy {
+    /** The line is marked dirty and written to the level below only when it is evicted or flushed. */
+    WRITE_BACK,
+    /** The store is passed on to the level below immediately; lines never become dirty. */
+    WRITE_THROUGH
+}
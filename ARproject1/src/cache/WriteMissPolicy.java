@@ -0,0 +1,11 @@
+package cache;
+
+/**
+ * What a cache level does when a store misses.
+ */
+public enum WriteMissPolicy {
+    /** The line is brought into the level and the store is then handled as a hit. */
+    WRITE_ALLOCATE,
+    /** The level is bypassed and the store goes to the level below. */
+    NO_WRITE_ALLOCATE
+}
@@ -0,0 +1,88 @@
+package emulator;
+
+import processor.RunResult;
+
+/**
+ * Outcome of one program run by {@link BatchRunner}.
+ */
+public final class BatchResult {
+    private final String program;
+    private final RunResult.ExitReason exitReason;     // null ako program nije pokrenut ili je pao
+    private final long retired;
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final double averageMemoryAccessTime;
+    private final long wallNanos;
+    private final String error;
+
+    public BatchResult(String program, RunResult.ExitReason exitReason, long retired, long cacheHits, long cacheMisses,
+                       double averageMemoryAccessTime, long wallNanos, String error) {
+        this.program = program;
+        this.exitReason = exitReason;
+        this.retired = retired;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.averageMemoryAccessTime = averageMemoryAccessTime;
+        this.wallNanos = wallNanos;
+        this.error = error;
+    }
+
+    static BatchResult failed(String program, long retired, long wallNanos, String error) {
+        return new BatchResult(program, null, retired, 0, 0, 0, wallNanos, error);
+    }
+
+    public String getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns {@link RunResult.ExitReason#HALTED} if the program halted,
+     * {@link RunResult.ExitReason#INSTRUCTION_LIMIT} if it used up its instruction budget,
+     * or null if it could not be loaded or threw an exception.
+     */
+    public RunResult.ExitReason getExitReason() {
+        return exitReason;
+    }
+
+    public boolean isHalted() {
+        return exitReason == RunResult.ExitReason.HALTED;
+    }
+
+    public boolean isTimedOut() {
+        return exitReason == RunResult.ExitReason.INSTRUCTION_LIMIT;
+    }
+
+    public boolean isFailed() {
+        return exitReason == null;
+    }
+
+    public long getRetired() {
+        return retired;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public double getAverageMemoryAccessTime() {
+        return averageMemoryAccessTime;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return program + ": " + (exitReason != null ? exitReason : "FAILED (" + error + ")") + ", "
+                + retired + " instructions";
+    }
+}
@@ -0,0 +1,267 @@
+package emulator;
+
+import cache.Cache;
+import memory.Memory;
+import processor.ConsoleDevice;
+import processor.DispatchMode;
+import processor.Processor;
+import processor.RunResult;
+import utility.InstructionLoader;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many independent guest programs concurrently inside one JVM. Every program gets its own
+ * {@link Memory}, {@link Cache} and {@link Processor}, so jobs share no mutable state and the
+ * throughput scales with the number of worker threads.
+ * <p>
+ * Jobs are scheduled on a work-stealing {@link ForkJoinPool}: long and short programs mix freely
+ * and an idle worker takes queued jobs from a busy one. A program that does not halt within its
+ * instruction budget is stopped and reported as {@link RunResult.ExitReason#INSTRUCTION_LIMIT}.
+ * Every program has its own {@link ConsoleDevice}: INPUT_CHAR sees an empty input and halts the program,
+ * and OUTPUT_CHAR writes whole lines to standard output, so the output of concurrent jobs does not
+ * interleave within a line.
+ */
+public class BatchRunner {
+    private static final long BATCH_SIZE = 1_000_000;
+
+    // Ista hijerarhija kao u jednojezgarnom Emulator-u, da bi statistike bile uporedive
+    private int[] cacheSizes = {32 * 1024, 512 * 1024, 32 * 1024 * 1024};
+    private int[] associativities = {4, 8, 16};
+    private int cacheLineSize = 64;
+
+    private final int parallelism;
+    private final long instructionLimit;
+    private DispatchMode dispatchMode = DispatchMode.SWITCH;
+    private boolean translationEnabled = true;
+
+    /**
+     * @param parallelism      Number of worker threads, usually the number of host cores.
+     * @param instructionLimit Instruction budget of each program.
+     */
+    public BatchRunner(int parallelism, long instructionLimit) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (instructionLimit < 1) {
+            throw new IllegalArgumentException("Instruction limit must be positive");
+        }
+        this.parallelism = parallelism;
+        this.instructionLimit = instructionLimit;
+    }
+
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    public void setTranslationEnabled(boolean translationEnabled) {
+        this.translationEnabled = translationEnabled;
+    }
+
+    /**
+     * Sets the cache hierarchy created for every program.
+     */
+    public void setCacheGeometry(int[] cacheSizes, int[] associativities, int cacheLineSize) {
+        if (cacheSizes.length != associativities.length) {
+            throw new IllegalArgumentException("Cache sizes and associativities must have the same length");
+        }
+        this.cacheSizes = cacheSizes.clone();
+        this.associativities = associativities.clone();
+        this.cacheLineSize = cacheLineSize;
+    }
+
+    /**
+     * Returns the regular files of {@code directory}, sorted by name.
+     *
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static List<Path> listPrograms(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Runs all programs and waits for them.
+     *
+     * @return One result per program, in the order of {@code programs}.
+     */
+    public List<BatchResult> run(List<Path> programs) {
+        // asyncMode: nezavisni poslovi se uzimaju FIFO, krađa posla ostaje ista
+        ForkJoinPool pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                null, true);
+        try {
+            List<ForkJoinTask<BatchResult>> tasks = new ArrayList<>(programs.size());
+            for (Path program : programs) {
+                tasks.add(pool.submit(() -> runProgram(program)));
+            }
+            List<BatchResult> results = new ArrayList<>(programs.size());
+            for (ForkJoinTask<BatchResult> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads and runs one program on the calling thread.
+     */
+    public BatchResult runProgram(Path program) {
+        String name = program.getFileName().toString();
+        long start = System.nanoTime();
+        Memory memory = new Memory();
+        try {
+            InstructionLoader.loadProgram(memory, program);
+        } catch (IOException e) {
+            return BatchResult.failed(name, 0, System.nanoTime() - start, "Cannot read program: " + e.getMessage());
+        }
+        Cache cache = new Cache(memory, cacheSizes.length, cacheSizes, associativities, cacheLineSize);
+        Processor processor = newProcessor(program, memory, cache);
+        processor.setDispatchMode(dispatchMode);
+        processor.setTranslationEnabled(translationEnabled);
+        // Poslovi ne čitaju sa konzole host-a; standardni izlaz se samo isprazni, ne zatvara
+        ConsoleDevice console = new ConsoleDevice(Reader.nullReader(),
+                new OutputStreamWriter(System.out, Charset.defaultCharset()), true);
+        processor.setConsole(console);
+        try {
+            long remaining = instructionLimit;
+            while (processor.isRunning() && remaining > 0) {
+                RunResult result = processor.run(Math.min(BATCH_SIZE, remaining));
+                remaining -= result.getRetired();
+            }
+        } catch (RuntimeException e) {
+            return BatchResult.failed(name, processor.getInstructionsRetired(), System.nanoTime() - start, e.toString());
+        } finally {
+            console.flush();
+        }
+        RunResult.ExitReason exitReason = processor.isRunning()
+                ? RunResult.ExitReason.INSTRUCTION_LIMIT : RunResult.ExitReason.HALTED;
+        return new BatchResult(name, exitReason, processor.getInstructionsRetired(), cache.getCacheHits(),
+                cache.getCacheMisses(), cache.getAverageMemoryAccessTime(), System.nanoTime() - start, null);
+    }
+
+    /**
+     * Creates the processor that runs one program. Subclasses may return an instrumented processor.
+     *
+     * @param program The program being run.
+     * @param memory  The program's memory, already loaded.
+     * @param cache   The program's cache hierarchy.
+     */
+    protected Processor newProcessor(Path program, Memory memory, Cache cache) {
+        return new Processor(memory, cache);
+    }
+
+    /**
+     * Writes the results as CSV, one row per program.
+     */
+    public static void writeCsv(Writer out, List<BatchResult> results) throws IOException {
+        out.write("program,exitReason,instructions,cacheHits,cacheMisses,amat,wallMillis,error\n");
+        for (BatchResult result : results) {
+            out.write(csv(result.getProgram()) + ',' + exitReason(result) + ',' + result.getRetired() + ','
+                    + result.getCacheHits() + ',' + result.getCacheMisses() + ','
+                    + String.format(Locale.ROOT, "%.3f,%.3f", result.getAverageMemoryAccessTime(),
+                    result.getWallNanos() / 1e6)
+                    + ',' + (result.getError() != null ? csv(result.getError()) : "") + '\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the results as a JSON array, one object per program.
+     */
+    public static void writeJson(Writer out, List<BatchResult> results) throws IOException {
+        out.write("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            out.write("  {\"program\": " + json(result.getProgram())
+                    + ", \"exitReason\": \"" + exitReason(result) + '"'
+                    + ", \"instructions\": " + result.getRetired()
+                    + ", \"cacheHits\": " + result.getCacheHits()
+                    + ", \"cacheMisses\": " + result.getCacheMisses()
+                    + String.format(Locale.ROOT, ", \"amat\": %.3f, \"wallMillis\": %.3f",
+                    result.getAverageMemoryAccessTime(), result.getWallNanos() / 1e6)
+                    + ", \"error\": " + (result.getError() != null ? json(result.getError()) : "null")
+                    + (i + 1 < results.size() ? "},\n" : "}\n"));
+        }
+        out.write("]\n");
+        out.flush();
+    }
+
+    /**
+     * Writes the report in the format given by the file name: JSON for {@code .json}, CSV otherwise.
+     */
+    public static void writeReport(Path file, List<BatchResult> results) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                writeJson(out, results);
+            } else {
+                writeCsv(out, results);
+            }
+        }
+    }
+
+    public static void printSummary(List<BatchResult> results, double seconds) {
+        long halted = 0;
+        long timedOut = 0;
+        long failed = 0;
+        long retired = 0;
+        for (BatchResult result : results) {
+            if (result.isHalted()) {
+                halted++;
+            } else if (result.isTimedOut()) {
+                timedOut++;
+            } else {
+                failed++;
+            }
+            retired += result.getRetired();
+        }
+        System.out.println("======= Batch Report =======");
+        System.out.println("Programs: " + results.size() + " (halted " + halted + ", instruction limit " + timedOut
+                + ", failed " + failed + ")");
+        System.out.println("Instructions retired: " + retired);
+        System.out.printf("Wall time: %.3f s%n", seconds);
+        System.out.printf("MIPS: %.3f%n", seconds > 0 ? retired / seconds / 1e6 : 0);
+        System.out.println("============================");
+    }
+
+    private static String exitReason(BatchResult result) {
+        return result.isFailed() ? "FAILED" : result.getExitReason().name();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,396 @@
+package emulator;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.InclusionPolicy;
+import cache.WriteHitPolicy;
+import cache.WriteMissPolicy;
+import memory.Memory;
+import processor.Processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes incremental checkpoints of a running {@link Processor} to one file and restores them.
+ * <p>
+ * The first checkpoint is full; every later one holds the processor state, the cache contents and
+ * only the guest pages written since the previous checkpoint, as reported by the dirty page tracking
+ * of {@link Memory}. Taking a checkpoint only copies the registers and cache tags and forks the memory
+ * copy-on-write ({@link Memory#fork()}); the pages are written to disk by a background thread while
+ * the emulation continues. At most one checkpoint is in flight.
+ * <p>
+ * The file is a sequence of records, each {@code [magic][length][body][CRC32]}. Full checkpoints
+ * replace the file atomically; incremental ones are appended and their length is written last, so a
+ * crash mid-write leaves a record that {@link #restore(Path)} ignores. Once the appended records grow
+ * past {@link #COMPACTION_FACTOR} times the last full checkpoint, the next checkpoint is full again;
+ * so is the checkpoint after one that could not be written.
+ * <p>
+ * Restored caches keep their lines, dirty bits and write policies, but not the replacement order,
+ * prefetchers or statistics. Only heap memory without core views can be checkpointed.
+ */
+public class Checkpointer implements Closeable {
+    private static final int MAGIC = 0x454D434B;        // "EMCK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final byte FULL = 0;
+    private static final byte INCREMENTAL = 1;
+    private static final byte ZERO_PAGE = 0;
+    private static final byte RAW_PAGE = 1;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final byte[] ZEROES = new byte[Memory.PAGE_SIZE];
+    public static final int COMPACTION_FACTOR = 2;
+
+    private final Processor processor;
+    private final Path file;
+    private final ExecutorService writer;
+    private Future<Void> pending;
+    private long sequence = 0;
+    private volatile long fileBytes = 0;
+    private volatile long fullCheckpointBytes = 0;
+    private volatile long lastPages = 0;
+    private volatile boolean lastFull = false;
+
+    /**
+     * Starts dirty page tracking on the processor's memory. Nothing is written until the first
+     * {@link #checkpoint()}, which replaces {@code file}.
+     *
+     * @throws UnsupportedOperationException If the memory is not on the heap.
+     */
+    public Checkpointer(Processor processor, Path file) {
+        this.processor = processor;
+        this.file = file;
+        processor.getMemory().setDirtyTracking(true);
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Captures the current state and writes it in the background. Waits for the previous checkpoint
+     * first, so its errors are reported here.
+     *
+     * @throws UncheckedIOException If the previous checkpoint could not be written.
+     */
+    public void checkpoint() {
+        awaitPending();
+        Memory memory = processor.getMemory();
+        if (fullCheckpointBytes > 0 && fileBytes > COMPACTION_FACTOR * fullCheckpointBytes) {
+            // Previše inkrementalnih zapisa: sljedeći checkpoint ponovo piše sve stranice
+            memory.setDirtyTracking(true);
+        }
+        boolean full = memory.isAllDirty();
+        byte[] state;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            // Keš ide prvo: pri vraćanju se pravi prije procesora
+            writeCacheState(out, processor.getCache());
+            processor.saveState(out);
+            out.flush();
+            state = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);      // ByteArrayOutputStream ne baca
+        }
+        long[] pages = memory.takeDirtyPages();
+        // Zamrznuta kopija: emulacija nastavlja, a pisač čita stranice kakve su bile sada
+        Memory frozen = memory.fork();
+        long recordSequence = ++sequence;
+        pending = writer.submit(() -> {
+            writeCheckpoint(recordSequence, full, state, pages, frozen);
+            return null;
+        });
+    }
+
+    /**
+     * Waits until the last checkpoint is on disk. If it could not be written, the next checkpoint is full.
+     *
+     * @throws UncheckedIOException If it could not be written.
+     */
+    public void awaitPending() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a checkpoint", e);
+        } catch (ExecutionException e) {
+            // Stranice tog intervala su već uzete iz bitmape: sljedeći checkpoint mora biti pun
+            processor.getMemory().setDirtyTracking(true);
+            fileBytes = 0;
+            fullCheckpointBytes = 0;
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException("Checkpoint to " + file + " failed", (IOException) cause);
+            }
+            throw new IllegalStateException("Checkpoint to " + file + " failed", cause);
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        try {
+            awaitPending();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    public long getCheckpointCount() {
+        return sequence;
+    }
+
+    /**
+     * Returns the size of the checkpoint file after the last completed checkpoint.
+     */
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * Returns the number of pages in the last completed checkpoint.
+     */
+    public long getLastPageCount() {
+        return lastPages;
+    }
+
+    public boolean isLastFull() {
+        return lastFull;
+    }
+
+    private void writeCheckpoint(long recordSequence, boolean full, byte[] state, long[] pages, Memory frozen)
+            throws IOException {
+        if (full) {
+            // Pun checkpoint se piše u privremeni fajl i atomski zamjenjuje stari
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeRecord(channel, 0, recordSequence, FULL, state, pages, frozen);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fullCheckpointBytes = Files.size(file);
+            fileBytes = fullCheckpointBytes;
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                // Poslije pada fajl može završavati nedovršenim zapisom; on se prepisuje
+                fileBytes = writeRecord(channel, fileBytes, recordSequence, INCREMENTAL, state, pages, frozen);
+            }
+        }
+        lastPages = pages.length;
+        lastFull = full;
+    }
+
+    // Vraća poziciju kraja zapisa
+    private static long writeRecord(FileChannel channel, long start, long recordSequence, byte kind, byte[] state,
+                                    long[] pages, Memory frozen) throws IOException {
+        channel.truncate(start);
+        channel.position(start);
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER_SIZE), crc));
+        out.writeInt(MAGIC);
+        out.writeLong(0);                   // dužina se upisuje tek kada je zapis na disku
+        crc.reset();
+        out.writeInt(VERSION);
+        out.writeLong(recordSequence);
+        out.writeByte(kind);
+        out.writeInt(state.length);
+        out.write(state);
+        out.writeLong(pages.length);
+        byte[] page = new byte[Memory.PAGE_SIZE];
+        for (long virtualPageNumber : pages) {
+            frozen.readBlock(virtualPageNumber << Memory.PAGE_SHIFT, page, 0, page.length);
+            out.writeLong(virtualPageNumber);
+            if (Arrays.equals(page, ZEROES)) {
+                out.writeByte(ZERO_PAGE);
+            } else {
+                out.writeByte(RAW_PAGE);
+                out.write(page);
+            }
+        }
+        out.writeLong(crc.getValue());
+        out.flush();
+        long end = channel.position();
+        channel.force(false);
+        channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, end - start), start + Integer.BYTES);
+        channel.force(false);
+        return end;
+    }
+
+    private static void writeCacheState(DataOutputStream out, Cache cache) throws IOException {
+        if (cache == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(cache.getNumCacheLevels());
+        out.writeInt(cache.getCacheLineSize());
+        out.writeByte(cache.getInclusionPolicy().ordinal());
+        out.writeInt(cache.getMemoryLatency());
+        for (int i = 0; i < cache.getNumCacheLevels(); i++) {
+            CacheLevel level = cache.getLevel(i);
+            out.writeInt(level.getSizeBytes());
+            out.writeInt(level.getAssociativity());
+            out.writeInt(level.getLatency());
+            out.writeByte(level.getWriteHitPolicy().ordinal());
+            out.writeByte(level.getWriteMissPolicy().ordinal());
+            long[] lines = new long[level.getValidLineCount()];
+            int[] count = new int[1];
+            // Adresa linije je poravnata, pa najniži bit nosi dirty
+            level.forEachValidLine(address -> lines[count[0]++] = address | (level.isDirty(address) ? 1 : 0));
+            out.writeInt(count[0]);
+            for (int j = 0; j < count[0]; j++) {
+                out.writeLong(lines[j]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a processor from the last complete checkpoint in {@code file}: a new heap memory holding
+     * the saved pages, a cache of the saved geometry holding the saved lines, and the saved registers,
+     * flags and program counter.
+     *
+     * @throws IOException If the file holds no complete checkpoint or a record is corrupt.
+     */
+    public static Processor restore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = completeRecordsEnd(channel);
+            Memory memory = new Memory();
+            byte[] state = null;
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel.position(0)), IO_BUFFER_SIZE), crc));
+            byte[] page = new byte[Memory.PAGE_SIZE];
+            long position = 0;
+            while (position < end) {
+                in.readInt();
+                long length = in.readLong();
+                crc.reset();
+                if (in.readInt() != VERSION) {
+                    throw new IOException("Unsupported checkpoint version in " + file);
+                }
+                in.readLong();                  // redni broj
+                in.readByte();                  // pun ili inkrementalan: primjenjuju se isto
+                state = new byte[in.readInt()];
+                in.readFully(state);
+                long pages = in.readLong();
+                for (long i = 0; i < pages; i++) {
+                    long address = in.readLong() << Memory.PAGE_SHIFT;
+                    if (in.readByte() == RAW_PAGE) {
+                        in.readFully(page);
+                        memory.writeBlock(address, page, 0, page.length);
+                    } else {
+                        memory.fill(address, page.length, (byte) 0);
+                    }
+                }
+                long expected = crc.getValue();
+                if (in.readLong() != expected) {
+                    throw new IOException("Corrupt checkpoint record at offset " + position + " in " + file);
+                }
+                position += length;
+            }
+            DataInputStream stateIn = new DataInputStream(new ByteArrayInputStream(state));
+            Processor processor = new Processor(memory, readCacheState(stateIn, memory));
+            processor.loadState(stateIn);
+            return processor;
+        }
+    }
+
+    // Kraj posljednjeg potpunog zapisa; nedovršen zapis na kraju fajla se zanemaruje
+    private static long completeRecordsEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            if (header.getInt(0) != MAGIC) {
+                if (position == 0) {
+                    throw new IOException("Not a checkpoint file");
+                }
+                break;
+            }
+            long length = header.getLong(Integer.BYTES);
+            if (length <= HEADER_BYTES || position + length > size) {
+                break;
+            }
+            position += length;
+        }
+        if (position == 0) {
+            throw new IOException("No complete checkpoint");
+        }
+        return position;
+    }
+
+    private static Cache readCacheState(DataInputStream in, Memory memory) throws IOException {
+        int levels = in.readInt();
+        if (levels == 0) {
+            return null;
+        }
+        int lineSize = in.readInt();
+        InclusionPolicy inclusionPolicy = InclusionPolicy.values()[in.readByte()];
+        int memoryLatency = in.readInt();
+        int[] sizes = new int[levels];
+        int[] associativities = new int[levels];
+        int[] latencies = new int[levels];
+        WriteHitPolicy[] hitPolicies = new WriteHitPolicy[levels];
+        WriteMissPolicy[] missPolicies = new WriteMissPolicy[levels];
+        long[][] lines = new long[levels][];
+        for (int i = 0; i < levels; i++) {
+            sizes[i] = in.readInt();
+            associativities[i] = in.readInt();
+            latencies[i] = in.readInt();
+            hitPolicies[i] = WriteHitPolicy.values()[in.readByte()];
+            missPolicies[i] = WriteMissPolicy.values()[in.readByte()];
+            lines[i] = new long[in.readInt()];
+            for (int j = 0; j < lines[i].length; j++) {
+                lines[i][j] = in.readLong();
+            }
+        }
+        Cache cache = new Cache(memory, levels, sizes, associativities, lineSize, inclusionPolicy);
+        cache.setMemoryLatency(memoryLatency);
+        for (int i = 0; i < levels; i++) {
+            cache.setLatency(i, latencies[i]);
+            cache.setWritePolicy(i, hitPolicies[i], missPolicies[i]);
+            CacheLevel level = cache.getLevel(i);
+            for (long line : lines[i]) {
+                long address = line & ~1L;
+                level.fill(address);
+                if ((line & 1) != 0) {
+                    level.markDirty(address);
+                }
+            }
+        }
+        return cache;
+    }
+}
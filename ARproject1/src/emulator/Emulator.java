@@ -1,47 +1,277 @@
 package emulator;
 
+import processor.ConsoleDevice;
 import processor.Processor;
+import processor.RunResult;
 import cache.Cache;
+import cache.ReuseDistanceAnalyzer;
 import memory.Memory;
 import utility.InstructionLoader;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class Emulator {
+    private static final long FAST_BATCH_SIZE = 1_000_000;
+    private static final int[] PROFILED_LINE_SIZES = {32, 64, 128};
 
-    private static void runEmulation(Processor processor) {
-        while (processor.isRunning()) {
-            // Dohvati instrukciju iz memorije
-            long instruction = processor.fetchInstructionFromMemory(processor.getProgramCounter());
+    private final Processor processor;
+    private final EmulatorOptions options;
+    private volatile long instructionsRetired = 0;
+    private long startNanos;
+    private long startRetired;                              // > 0 poslije --resume
+    private volatile boolean finished = false;
+    private ReuseDistanceAnalyzer reuseDistanceAnalyzer;     // samo sa --mrc
+    private Checkpointer checkpointer;                      // samo sa --checkpoint
+    private long nextCheckpoint;
+
+    public Emulator(Processor processor, EmulatorOptions options) {
+        this.processor = processor;
+        this.options = options;
+        processor.setDispatchMode(options.getDispatchMode());
+        processor.setTranslationEnabled(options.isTranslationEnabled());
+        if (options.getMissRatioCurveFile() != null && processor.getCache() != null) {
+            reuseDistanceAnalyzer = new ReuseDistanceAnalyzer(PROFILED_LINE_SIZES);
+            processor.getCache().addAccessListener(reuseDistanceAnalyzer);
+        }
+        if (options.isMissClassification() && processor.getCache() != null) {
+            processor.getCache().setMissClassification(true);
+        }
+        if (options.getCheckpointFile() != null) {
+            checkpointer = new Checkpointer(processor, Paths.get(options.getCheckpointFile()));
+            nextCheckpoint = processor.getInstructionsRetired() + options.getCheckpointEvery();
+        }
+    }
+
+    /**
+     * Runs the loaded program in the configured {@link RunMode} until HALT
+     * and prints the run report.
+     */
+    public void runEmulation() {
+        // Na signal (Ctrl+C, SIGTERM) ispiši stanje procesora i izvještaj
+        Thread shutdownHook = new Thread(() -> {
+            if (!finished) {
+                System.out.println("\nEmulation interrupted.");
+                processor.printProcessorState();
+                printReport();
+                processor.getConsole().flush();
+                processor.getMemory().sync();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
 
-            try{
-                Thread.sleep(1000);
-            }catch (InterruptedException ex){
-                ex.printStackTrace();
+        startNanos = System.nanoTime();
+        startRetired = processor.getInstructionsRetired();
+        switch (options.getRunMode()) {
+            case FAST:
+                runFast();
+                break;
+            case THROTTLED:
+                runThrottled();
+                break;
+            case STEP:
+                runStepByStep();
+                break;
+        }
+        finished = true;
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+
+        processor.printProcessorState();
+        processor.getBlockCache().blockCacheMonitor();
+        if (options.isMissClassification() && processor.getCache() != null) {
+            processor.getCache().cacheMonitor();
+        }
+        printReport();
+        writeMissRatioCurve();
+        finishCheckpoints();
+        // Fajlovi konzole se zatvaraju, konzola host-a se samo isprazni
+        processor.getConsole().close();
+        // Sačuvaj memoriju gosta (samo kod --ram-file)
+        processor.getMemory().sync();
+    }
+
+    private void runFast() {
+        // Serija se skraćuje do sljedećeg višekratnika --print-every, i kada je prethodnu prekinuo I/O događaj
+        long printEvery = options.getPrintEvery();
+        long nextPrint = printEvery;
+        while (processor.isRunning()) {
+            long batch = printEvery > 0 ? Math.min(FAST_BATCH_SIZE, nextPrint - instructionsRetired) : FAST_BATCH_SIZE;
+            RunResult result = processor.run(batch);
+            instructionsRetired += result.getRetired();
+            if (printEvery > 0 && instructionsRetired >= nextPrint) {
+                if (processor.isRunning()) {
+                    processor.printProcessorState();
+                }
+                nextPrint += printEvery;
             }
+            maybeCheckpoint();
+        }
+    }
 
-            // Dekodiraj instrukciju
-            long decodedInstruction = processor.decodeInstruction(instruction);
+    private void runThrottled() {
+        double nanosPerInstruction = TimeUnit.SECONDS.toNanos(1) / options.getInstructionsPerSecond();
+        while (processor.isRunning()) {
+            // Čekaj dok ne dođe vrijeme za sljedeću instrukciju
+            long due = startNanos + (long) (instructionsRetired * nanosPerInstruction);
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
 
-            // Izvrši dekodiranu instrukciju
-            processor.executeInstruction(decodedInstruction);
+            // Dohvati, dekodiraj i izvrši instrukciju (dekodirani blokovi se čuvaju u kešu)
+            processor.step();
+            instructionsRetired++;
 
             // Ispisi trenutno stanje procesora
+            if (options.getPrintEvery() > 0 && instructionsRetired % options.getPrintEvery() == 0) {
+                processor.printProcessorState();
+            }
+            maybeCheckpoint();
+        }
+    }
+
+    private void runStepByStep() {
+        // Komande i INPUT_CHAR gosta dijele isti bafer standardnog ulaza
+        ConsoleDevice console = ConsoleDevice.system();
+        System.out.println("Press Enter to execute the next instruction, 'q' to quit.");
+        while (processor.isRunning()) {
+            String line;
+            try {
+                line = console.readLine();
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                break;
+            }
+            if (line == null || line.trim().equalsIgnoreCase("q")) {
+                break;
+            }
+            processor.step();
+            instructionsRetired++;
             processor.printProcessorState();
+            maybeCheckpoint();
+        }
+    }
+
+    private void maybeCheckpoint() {
+        if (checkpointer != null && processor.getInstructionsRetired() >= nextCheckpoint) {
+            checkpointer.checkpoint();
+            nextCheckpoint = processor.getInstructionsRetired() + options.getCheckpointEvery();
+        }
+    }
+
+    // Posljednji checkpoint opisuje kraj izvršavanja
+    private void finishCheckpoints() {
+        if (checkpointer == null) {
+            return;
+        }
+        try {
+            checkpointer.checkpoint();
+            checkpointer.close();
+            System.out.println(checkpointer.getCheckpointCount() + " checkpoints written to "
+                    + options.getCheckpointFile() + " (" + checkpointer.getFileBytes() / 1024 + " KiB)");
+        } catch (UncheckedIOException e) {
+            System.out.println("Could not write the checkpoint: " + e.getMessage());
         }
     }
 
+    private void printReport() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        // Brojač procesora je tačan i kada signal prekine seriju u toku; instrukcije vraćene
+        // iz checkpoint-a nisu izvršene u ovom pokretanju i ne ulaze u MIPS
+        long retired = processor.getInstructionsRetired() - startRetired;
+        double mips = seconds > 0 ? retired / seconds / 1e6 : 0;
+        System.out.println("======= Run Report =======");
+        System.out.println("Instructions retired: " + retired);
+        if (startRetired > 0) {
+            System.out.println("Instructions retired since the program start: " + processor.getInstructionsRetired());
+        }
+        System.out.printf("Wall time: %.3f s%n", seconds);
+        System.out.printf("MIPS: %.3f%n", mips);
+        Memory memory = processor.getMemory();
+        System.out.printf("Guest memory (%s): %d KiB resident / %d KiB reserved%n",
+                memory.getBackend(), memory.getResidentBytes() / 1024, memory.getReservedBytes() / 1024);
+        System.out.println("==========================");
+    }
+
+    private void writeMissRatioCurve() {
+        if (reuseDistanceAnalyzer == null) {
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(options.getMissRatioCurveFile()))) {
+            reuseDistanceAnalyzer.writeMissRatioCurve(out);
+            System.out.println("Miss-ratio curve (" + reuseDistanceAnalyzer.getAccesses() + " accesses) written to "
+                    + options.getMissRatioCurveFile());
+        } catch (IOException e) {
+            System.out.println("Could not write the miss-ratio curve: " + e.getMessage());
+        }
+    }
+
+    public long getInstructionsRetired() {
+        return instructionsRetired;
+    }
+
     public static void main(String[] args) {
 
-        if (args.length < 1) {
-            System.out.println("Usage: java YourMainClass <path_to_instruction_file>");
+        EmulatorOptions options;
+        try {
+            options = EmulatorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(EmulatorOptions.usage());
             System.exit(1);
+            return;
+        }
+
+        if (options.getBatchDirectory() != null) {
+            runBatch(options);
+            return;
+        }
+
+        if (options.isResume()) {
+            Processor processor;
+            try {
+                processor = Checkpointer.restore(Paths.get(options.getCheckpointFile()));
+            } catch (IOException e) {
+                System.out.println("Cannot resume from " + options.getCheckpointFile() + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            System.out.println("Resumed from " + options.getCheckpointFile() + " at "
+                    + processor.getInstructionsRetired() + " instructions");
+            processor.setConsole(openConsole(options));
+            new Emulator(processor, options).runEmulation();
+            return;
         }
 
-        String filePath = args[0];
+        String filePath = options.getProgramPath();
 
-        Memory memory = new Memory();
-        InstructionLoader.loadProgram(memory, /*"C:" + File.separator + "Users" + File.separator + "AT95" + File.separator + "IdeaProjects" + File.separator + "ARproject1" + File.separator + "src" + File.separator + "utility" + File.separator + "instructions.txt"*/filePath);
+        Memory memory;
+        if (options.getRamFile() != null) {
+            memory = new Memory(Paths.get(options.getRamFile()), Memory.DEFAULT_OFF_HEAP_RESERVATION);
+        } else {
+            memory = new Memory(options.getMemoryBackend());
+        }
+        if (memory.isRestored()) {
+            System.out.println("Guest memory remapped from " + options.getRamFile());
+        } else if (filePath == null) {
+            System.out.println("No program given and " + options.getRamFile() + " holds no saved image.");
+            System.exit(1);
+            return;
+        } else {
+            InstructionLoader.loadProgram(memory, /*"C:" + File.separator + "Users" + File.separator + "AT95" + File.separator + "IdeaProjects" + File.separator + "ARproject1" + File.separator + "src" + File.separator + "utility" + File.separator + "instructions.txt"*/filePath);
+        }
+        if (options.getCores() > 1) {
+            runMultiCore(memory, options.getCores());
+            return;
+        }
         // Parametri za keš: 3 nivoa, veličine keša, asocijativnost, veličina linije
         int numCacheLevels = 3;
         int[] cacheSizes = {32 * 1024, 512 * 1024, 32 * 1024 * 1024};
@@ -51,6 +281,60 @@ public class Emulator {
         // Pravimo instancu keša sa konkretnim parametrima
         Cache cache = new Cache(memory, numCacheLevels, cacheSizes, associativities, cacheLineSize);
         Processor processor = new Processor(memory, cache);
-        runEmulation(processor);
+        processor.setConsole(openConsole(options));
+        new Emulator(processor, options).runEmulation();
+    }
+
+    // Uređaj za INPUT_CHAR/OUTPUT_CHAR prema --console-in i --console-out
+    private static ConsoleDevice openConsole(EmulatorOptions options) {
+        if (options.getConsoleInput() == null && options.getConsoleOutput() == null) {
+            return ConsoleDevice.system();
+        }
+        try {
+            return ConsoleDevice.open(options.getConsoleInput() != null ? Paths.get(options.getConsoleInput()) : null,
+                    options.getConsoleOutput() != null ? Paths.get(options.getConsoleOutput()) : null);
+        } catch (IOException e) {
+            System.out.println("Cannot open the console file: " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    private static void runMultiCore(Memory memory, int cores) {
+        MultiCoreEmulator emulator = new MultiCoreEmulator(memory, cores);
+        long start = System.nanoTime();
+        try {
+            emulator.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("\nEmulation interrupted.");
+        }
+        emulator.printReport((System.nanoTime() - start) / 1e9);
+        memory.sync();
+    }
+
+    private static void runBatch(EmulatorOptions options) {
+        List<Path> programs;
+        try {
+            programs = BatchRunner.listPrograms(Paths.get(options.getBatchDirectory()));
+        } catch (IOException e) {
+            System.out.println("Cannot list " + options.getBatchDirectory() + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        BatchRunner runner = new BatchRunner(options.getJobs(), options.getInstructionLimit());
+        runner.setDispatchMode(options.getDispatchMode());
+        runner.setTranslationEnabled(options.isTranslationEnabled());
+        long start = System.nanoTime();
+        List<BatchResult> results = runner.run(programs);
+        BatchRunner.printSummary(results, (System.nanoTime() - start) / 1e9);
+        if (options.getReportFile() != null) {
+            try {
+                BatchRunner.writeReport(Paths.get(options.getReportFile()), results);
+                System.out.println("Batch report written to " + options.getReportFile());
+            } catch (IOException e) {
+                System.out.println("Could not write the batch report: " + e.getMessage());
+            }
+        }
     }
 }
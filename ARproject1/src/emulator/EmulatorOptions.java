@@ -0,0 +1,275 @@
+package emulator;
+
+import memory.MemoryBackend;
+import processor.DispatchMode;
+
+/**
+ * Command line options of {@link Emulator}.
+ *
+ * Usage: {@code java emulator.Emulator <program> [--mode=fast|throttled|step] [--ips=N]
+ * [--print-every=N] [--dispatch=switch|table] [--no-translate] [--memory=heap|off-heap] [--ram-file=PATH]
+ * [--mrc=PATH] [--classify-misses] [--cores=N] [--checkpoint=PATH] [--checkpoint-every=N] [--resume]
+ * [--console-in=PATH] [--console-out=PATH]}<br>
+ * Batch usage: {@code java emulator.Emulator --batch=DIR [--jobs=N] [--limit=N] [--report=PATH]}
+ *
+ * With {@code --ram-file} guest memory is a memory-mapped file; if the file already holds a synced
+ * image the program is not loaded again and the program path may be omitted.
+ *
+ * With {@code --mrc} the cache access stream is profiled for reuse distances and the fully associative
+ * LRU miss-ratio curve is written to the given CSV file when the run ends. With {@code --classify-misses}
+ * every cache level splits its misses into compulsory, capacity and conflict misses.
+ * With {@code --cores} greater than 1 the program runs on a {@link MultiCoreEmulator} at full speed.
+ * With {@code --batch} every file of the directory is run by a {@link BatchRunner} on {@code --jobs} threads
+ * (default: host cores), each for at most {@code --limit} instructions; the results go to the CSV or JSON
+ * file given by {@code --report}.
+ * With {@code --checkpoint} an incremental checkpoint is written to the file every {@code --checkpoint-every}
+ * instructions and when the run ends; {@code --resume} continues from that file instead of loading a program.
+ * With {@code --console-in} and {@code --console-out} INPUT_CHAR reads from and OUTPUT_CHAR writes to files
+ * instead of the host console.
+ *
+ * Without any option the emulator behaves as before: one instruction per second with the
+ * processor state printed after every instruction.
+ */
+public class EmulatorOptions {
+    private String programPath;
+    private RunMode runMode = RunMode.THROTTLED;
+    private double instructionsPerSecond = 1;
+    private long printEvery = 1;            // 0 - stanje se ispisuje samo na HALT ili signal
+    private DispatchMode dispatchMode = DispatchMode.SWITCH;
+    private boolean translationEnabled = true;
+    private MemoryBackend memoryBackend = MemoryBackend.HEAP;
+    private String ramFile;
+    private String missRatioCurveFile;
+    private boolean missClassification = false;
+    private int cores = 1;
+    private String batchDirectory;
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    private long instructionLimit = 100_000_000;
+    private String reportFile;
+    private String checkpointFile;
+    private long checkpointEvery = 100_000_000;
+    private boolean resume = false;
+    private String consoleInput;
+    private String consoleOutput;
+
+    /**
+     * Parses the command line.
+     *
+     * @param args The arguments passed to {@code main}.
+     * @return The parsed options.
+     * @throws IllegalArgumentException If an option is unknown or has an invalid value.
+     */
+    public static EmulatorOptions parse(String[] args) {
+        EmulatorOptions options = new EmulatorOptions();
+        boolean printEverySet = false;
+        boolean modeSet = false;
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                if (options.programPath != null) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                options.programPath = arg;
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+            String value = eq < 0 ? null : arg.substring(eq + 1);
+            switch (name) {
+                case "mode":
+                    options.runMode = RunMode.valueOf(requireValue(name, value).toUpperCase());
+                    modeSet = true;
+                    break;
+                case "ips":
+                    options.instructionsPerSecond = Double.parseDouble(requireValue(name, value));
+                    if (options.instructionsPerSecond <= 0) {
+                        throw new IllegalArgumentException("--ips must be positive");
+                    }
+                    break;
+                case "print-every":
+                    options.printEvery = Long.parseLong(requireValue(name, value));
+                    printEverySet = true;
+                    break;
+                case "dispatch":
+                    options.dispatchMode = DispatchMode.valueOf(requireValue(name, value).toUpperCase());
+                    break;
+                case "no-translate":
+                    options.translationEnabled = false;
+                    break;
+                case "memory":
+                    options.memoryBackend = MemoryBackend.valueOf(requireValue(name, value).toUpperCase().replace('-', '_'));
+                    break;
+                case "ram-file":
+                    options.ramFile = requireValue(name, value);
+                    options.memoryBackend = MemoryBackend.MAPPED_FILE;
+                    break;
+                case "cores":
+                    options.cores = Integer.parseInt(requireValue(name, value));
+                    if (options.cores < 1) {
+                        throw new IllegalArgumentException("--cores must be positive");
+                    }
+                    break;
+                case "batch":
+                    options.batchDirectory = requireValue(name, value);
+                    break;
+                case "jobs":
+                    options.jobs = Integer.parseInt(requireValue(name, value));
+                    if (options.jobs < 1) {
+                        throw new IllegalArgumentException("--jobs must be positive");
+                    }
+                    break;
+                case "limit":
+                    options.instructionLimit = Long.parseLong(requireValue(name, value));
+                    if (options.instructionLimit < 1) {
+                        throw new IllegalArgumentException("--limit must be positive");
+                    }
+                    break;
+                case "report":
+                    options.reportFile = requireValue(name, value);
+                    break;
+                case "checkpoint":
+                    options.checkpointFile = requireValue(name, value);
+                    break;
+                case "checkpoint-every":
+                    options.checkpointEvery = Long.parseLong(requireValue(name, value));
+                    if (options.checkpointEvery < 1) {
+                        throw new IllegalArgumentException("--checkpoint-every must be positive");
+                    }
+                    break;
+                case "console-in":
+                    options.consoleInput = requireValue(name, value);
+                    break;
+                case "console-out":
+                    options.consoleOutput = requireValue(name, value);
+                    break;
+                case "resume":
+                    options.resume = true;
+                    break;
+                case "classify-misses":
+                    options.missClassification = true;
+                    break;
+                case "mrc":
+                    options.missRatioCurveFile = requireValue(name, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.memoryBackend == MemoryBackend.MAPPED_FILE && options.ramFile == null) {
+            throw new IllegalArgumentException("--memory=mapped-file needs --ram-file");
+        }
+        if (options.resume && options.checkpointFile == null) {
+            throw new IllegalArgumentException("--resume needs --checkpoint");
+        }
+        if (options.checkpointFile != null && (options.memoryBackend != MemoryBackend.HEAP || options.cores > 1)) {
+            throw new IllegalArgumentException("--checkpoint needs single-core heap memory");
+        }
+        if (options.batchDirectory != null && options.programPath != null) {
+            throw new IllegalArgumentException("--batch runs a directory and takes no program path");
+        }
+        if (options.programPath == null && options.ramFile == null && options.batchDirectory == null
+                && !options.resume) {
+            throw new IllegalArgumentException("Missing program path");
+        }
+        // Brzi režimi po defaultu ispisuju stanje samo na kraju
+        if (modeSet && !printEverySet) {
+            options.printEvery = options.runMode == RunMode.STEP ? 1 : 0;
+        }
+        return options;
+    }
+
+    private static String requireValue(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Option --" + name + " needs a value");
+        }
+        return value;
+    }
+
+    public static String usage() {
+        return "Usage: java emulator.Emulator <path_to_instruction_file> [--mode=fast|throttled|step] [--ips=N]"
+                + " [--print-every=N] [--dispatch=switch|table] [--no-translate] [--memory=heap|off-heap]"
+                + " [--ram-file=PATH] [--mrc=PATH] [--classify-misses] [--cores=N]"
+                + " [--checkpoint=PATH] [--checkpoint-every=N] [--resume] [--console-in=PATH] [--console-out=PATH]"
+                + System.lineSeparator()
+                + "       java emulator.Emulator --batch=DIR [--jobs=N] [--limit=N] [--report=PATH]";
+    }
+
+    public String getProgramPath() {
+        return programPath;
+    }
+
+    public RunMode getRunMode() {
+        return runMode;
+    }
+
+    public double getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    public long getPrintEvery() {
+        return printEvery;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public boolean isTranslationEnabled() {
+        return translationEnabled;
+    }
+
+    public MemoryBackend getMemoryBackend() {
+        return memoryBackend;
+    }
+
+    public String getRamFile() {
+        return ramFile;
+    }
+
+    public String getMissRatioCurveFile() {
+        return missRatioCurveFile;
+    }
+
+    public boolean isMissClassification() {
+        return missClassification;
+    }
+
+    public int getCores() {
+        return cores;
+    }
+
+    public String getBatchDirectory() {
+        return batchDirectory;
+    }
+
+    public int getJobs() {
+        return jobs;
+    }
+
+    public long getInstructionLimit() {
+        return instructionLimit;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public long getCheckpointEvery() {
+        return checkpointEvery;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public String getConsoleInput() {
+        return consoleInput;
+    }
+
+    public String getConsoleOutput() {
+        return consoleOutput;
+    }
+}
@@ -0,0 +1,136 @@
+package emulator;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.CoherenceBus;
+import memory.Memory;
+import processor.Processor;
+
+/**
+ * Runs several {@link Processor} cores on one guest memory, each core on its own host thread.
+ * Every core has private L1/L2 caches kept coherent by a MESI {@link CoherenceBus}; the L3 and
+ * memory are shared. All cores start at address 0 with their core index in the last general
+ * purpose register, so one program can split its work by core.
+ * <p>
+ * Each core sees memory through its own view (private TLB). Decoded instruction blocks are cached
+ * per core, so code must not be modified by another core while it runs.
+ */
+public class MultiCoreEmulator {
+    private static final long BATCH_SIZE = 100_000;
+
+    // Privatni L1/L2 i dijeljeni L3, iste veličine kao jednojezgarna konfiguracija Emulator-a
+    private static final int[] PRIVATE_CACHE_SIZES = {32 * 1024, 512 * 1024};
+    private static final int[] PRIVATE_ASSOCIATIVITIES = {4, 8};
+    private static final int SHARED_CACHE_SIZE = 32 * 1024 * 1024;
+    private static final int SHARED_ASSOCIATIVITY = 16;
+    private static final int CACHE_LINE_SIZE = 64;
+
+    private final Processor[] processors;
+    private final CoherenceBus bus;
+
+    public MultiCoreEmulator(Memory memory, int cores) {
+        this(memory, cores, PRIVATE_CACHE_SIZES, PRIVATE_ASSOCIATIVITIES, SHARED_CACHE_SIZE, SHARED_ASSOCIATIVITY,
+                CACHE_LINE_SIZE);
+    }
+
+    /**
+     * Creates the cores, their private caches and the shared last level.
+     *
+     * @param memory                 The guest memory, already holding the program.
+     * @param cores                  Number of cores, from 1 to {@link CoherenceBus#MAX_CORES}.
+     * @param privateSizes           Sizes of the private levels of each core.
+     * @param privateAssociativities Associativities of the private levels.
+     * @param sharedSize             Size of the shared last level.
+     * @param sharedAssociativity    Associativity of the shared last level.
+     * @param lineSize               Line size of every level.
+     */
+    public MultiCoreEmulator(Memory memory, int cores, int[] privateSizes, int[] privateAssociativities,
+                             int sharedSize, int sharedAssociativity, int lineSize) {
+        if (cores < 1 || cores > CoherenceBus.MAX_CORES) {
+            throw new IllegalArgumentException("Core count must be between 1 and " + CoherenceBus.MAX_CORES);
+        }
+        CacheLevel sharedLevel = new CacheLevel(privateSizes.length, sharedSize, sharedAssociativity, lineSize);
+        this.bus = new CoherenceBus(sharedLevel, lineSize);
+        this.processors = new Processor[cores];
+        for (int core = 0; core < cores; core++) {
+            Memory view = core == 0 ? memory : memory.newCoreView();
+            Cache cache = new Cache(view, privateSizes.length, privateSizes, privateAssociativities, lineSize);
+            bus.attach(cache);
+            Processor processor = new Processor(view, cache);
+            processor.generalPurposeRegisters[processor.getNUM_GENERAL_PURPOSE_REGISTERS() - 1] = core;
+            processors[core] = processor;
+        }
+    }
+
+    /**
+     * Runs every core on its own thread until all of them halt.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting; the cores are halted.
+     */
+    public void run() throws InterruptedException {
+        run(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs every core on its own thread until it halts or retires {@code instructionsPerCore}
+     * instructions.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting; the cores are halted.
+     */
+    public void run(long instructionsPerCore) throws InterruptedException {
+        Thread[] threads = new Thread[processors.length];
+        for (int core = 0; core < processors.length; core++) {
+            Processor processor = processors[core];
+            threads[core] = new Thread(() -> {
+                long remaining = instructionsPerCore;
+                while (processor.isRunning() && remaining > 0) {
+                    remaining -= processor.run(Math.min(BATCH_SIZE, remaining)).getRetired();
+                }
+            }, "core-" + core);
+            threads[core].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Processor processor : processors) {
+                processor.halt();
+            }
+            throw e;
+        }
+    }
+
+    public long getInstructionsRetired() {
+        long retired = 0;
+        for (Processor processor : processors) {
+            retired += processor.getInstructionsRetired();
+        }
+        return retired;
+    }
+
+    public int getCoreCount() {
+        return processors.length;
+    }
+
+    public Processor getProcessor(int core) {
+        return processors[core];
+    }
+
+    public CoherenceBus getBus() {
+        return bus;
+    }
+
+    public void printReport(double seconds) {
+        long retired = getInstructionsRetired();
+        System.out.println("======= Multi-core Run Report =======");
+        for (int core = 0; core < processors.length; core++) {
+            System.out.println("Core " + core + ": " + processors[core].getInstructionsRetired() + " instructions");
+        }
+        System.out.println("Instructions retired: " + retired);
+        System.out.printf("Wall time: %.3f s%n", seconds);
+        System.out.printf("MIPS: %.3f%n", seconds > 0 ? retired / seconds / 1e6 : 0);
+        bus.coherenceMonitor();
+        System.out.println("=====================================");
+    }
+}
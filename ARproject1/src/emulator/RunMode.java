@@ -0,0 +1,13 @@
+package emulator;
+
+/**
+ * How {@link Emulator} drives the processor.
+ */
+public enum RunMode {
+    /** As fast as possible, whole basic blocks at a time (with translation of hot blocks). */
+    FAST,
+    /** Paced to a target number of instructions per second. */
+    THROTTLED,
+    /** One instruction per Enter key press, printing the processor state after each one. */
+    STEP
+}
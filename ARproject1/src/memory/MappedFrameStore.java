@@ -0,0 +1,145 @@
+package memory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Guest page frames backed by a sparse file that is memory-mapped slab by slab, so the OS pages
+ * guest memory in and out on demand. Frame {@code n} lives at file offset {@code n * PAGE_SIZE}.
+ * The virtual page to frame mapping is kept in a sidecar index file ({@code <file>.index}) written
+ * by {@link #sync}, which lets a later run remap the image instead of reloading the program.
+ */
+public class MappedFrameStore extends OffHeapFrameStore {
+    public static final int FRAMES_PER_MAPPING = 16384;                    // 64 MiB po mapiranju
+    private static final int INDEX_MAGIC = 0x41524D49;                       // "ARMI"
+
+    private final Path file;
+    private final Path indexFile;
+    private final FileChannel channel;
+
+    /**
+     * Opens (or creates) the backing file. Frames beyond the last synced index are discarded,
+     * so they read as zero when they are allocated again.
+     *
+     * @param file          The backing file.
+     * @param reservedBytes Upper bound of guest physical memory (the largest file size).
+     */
+    public MappedFrameStore(Path file, long reservedBytes) {
+        super(reservedBytes, FRAMES_PER_MAPPING);
+        this.file = file;
+        this.indexFile = file.resolveSibling(file.getFileName() + ".index");
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] index = readIndex();
+            long frames = 0;
+            if (index != null) {
+                for (int i = 1; i < index.length; i += 2) {
+                    frames = Math.max(frames, index[i] + 1);
+                }
+            }
+            if (channel.size() > frames * Memory.PAGE_SIZE) {
+                // Još ništa nije mapirano, pa je skraćivanje bezbjedno
+                channel.truncate(frames * Memory.PAGE_SIZE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open guest memory file " + file, e);
+        }
+    }
+
+    @Override
+    protected ByteBuffer commitSlab(int slabIndex, int slabBytes) {
+        try {
+            // Mapiranje iza kraja fajla ga proširuje (rijetki fajl - bez zauzimanja diska)
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) slabIndex * slabBytes, slabBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map guest memory file " + file, e);
+        }
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        try {
+            // Stara mapiranja se više ne koriste; nove stranice moraju čitati nule
+            channel.truncate(0);
+            Files.deleteIfExists(indexFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reset guest memory file " + file, e);
+        }
+    }
+
+    /**
+     * Reads the index written by the last {@link #sync}.
+     *
+     * @return Pairs {@code virtualPageNumber, frameIndex}, or null if there is no index.
+     */
+    long[] readIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                throw new IOException("Not a guest memory index: " + indexFile);
+            }
+            int count = in.readInt();
+            long[] entries = new long[count * 2];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = in.readLong();
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Flushes every dirty mapped page to the file and then atomically replaces the index.
+     *
+     * @param entries Pairs {@code virtualPageNumber, frameIndex}; only the first {@code count} pairs are used.
+     * @param count   Number of pairs.
+     */
+    void sync(long[] entries, int count) {
+        for (ByteBuffer slab : getSlabs()) {
+            if (slab != null) {
+                ((MappedByteBuffer) slab).force();
+            }
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(count);
+                for (int i = 0; i < count * 2; i++) {
+                    out.writeLong(entries[i]);
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write guest memory index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Closes the file channel; existing mappings stay valid until they are collected.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -1,30 +1,417 @@
 package memory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public class Memory {
-    
-    private static Map<Long, MemoryPage> pageTableLevel4 = new HashMap<>(); // prebaci je na 'static' 15.02.2024
+
+    // Parametri hijerarhijske tabele stranica (4 nivoa po 9 bita + 12 bita offseta)
+    public static final int PAGE_SHIFT = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;   // 4 KiB
+    private static final int LEVEL_BITS = 9;
+    private static final int ENTRIES_PER_TABLE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = ENTRIES_PER_TABLE - 1;
+    // Broj virtuelne stranice: 36 bita koje tabela stranica koristi (4 x 9)
+    private static final long VIRTUAL_PAGE_MASK = (1L << (4 * LEVEL_BITS)) - 1;
+
+    // Podrazumijevani TLB: 64 ulaza, 4-struko asocijativan
+    public static final int DEFAULT_TLB_ENTRIES = 64;
+    public static final int DEFAULT_TLB_ASSOCIATIVITY = 4;
+
+    // Podrazumijevana rezervacija za OFF_HEAP i MAPPED_FILE backend: 4 GiB gostujuće fizičke memorije
+    public static final long DEFAULT_OFF_HEAP_RESERVATION = 4L << 30;
+
+    // Radix tabela stranica: pageTableLevel4[l4][l3][l2][l1] -> okvir (stranica) od 4 KiB.
+    // Tabele nižih nivoa i okviri se alociraju tek pri prvom upisu, pa memorija hosta raste
+    // sa radnim skupom gosta, a ne sa opsegom adresa.
+    private final AddressSpace space;   // dijele ga svi pogledi (jezgra) iste memorije
+    private final Tlb tlb;              // null ako je TLB isključen
+    private final MemoryBackend backend;
+    private final OffHeapFrameStore offHeapFrames;     // null za HEAP backend
+    private boolean restored;           // stranice su učitane iz postojećeg fajla
 
     // Constuctor
     public Memory() {
-        initializeMemory();
+        this(DEFAULT_TLB_ENTRIES, DEFAULT_TLB_ASSOCIATIVITY);
+    }
+
+    public Memory(MemoryBackend backend) {
+        this(backend, DEFAULT_OFF_HEAP_RESERVATION, DEFAULT_TLB_ENTRIES, DEFAULT_TLB_ASSOCIATIVITY);
+    }
+
+    /**
+     * Creates a memory with a software TLB of the given geometry.
+     *
+     * @param tlbEntries       Number of TLB entries (power of two), or 0 to disable the TLB.
+     * @param tlbAssociativity Entries per TLB set; 1 is direct-mapped.
+     */
+    public Memory(int tlbEntries, int tlbAssociativity) {
+        this(MemoryBackend.HEAP, DEFAULT_OFF_HEAP_RESERVATION, tlbEntries, tlbAssociativity);
+    }
+
+    /**
+     * Creates a memory with the given frame backend and TLB geometry.
+     *
+     * @param backend          Where guest page frames are stored.
+     * @param reservedBytes    Guest physical memory reserved by the {@link MemoryBackend#OFF_HEAP} backend;
+     *                         ignored for {@link MemoryBackend#HEAP}.
+     * @param tlbEntries       Number of TLB entries (power of two), or 0 to disable the TLB.
+     * @param tlbAssociativity Entries per TLB set; 1 is direct-mapped.
+     */
+    public Memory(MemoryBackend backend, long reservedBytes, int tlbEntries, int tlbAssociativity) {
+        this(backend, backend == MemoryBackend.OFF_HEAP ? new OffHeapFrameStore(reservedBytes) : null,
+                tlbEntries, tlbAssociativity);
+        if (backend == MemoryBackend.MAPPED_FILE) {
+            throw new IllegalArgumentException("A file-backed memory needs a file: use Memory(Path, long)");
+        }
+    }
+
+    /**
+     * Creates a memory whose frames are backed by a memory-mapped file. If the file was synced
+     * by an earlier run, its pages are remapped at their old virtual addresses and
+     * {@link #isRestored()} returns true.
+     *
+     * @param backingFile   The guest memory image; created if missing.
+     * @param reservedBytes Upper bound of guest physical memory (the largest file size).
+     */
+    public Memory(Path backingFile, long reservedBytes) {
+        this(MemoryBackend.MAPPED_FILE, new MappedFrameStore(backingFile, reservedBytes),
+                DEFAULT_TLB_ENTRIES, DEFAULT_TLB_ASSOCIATIVITY);
+        restoreMappedPages();
+    }
+
+    private Memory(MemoryBackend backend, OffHeapFrameStore frames, int tlbEntries, int tlbAssociativity) {
+        this.backend = backend;
+        this.offHeapFrames = frames;
+        this.tlb = tlbEntries > 0 ? new Tlb(tlbEntries, tlbAssociativity) : null;
+        this.space = new AddressSpace();
+        clearPageTable();
+    }
+
+    // Pogled na isti adresni prostor sa sopstvenim TLB-om
+    private Memory(Memory shared) {
+        this.backend = shared.backend;
+        this.offHeapFrames = shared.offHeapFrames;
+        this.tlb = shared.tlb != null ? new Tlb(shared.tlb.getEntries(), shared.tlb.getAssociativity()) : null;
+        this.space = shared.space;
+        this.restored = shared.restored;
+    }
+
+    // Kopija adresnog prostora roditelja koja sa njim dijeli sve tabele i stranice (copy-on-write)
+    private Memory(Memory parent, AddressSpace space) {
+        this.backend = parent.backend;
+        this.offHeapFrames = null;
+        this.tlb = parent.tlb != null ? new Tlb(parent.tlb.getEntries(), parent.tlb.getAssociativity()) : null;
+        this.space = space;
+    }
+
+    /**
+     * Returns a view of the same guest memory with its own TLB, as one core of a multi-core
+     * system sees it. Views share every page, so a write through one is visible through all;
+     * pages are allocated under a lock, so views may be used from different threads.
+     * {@link #initializeMemory()} must not be called while other views are in use.
+     */
+    public Memory newCoreView() {
+        synchronized (space) {
+            space.views++;
+        }
+        return new Memory(this);
+    }
+
+    /**
+     * Returns a copy-on-write fork of this memory in O(1). Only the 512-entry root table is copied;
+     * every lower table and page stays shared until the parent or the child writes to it, and the
+     * writer then copies just the page and the tables on its path. A write never becomes visible
+     * in the other memory.
+     * <p>
+     * A fork that is never written to is a snapshot: forking it again restores its state any
+     * number of times. {@link #getCopiedPageCount()} reports the pages copied since the fork.
+     *
+     * @throws UnsupportedOperationException If the frames are not on the heap.
+     * @throws IllegalStateException         If the memory has core views.
+     */
+    public Memory fork() {
+        if (backend != MemoryBackend.HEAP) {
+            throw new UnsupportedOperationException("Only heap memory can be forked");
+        }
+        synchronized (space) {
+            if (space.views > 0) {
+                throw new IllegalStateException("A memory with core views cannot be forked");
+            }
+            // Roditelj gubi vlasništvo nad svim stranicama i tabelama; dijeljene se kopiraju pri upisu
+            space.startCopyOnWrite();
+            AddressSpace child = new AddressSpace();
+            child.pageTableLevel4 = space.pageTableLevel4.clone();
+            child.nextFrameIndex = space.nextFrameIndex;
+            child.allocatedTables = space.allocatedTables;
+            child.startCopyOnWrite();
+            return new Memory(this, child);
+        }
+    }
+
+    /**
+     * Starts or stops tracking which pages are written. Once started, the first
+     * {@link #takeDirtyPages()} returns every page and later calls only the pages written since the
+     * previous call. The dirty bitmap is indexed by frame number and is only updated when a write
+     * allocates or copies a page, so tracking adds no work to writes that hit the TLB.
+     *
+     * @throws UnsupportedOperationException If the frames are not on the heap.
+     * @throws IllegalStateException         If the memory has core views.
+     */
+    public void setDirtyTracking(boolean enabled) {
+        synchronized (space) {
+            if (!enabled) {
+                space.dirtyFrames = null;
+                return;
+            }
+            if (backend != MemoryBackend.HEAP) {
+                throw new UnsupportedOperationException("Only heap memory supports dirty page tracking");
+            }
+            if (space.views > 0) {
+                throw new IllegalStateException("A memory with core views cannot track dirty pages");
+            }
+            space.dirtyFrames = new long[(int) (space.nextFrameIndex >>> 6) + 1];
+            space.allDirty = true;
+        }
+    }
+
+    public boolean isDirtyTracking() {
+        return space.dirtyFrames != null;
     }
 
     /**
-     * Inicijalizuje memoriju dodajući početne stranice u mapu stranica.
-     * Svaka stranica ima svoj indeks koji se dodjeljuje automatski.
-     * Metoda se obično poziva prilikom inicijalizacije objekta klase Memory.
+     * Returns true if the next {@link #takeDirtyPages()} returns every page: tracking was just
+     * started or the memory was initialized again.
+     */
+    public boolean isAllDirty() {
+        return space.allDirty;
+    }
+
+    /**
+     * Returns the virtual page numbers of the pages written since the previous call (all pages if
+     * {@link #isAllDirty()}), in ascending order, and starts a new interval. Ownership of every page
+     * is dropped as in {@link #fork()}, so the next write to a page copies it and marks it dirty again.
+     *
+     * @throws IllegalStateException If dirty tracking is off.
+     */
+    public long[] takeDirtyPages() {
+        synchronized (space) {
+            long[] dirty = space.dirtyFrames;
+            if (dirty == null) {
+                throw new IllegalStateException("Dirty page tracking is off");
+            }
+            boolean all = space.allDirty;
+            long[] pages = new long[64];
+            int count = 0;
+            for (int l4 = 0; l4 < ENTRIES_PER_TABLE; l4++) {
+                MemoryPage[][][] level3Table = space.pageTableLevel4[l4];
+                if (level3Table == null) {
+                    continue;
+                }
+                for (int l3 = 0; l3 < ENTRIES_PER_TABLE; l3++) {
+                    MemoryPage[][] level2Table = level3Table[l3];
+                    if (level2Table == null) {
+                        continue;
+                    }
+                    for (int l2 = 0; l2 < ENTRIES_PER_TABLE; l2++) {
+                        MemoryPage[] level1Table = level2Table[l2];
+                        if (level1Table == null) {
+                            continue;
+                        }
+                        for (int l1 = 0; l1 < ENTRIES_PER_TABLE; l1++) {
+                            MemoryPage page = level1Table[l1];
+                            if (page == null || !(all || isMarked(dirty, page.getIndex()))) {
+                                continue;
+                            }
+                            if (count == pages.length) {
+                                pages = Arrays.copyOf(pages, count * 2);
+                            }
+                            pages[count++] = ((long) l4 << 27) | ((long) l3 << 18) | ((long) l2 << 9) | l1;
+                        }
+                    }
+                }
+            }
+            space.dirtyFrames = new long[(int) (space.nextFrameIndex >>> 6) + 1];
+            space.allDirty = false;
+            space.startCopyOnWrite();
+            return Arrays.copyOf(pages, count);
+        }
+    }
+
+    private static boolean isMarked(long[] bitmap, long frame) {
+        int word = (int) (frame >>> 6);
+        return word < bitmap.length && (bitmap[word] & (1L << frame)) != 0;
+    }
+
+    /**
+     * Returns the pages this memory copied on write since it was forked (or last forked from, or
+     * last asked for its dirty pages).
+     */
+    public long getCopiedPageCount() {
+        return space.copiedPages;
+    }
+
+    /**
+     * Returns the page tables this memory copied on write since it was forked (or last forked from).
+     */
+    public int getCopiedTableCount() {
+        return space.copiedTables;
+    }
+
+    /**
+     * Inicijalizuje (prazni) adresni prostor ove instance.
+     * Alocira se samo korijenska tabela (nivo 4); sve ostalo se alocira pri prvom upisu,
+     * pa je kreiranje i odbacivanje Memory objekata jeftino.
      */
     public void initializeMemory() {
-        // Dodajte inicijalne stranice u mapu
-        for (long i = 0; i < 512; i++) {
-            pageTableLevel4.put(i, new MemoryPage(i));
+        clearPageTable();
+        if (offHeapFrames != null) {
+            // Kod MAPPED_FILE backenda ovo prazni i fajl
+            offHeapFrames.reset();
+        }
+    }
+
+    private void clearPageTable() {
+        space.pageTableLevel4 = new MemoryPage[ENTRIES_PER_TABLE][][][];
+        space.nextFrameIndex = 0;
+        space.allocatedTables = 0;
+        space.stopCopyOnWrite();
+        if (space.dirtyFrames != null) {
+            // Stranice koje su nestale ne mogu se opisati inkrementalno
+            space.allDirty = true;
+        }
+        restored = false;
+        if (tlb != null) {
+            tlb.flush();
         }
     }
 
+    // Vraća stranice iz indeksa koji je zapisao posljednji sync()
+    private void restoreMappedPages() {
+        long[] index;
+        try {
+            index = ((MappedFrameStore) offHeapFrames).readIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (index == null || index.length == 0) {
+            return;
+        }
+        for (int i = 0; i < index.length; i += 2) {
+            long virtualAddress = index[i] << PAGE_SHIFT;
+            long frame = index[i + 1];
+            level1TableFor(virtualAddress)[(int) (virtualAddress >> 12) & LEVEL_MASK] = offHeapFrames.allocate(frame);
+            space.nextFrameIndex = Math.max(space.nextFrameIndex, frame + 1);
+        }
+        restored = true;
+    }
+
+    /**
+     * Returns true if the pages of this memory were remapped from an existing file image.
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Flushes dirty file-backed pages to disk and records the page table next to the file,
+     * so a later {@link #Memory(Path, long)} can remap the image. Does nothing for the
+     * in-memory backends.
+     */
+    public void sync() {
+        if (backend != MemoryBackend.MAPPED_FILE) {
+            return;
+        }
+        long[] entries = new long[(int) space.nextFrameIndex * 2];
+        int count = 0;
+        for (int l4 = 0; l4 < ENTRIES_PER_TABLE; l4++) {
+            MemoryPage[][][] level3Table = space.pageTableLevel4[l4];
+            if (level3Table == null) {
+                continue;
+            }
+            for (int l3 = 0; l3 < ENTRIES_PER_TABLE; l3++) {
+                MemoryPage[][] level2Table = level3Table[l3];
+                if (level2Table == null) {
+                    continue;
+                }
+                for (int l2 = 0; l2 < ENTRIES_PER_TABLE; l2++) {
+                    MemoryPage[] level1Table = level2Table[l2];
+                    if (level1Table == null) {
+                        continue;
+                    }
+                    for (int l1 = 0; l1 < ENTRIES_PER_TABLE; l1++) {
+                        MemoryPage page = level1Table[l1];
+                        if (page != null) {
+                            entries[count * 2] = ((long) l4 << 27) | ((long) l3 << 18) | ((long) l2 << 9) | l1;
+                            entries[count * 2 + 1] = page.getIndex();
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        ((MappedFrameStore) offHeapFrames).sync(entries, count);
+    }
+
+    /**
+     * Syncs a file-backed memory and releases its file. The memory must not be used afterwards.
+     */
+    public void close() {
+        if (backend == MemoryBackend.MAPPED_FILE) {
+            sync();
+            ((MappedFrameStore) offHeapFrames).close();
+        }
+    }
+
+    /**
+     * Returns the software TLB, or null if this memory was created without one.
+     */
+    public Tlb getTlb() {
+        return tlb;
+    }
+
+    /**
+     * Returns the number of pages this memory maps, including pages still shared with a fork.
+     * A page copied on write takes the frame of the page it replaces, so copies do not raise the count;
+     * the extra pages a fork costs are reported by {@link #getCopiedPageCount()}.
+     */
+    public long getAllocatedPageCount() {
+        return space.nextFrameIndex;
+    }
+
+    public int getAllocatedTableCount() {
+        return space.allocatedTables;
+    }
+
+    public MemoryBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the host bytes actually committed for guest frames. For a file-backed memory
+     * this is the mapped part of the file; the OS decides how much of it is resident. For heap memory
+     * it is {@link #getAllocatedPageCount()} pages, so pages shared with a fork are counted by both memories.
+     */
+    public long getResidentBytes() {
+        return offHeapFrames != null ? offHeapFrames.getResidentBytes() : space.nextFrameIndex * PAGE_SIZE;
+    }
+
+    /**
+     * Returns the host bytes reserved for guest frames. The heap backend reserves nothing up front,
+     * so its reservation equals its resident size.
+     */
+    public long getReservedBytes() {
+        return offHeapFrames != null ? offHeapFrames.getReservedBytes() : getResidentBytes();
+    }
+
     // Vrši čitanje bajta iz memorije na osnovu virtuelne adrese.
     // Ako je virtuelna adresa validna, izvršava čitanje na odgovarajućoj fizičkoj adresi i vraća pročitani bajt.
     // Ako virtuelna adresa nije validna ili se ne može prevesti u fizičku adresu, vraća se nula.
@@ -36,47 +423,193 @@ public class Memory {
 
         // Ako je stranica pronađena
         if (page != null) {
-            // Izračunaj offset unutar stranice
-            int offset = getOffset(virtualAddress);
-            // Ispisuje informacije o čitanju
-            System.out.println("Reading from page: " + page.getIndex() + " at offset: " + offset);
             // Vrši čitanje sa odgovarajuće fizičke adrese i vraća pročitani bajt
-            return page.read(offset); 
+            return page.read(getOffset(virtualAddress));
         }
-        // Vraća nulu ako virtuelna adresa nije validna ili se ne može prevesti
-        return 0; // Placeholder, replace with actual implementation!?
+        // Stranica još nije upisivana - čita se nula (bez alokacije)
+        return 0;
     }
 
     /**
      * Vrši upisivanje podataka na određenu virtuelnu adresu u memoriju.
+     * Ako stranica još ne postoji, alocira se (zajedno sa potrebnim tabelama).
      *
      * @param virtualAddress Virtuelna adresa na koju se vrši upisivanje podataka.
      * @param data Podaci koji se upisuju na navedenu virtuelnu adresu.
      */
     public void writeToVirtualAddress(long virtualAddress, byte data) {
-        // Prevedi virtuelnu adresu u odgovarajuću fizičku adresu
-        MemoryPage page = translateVirtualToPhysical(virtualAddress);
-        // Ispisuje informacije o stranici dobijenoj iz prevođenja virtuelne adrese u fizičku (za praćenje)
-        System.out.println("Page(translateVirtualToPhysical): " + page);
+        // Prevedi virtuelnu adresu u odgovarajuću fizičku adresu (uz alokaciju pri prvom upisu)
+        MemoryPage page = translateForWrite(virtualAddress);
+        // Upisuje podatke na odgovarajuću fizičku adresu unutar stranice
+        page.write(getOffset(virtualAddress), data);
+    }
 
-        // Proveri da li je stranica pronađena
-        if (page != null) {
-            // Izračunaj offset unutar stranice
-            int offset = getOffset(virtualAddress);
-            // Ispisuje informacije o offsetu (za praćenje)
-            System.out.println("offset" + offset);
-            // Upisuje podatke na odgovarajuću fizičku adresu unutar stranice
-            page.write(offset, data);
+    /*
+     * Višebajtni pristup (little-endian). Adresa se prevodi jednom; samo pristup koji prelazi
+     * granicu stranice ide bajt po bajt kroz obje stranice.
+     */
+
+    public short readShort(long virtualAddress) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Short.BYTES) {
+            MemoryPage page = translateVirtualToPhysical(virtualAddress);
+            return page != null ? page.readShort(offset) : 0;
+        }
+        return (short) readAcrossPages(virtualAddress, Short.BYTES);
+    }
+
+    public int readInt(long virtualAddress) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Integer.BYTES) {
+            MemoryPage page = translateVirtualToPhysical(virtualAddress);
+            return page != null ? page.readInt(offset) : 0;
+        }
+        return (int) readAcrossPages(virtualAddress, Integer.BYTES);
+    }
+
+    public long readLong(long virtualAddress) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Long.BYTES) {
+            MemoryPage page = translateVirtualToPhysical(virtualAddress);
+            return page != null ? page.readLong(offset) : 0;
+        }
+        return readAcrossPages(virtualAddress, Long.BYTES);
+    }
+
+    public void writeShort(long virtualAddress, short value) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Short.BYTES) {
+            translateForWrite(virtualAddress).writeShort(offset, value);
+        } else {
+            writeAcrossPages(virtualAddress, value, Short.BYTES);
         }
     }
 
-    // Method to translate virtual address to physical address using a hierarchical structure
+    public void writeInt(long virtualAddress, int value) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Integer.BYTES) {
+            translateForWrite(virtualAddress).writeInt(offset, value);
+        } else {
+            writeAcrossPages(virtualAddress, value, Integer.BYTES);
+        }
+    }
+
+    public void writeLong(long virtualAddress, long value) {
+        int offset = getOffset(virtualAddress);
+        if (offset <= PAGE_SIZE - Long.BYTES) {
+            translateForWrite(virtualAddress).writeLong(offset, value);
+        } else {
+            writeAcrossPages(virtualAddress, value, Long.BYTES);
+        }
+    }
+
+    private long readAcrossPages(long virtualAddress, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            value |= (readFromVirtualAddress(virtualAddress + i) & 0xFFL) << (i * Byte.SIZE);
+        }
+        return value;
+    }
+
+    private void writeAcrossPages(long virtualAddress, long value, int width) {
+        for (int i = 0; i < width; i++) {
+            writeToVirtualAddress(virtualAddress + i, (byte) (value >>> (i * Byte.SIZE)));
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes starting at a virtual address into {@code destination}.
+     * Each touched page is translated once; never written pages read as zero.
+     *
+     * @param virtualAddress The first virtual address to read.
+     * @param destination    The array receiving the bytes.
+     * @param offset         The first index of {@code destination} to fill.
+     * @param length         The number of bytes to copy.
+     */
+    public void readBlock(long virtualAddress, byte[] destination, int offset, int length) {
+        while (length > 0) {
+            int pageOffset = getOffset(virtualAddress);
+            int chunk = Math.min(length, PAGE_SIZE - pageOffset);
+            MemoryPage page = translateVirtualToPhysical(virtualAddress);
+            if (page != null) {
+                page.readBytes(pageOffset, destination, offset, chunk);
+            } else {
+                Arrays.fill(destination, offset, offset + chunk, (byte) 0);
+            }
+            virtualAddress += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes of {@code source} to guest memory starting at a virtual address,
+     * allocating pages as needed. Each touched page is translated once.
+     */
+    public void writeBlock(long virtualAddress, byte[] source, int offset, int length) {
+        while (length > 0) {
+            int pageOffset = getOffset(virtualAddress);
+            int chunk = Math.min(length, PAGE_SIZE - pageOffset);
+            translateForWrite(virtualAddress).writeBytes(pageOffset, source, offset, chunk);
+            virtualAddress += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Sets {@code length} bytes starting at a virtual address to {@code value}.
+     * Filling with zero does not allocate pages that were never written, since they already read as zero,
+     * but a page still shared after {@link #fork()} is copied first like on any other write.
+     */
+    public void fill(long virtualAddress, long length, byte value) {
+        while (length > 0) {
+            int pageOffset = getOffset(virtualAddress);
+            int chunk = (int) Math.min(length, PAGE_SIZE - pageOffset);
+            MemoryPage page = value == 0 ? translateVirtualToPhysical(virtualAddress) : translateForWrite(virtualAddress);
+            if (page != null && space.copyOnWrite && page.owner != space.owner) {
+                // Dijeljena stranica: kopija se pravi (i bilježi kao dirty) prije brisanja
+                page = translateForWrite(virtualAddress);
+            }
+            if (page != null) {
+                page.fill(pageOffset, chunk, value);
+            }
+            virtualAddress += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Translates a virtual address to the page holding it. The TLB is consulted first;
+     * on a miss the 4-level radix table is walked and a found page is cached in the TLB.
+     * The walk allocates nothing, boxes nothing and logs nothing.
+     *
+     * @param virtualAddress The virtual address to translate.
+     * @return The page, or null if the address has never been written.
+     */
     public MemoryPage translateVirtualToPhysical(long virtualAddress) {
+        long virtualPageNumber = (virtualAddress >>> PAGE_SHIFT) & VIRTUAL_PAGE_MASK;
+        if (tlb != null) {
+            // Uzastopni pristupi istoj stranici preskaču prolaz kroz tabelu
+            MemoryPage cached = tlb.lookup(virtualPageNumber);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        MemoryPage page = walkPageTable(virtualAddress);
+        if (page != null && tlb != null) {
+            tlb.insert(virtualPageNumber, page);
+        }
+        return page;
+    }
 
-        long level4Index = (virtualAddress >> 39) & 0x1FF;
-        long level3Index = (virtualAddress >> 30) & 0x1FF;
-        long level2Index = (virtualAddress >> 21) & 0x1FF;
-        long level1Index = (virtualAddress >> 12) & 0x1FF;
+    // Prolaz kroz 4 nivoa tabele stranica bez alokacije
+    private MemoryPage walkPageTable(long virtualAddress) {
+
+        int level4Index = (int) (virtualAddress >> 39) & LEVEL_MASK;
+        int level3Index = (int) (virtualAddress >> 30) & LEVEL_MASK;
+        int level2Index = (int) (virtualAddress >> 21) & LEVEL_MASK;
+        int level1Index = (int) (virtualAddress >> 12) & LEVEL_MASK;
         /*
             Ovo predstavlja proces izdvajanja indeksa na svakom nivou hijerarhijske strukture stranica (paging) iz virtualne adrese. Hijerarhijska struktura stranica je organizacija memorije u nivoe, gdje svaki nivo predstavlja određeni broj bitova adrese i omogućava efikasno adresiranje memorije na velikim sistemima.
             Evo objašnjenja svakog reda:
@@ -91,28 +624,96 @@ public class Memory {
             Svaki indeks identifikuje određeni nivo u hijerarhiji stranica i omogućava efikasno prevođenje virtualne adrese u fizičku adresu koristeći mapu stranica. Ova struktura omogućava efikasno upravljanje memorijom, a nivoi pružaju granularnost pri pristupu podacima.
         * */
 
-        MemoryPage level4Page = pageTableLevel4.get(level4Index);
-        if (level4Page != null) {
-            System.out.println("Level 4 Page found: " + level4Page.getIndex());
-            MemoryPage level3Page = level4Page.getPage(level3Index);
-            if (level3Page != null) {
-                System.out.println("Level 3 Page found: " + level3Page.getIndex());
-                MemoryPage level2Page = level3Page.getPage(level2Index);
-                if (level2Page != null) {
-                    System.out.println("Level 2 Page found: " + level2Page.getIndex());
-                    MemoryPage level1Page = level2Page.getPage(level1Index);
-                    if (level1Page != null) {
-                        // Calculate the physical address
-                        long offset = getOffset(virtualAddress);
-                        long physicalAddress = (level1Page.getIndex() << 12) | offset;
-                        System.out.println("Translated virtual address " + virtualAddress + " to physical address " + physicalAddress);
-                        return level1Page; // Change to return level1Page directly 15.02.2024
-                    }
+        MemoryPage[][][] level3Table = space.pageTableLevel4[level4Index];
+        if (level3Table == null) {
+            return null;
+        }
+        MemoryPage[][] level2Table = level3Table[level3Index];
+        if (level2Table == null) {
+            return null;
+        }
+        MemoryPage[] level1Table = level2Table[level2Index];
+        if (level1Table == null) {
+            return null;
+        }
+        return level1Table[level1Index];
+    }
+
+    // Isto kao translateVirtualToPhysical, ali alocira tabele i okvir koji nedostaju
+    private MemoryPage translateForWrite(long virtualAddress) {
+        long virtualPageNumber = (virtualAddress >>> PAGE_SHIFT) & VIRTUAL_PAGE_MASK;
+        if (tlb != null) {
+            MemoryPage cached = tlb.lookup(virtualPageNumber);
+            // Poslije fork-a TLB može držati dijeljenu stranicu koja se prvo mora kopirati
+            if (cached != null && (!space.copyOnWrite || cached.owner == space.owner)) {
+                return cached;
+            }
+        }
+
+        MemoryPage page = walkPageTable(virtualAddress);
+        if (page == null || (space.copyOnWrite && page.owner != space.owner)) {
+            // Drugo jezgro (pogled) može istovremeno alocirati u istoj tabeli
+            synchronized (space) {
+                MemoryPage[] level1Table = level1TableFor(virtualAddress);
+                int level1Index = (int) (virtualAddress >> 12) & LEVEL_MASK;
+                page = level1Table[level1Index];
+                if (page == null) {
+                    page = offHeapFrames != null ? offHeapFrames.allocate(space.nextFrameIndex) : new MemoryPage(space.nextFrameIndex);
+                    space.nextFrameIndex++;
+                    page.owner = space.owner;
+                    level1Table[level1Index] = page;
+                } else if (space.copyOnWrite && page.owner != space.owner) {
+                    // Kopija zauzima okvir stranice koju zamjenjuje: ovaj prostor je više ne referencira
+                    page = page.copy(space.owner);
+                    space.copiedPages++;
+                    level1Table[level1Index] = page;
                 }
+                space.markDirty(page.getIndex());
             }
+            if (tlb != null) {
+                tlb.invalidate(virtualPageNumber);
+            }
+        }
+        if (tlb != null) {
+            tlb.insert(virtualPageNumber, page);
+        }
+        return page;
+    }
+
+    // Vraća tabelu nivoa 1 za adresu, uz alokaciju tabela koje nedostaju
+    private MemoryPage[] level1TableFor(long virtualAddress) {
+        int level4Index = (int) (virtualAddress >> 39) & LEVEL_MASK;
+        int level3Index = (int) (virtualAddress >> 30) & LEVEL_MASK;
+        int level2Index = (int) (virtualAddress >> 21) & LEVEL_MASK;
+
+        MemoryPage[][][] level3Table = space.pageTableLevel4[level4Index];
+        if (level3Table == null) {
+            level3Table = space.own(new MemoryPage[ENTRIES_PER_TABLE][][]);
+            space.pageTableLevel4[level4Index] = level3Table;
+            space.allocatedTables++;
+        } else if (!space.owns(level3Table)) {
+            level3Table = space.copy(level3Table);
+            space.pageTableLevel4[level4Index] = level3Table;
+        }
+        MemoryPage[][] level2Table = level3Table[level3Index];
+        if (level2Table == null) {
+            level2Table = space.own(new MemoryPage[ENTRIES_PER_TABLE][]);
+            level3Table[level3Index] = level2Table;
+            space.allocatedTables++;
+        } else if (!space.owns(level2Table)) {
+            level2Table = space.copy(level2Table);
+            level3Table[level3Index] = level2Table;
         }
-        System.out.println("Translation failed. Returning null.");
-        return null; // Return null to indicate a failure in translation
+        MemoryPage[] level1Table = level2Table[level2Index];
+        if (level1Table == null) {
+            level1Table = space.own(new MemoryPage[ENTRIES_PER_TABLE]);
+            level2Table[level2Index] = level1Table;
+            space.allocatedTables++;
+        } else if (!space.owns(level1Table)) {
+            level1Table = space.copy(level1Table);
+            level2Table[level2Index] = level1Table;
+        }
+        return level1Table;
     }
 
     // Method to get the offset from a virtual address
@@ -129,13 +730,86 @@ public class Memory {
         return (int) (virtualAddress & 0xFFF);
     }
 
+    // Tabela stranica i brojači okvira, zajednički za sve poglede iste memorije
+    private static final class AddressSpace {
+        private MemoryPage[][][][] pageTableLevel4;
+        private long nextFrameIndex;        // sljedeći slobodan fizički okvir
+        private int allocatedTables;        // broj alociranih tabela nivoa 3, 2 i 1
+        private int views;                  // broj pogleda (jezgara) napravljenih sa newCoreView
+
+        // Copy-on-write poslije fork-a. Stranica pripada ovom prostoru ako nosi njegov owner token,
+        // a tabela ako je u ownedTables; novi token i prazan skup oduzimaju vlasništvo nad svime u O(1).
+        private boolean copyOnWrite;
+        private Object owner = new Object();
+        private Set<Object> ownedTables;
+        private long copiedPages;
+        private int copiedTables;
+        // Praćenje prljavih stranica (za inkrementalne checkpoint-e): bit po fizičkom okviru
+        private long[] dirtyFrames;
+        private boolean allDirty;
+
+        void markDirty(long frame) {
+            long[] dirty = dirtyFrames;
+            if (dirty == null) {
+                return;
+            }
+            int word = (int) (frame >>> 6);
+            if (word >= dirty.length) {
+                dirty = Arrays.copyOf(dirty, Math.max(word + 1, dirty.length * 2));
+                dirtyFrames = dirty;
+            }
+            dirty[word] |= 1L << frame;
+        }
+
+        void startCopyOnWrite() {
+            copyOnWrite = true;
+            owner = new Object();
+            ownedTables = Collections.newSetFromMap(new IdentityHashMap<>());
+            copiedPages = 0;
+            copiedTables = 0;
+        }
+
+        void stopCopyOnWrite() {
+            copyOnWrite = false;
+            ownedTables = null;
+        }
+
+        boolean owns(Object table) {
+            return !copyOnWrite || ownedTables.contains(table);
+        }
+
+        <T> T own(T table) {
+            if (copyOnWrite) {
+                ownedTables.add(table);
+            }
+            return table;
+        }
+
+        <T> T[] copy(T[] table) {
+            copiedTables++;
+            return own(table.clone());
+        }
+    }
+
     // Class representing a memory page
     public static class MemoryPage {
-        private byte[] data = new byte[4096];   //  krupno zrno
-        private long index;                     // New field to store the index
+        // Višebajtni pristup u little-endian poretku
+        private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private final byte[] data;              //  krupno zrno (null kod podklasa van heap-a)
+        private final long index;               // broj fizičkog okvira
+        private Object owner;                   // token adresnog prostora koji smije upisivati (copy-on-write)
 
         public MemoryPage(long index) {
+            this(index, new byte[PAGE_SIZE]);
+        }
+
+        // Za podklase koje same čuvaju podatke stranice
+        protected MemoryPage(long index, byte[] data) {
             this.index = index;
+            this.data = data;
         }
 
         public byte read(int offset) {
@@ -146,27 +820,64 @@ public class Memory {
             data[offset] = value;
         }
 
-        public static MemoryPage getPage(long index) { // 15.02.2024
-            // Ako stranica već postoji, vrati je
-            if (pageTableLevel4.containsKey(index)) {
-                return pageTableLevel4.get(index);
-            }
+        // Offset višebajtnog pristupa mora ostati unutar stranice
+        public short readShort(int offset) {
+            return (short) SHORT.get(data, offset);
+        }
+
+        public int readInt(int offset) {
+            return (int) INT.get(data, offset);
+        }
 
-            // Inače stvori novu stranicu i dodaj je u mapu
-            MemoryPage newPage = new MemoryPage(index);
-            pageTableLevel4.put(index, newPage);
-            return newPage;
+        public long readLong(int offset) {
+            return (long) LONG.get(data, offset);
+        }
+
+        public void writeShort(int offset, short value) {
+            SHORT.set(data, offset, value);
+        }
+
+        public void writeInt(int offset, int value) {
+            INT.set(data, offset, value);
+        }
+
+        public void writeLong(int offset, long value) {
+            LONG.set(data, offset, value);
+        }
+
+        public void readBytes(int offset, byte[] destination, int destinationOffset, int length) {
+            System.arraycopy(data, offset, destination, destinationOffset, length);
+        }
+
+        public void writeBytes(int offset, byte[] source, int sourceOffset, int length) {
+            System.arraycopy(source, sourceOffset, data, offset, length);
+        }
+
+        public void fill(int offset, int length, byte value) {
+            Arrays.fill(data, offset, offset + length, value);
         }
 
         public long getIndex() {
             return index;
         }
+
+        // Kopija stranice za upis poslije fork-a (samo heap stranice)
+        MemoryPage copy(Object newOwner) {
+            MemoryPage page = new MemoryPage(index, data.clone());
+            page.owner = newOwner;
+            return page;
+        }
     }
 
     @Override
     public String toString() {
         return "Memory{" +
-                "pageTableLevel4=" + pageTableLevel4 +
+                "backend=" + backend +
+                ", allocatedPages=" + space.nextFrameIndex +
+                ", copiedPages=" + space.copiedPages +
+                ", allocatedTables=" + space.allocatedTables +
+                ", residentBytes=" + getResidentBytes() +
+                ", reservedBytes=" + getReservedBytes() +
                 '}';
     }
 }
@@ -0,0 +1,13 @@
+package memory;
+
+/**
+ * Storage used for the guest page frames of a {@link Memory}.
+ */
+public enum MemoryBackend {
+    /** Every 4 KiB frame is an on-heap byte array (the original behaviour). */
+    HEAP,
+    /** Frames live in direct buffers outside the Java heap, committed in slabs on first write. */
+    OFF_HEAP,
+    /** Frames live in a memory-mapped sparse file that survives the run; see {@link MappedFrameStore}. */
+    MAPPED_FILE
+}
@@ -0,0 +1,179 @@
+package memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Off-heap storage for guest page frames. A fixed address range of frames is reserved up front,
+ * but host memory is only committed slab by slab when a frame of the slab is first allocated,
+ * so resident memory follows the guest working set and never counts against the Java heap.
+ */
+public class OffHeapFrameStore {
+    public static final int FRAMES_PER_SLAB = 64;                          // 256 KiB po slabu
+
+    private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int framesPerSlab;
+    private final int slabBytes;
+    private final long reservedFrames;
+    private ByteBuffer[] slabs;
+    private int committedSlabs;
+
+    /**
+     * Reserves room for guest frames.
+     *
+     * @param reservedBytes Upper bound of guest physical memory, rounded up to whole slabs.
+     */
+    public OffHeapFrameStore(long reservedBytes) {
+        this(reservedBytes, FRAMES_PER_SLAB);
+    }
+
+    protected OffHeapFrameStore(long reservedBytes, int framesPerSlab) {
+        this.framesPerSlab = framesPerSlab;
+        this.slabBytes = framesPerSlab * Memory.PAGE_SIZE;
+        if (reservedBytes <= 0) {
+            throw new IllegalArgumentException("Reservation must be positive: " + reservedBytes);
+        }
+        long slabCount = (reservedBytes + slabBytes - 1) / slabBytes;
+        if (slabCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Reservation too large: " + reservedBytes);
+        }
+        this.reservedFrames = slabCount * framesPerSlab;
+        this.slabs = new ByteBuffer[(int) slabCount];
+    }
+
+    /**
+     * Returns the frame with the given number, committing its slab if needed.
+     *
+     * @throws IllegalStateException If the frame lies outside the reservation.
+     */
+    Memory.MemoryPage allocate(long frameIndex) {
+        if (frameIndex < 0 || frameIndex >= reservedFrames) {
+            throw new IllegalStateException("Off-heap reservation exhausted at frame " + frameIndex);
+        }
+        int slabIndex = (int) (frameIndex / framesPerSlab);
+        ByteBuffer slab = slabs[slabIndex];
+        if (slab == null) {
+            slab = commitSlab(slabIndex, slabBytes).order(ByteOrder.LITTLE_ENDIAN);
+            slabs[slabIndex] = slab;
+            committedSlabs++;
+        }
+        int base = (int) (frameIndex % framesPerSlab) * Memory.PAGE_SIZE;
+        return new OffHeapPage(frameIndex, slab, base);
+    }
+
+    /**
+     * Provides the zero-filled storage of one slab.
+     *
+     * @param slabIndex The slab number; frames {@code slabIndex * framesPerSlab ...} live in it.
+     * @param slabBytes The size of the slab in bytes.
+     */
+    protected ByteBuffer commitSlab(int slabIndex, int slabBytes) {
+        // allocateDirect vraća nulama popunjenu memoriju, kao i new byte[]
+        return ByteBuffer.allocateDirect(slabBytes);
+    }
+
+    // Slabovi koji su do sada zauzeti, za podklase (null za nezauzete)
+    protected ByteBuffer[] getSlabs() {
+        return slabs;
+    }
+
+    /**
+     * Releases every committed slab; the buffers are freed once unreachable.
+     */
+    void reset() {
+        slabs = new ByteBuffer[(int) (reservedFrames / framesPerSlab)];
+        committedSlabs = 0;
+    }
+
+    public long getReservedBytes() {
+        return reservedFrames * Memory.PAGE_SIZE;
+    }
+
+    public long getResidentBytes() {
+        return (long) committedSlabs * slabBytes;
+    }
+
+    // Stranica čiji podaci žive u dijelu slaba [base, base + PAGE_SIZE)
+    static final class OffHeapPage extends Memory.MemoryPage {
+        private final ByteBuffer slab;
+        private final int base;
+
+        OffHeapPage(long index, ByteBuffer slab, int base) {
+            super(index, null);
+            this.slab = slab;
+            this.base = base;
+        }
+
+        @Override
+        public byte read(int offset) {
+            return slab.get(base + offset);
+        }
+
+        @Override
+        public void write(int offset, byte value) {
+            slab.put(base + offset, value);
+        }
+
+        @Override
+        public short readShort(int offset) {
+            return (short) SHORT.get(slab, base + offset);
+        }
+
+        @Override
+        public int readInt(int offset) {
+            return (int) INT.get(slab, base + offset);
+        }
+
+        @Override
+        public long readLong(int offset) {
+            return (long) LONG.get(slab, base + offset);
+        }
+
+        @Override
+        public void writeShort(int offset, short value) {
+            SHORT.set(slab, base + offset, value);
+        }
+
+        @Override
+        public void writeInt(int offset, int value) {
+            INT.set(slab, base + offset, value);
+        }
+
+        @Override
+        public void writeLong(int offset, long value) {
+            LONG.set(slab, base + offset, value);
+        }
+
+        @Override
+        public void readBytes(int offset, byte[] destination, int destinationOffset, int length) {
+            checkRange(offset, length);
+            slab.get(base + offset, destination, destinationOffset, length);
+        }
+
+        @Override
+        public void writeBytes(int offset, byte[] source, int sourceOffset, int length) {
+            checkRange(offset, length);
+            slab.put(base + offset, source, sourceOffset, length);
+        }
+
+        @Override
+        public void fill(int offset, int length, byte value) {
+            checkRange(offset, length);
+            for (int i = base + offset; i < base + offset + length; i++) {
+                slab.put(i, value);
+            }
+        }
+
+        // Slab dijeli više stranica - pristup ne smije preći u susjednu
+        private static void checkRange(int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > Memory.PAGE_SIZE) {
+                throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") outside page");
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package memory;
+
+import java.util.Arrays;
+
+/**
+ * Software TLB caching virtual page number to page translations of a {@link Memory}.
+ * The TLB is set-associative with LRU replacement inside a set; an associativity of 1
+ * gives a direct-mapped TLB and an associativity equal to the number of entries a fully
+ * associative one. Only successful translations are cached.
+ */
+public class Tlb {
+    private static final long INVALID = -1L;
+
+    private final int entries;
+    private final int associativity;
+    private final int setMask;
+
+    // Po jedan element za svaki ulaz: set s zauzima indekse [s * associativity, (s + 1) * associativity)
+    private final long[] tags;                      // broj virtuelne stranice, INVALID ako je ulaz prazan
+    private final Memory.MemoryPage[] pages;
+    private final long[] lastUse;                   // za LRU unutar seta
+    private long useClock = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a TLB.
+     *
+     * @param entries       Total number of entries, a power of two.
+     * @param associativity Entries per set, a power of two not larger than {@code entries}.
+     */
+    public Tlb(int entries, int associativity) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("TLB size must be a power of two: " + entries);
+        }
+        if (associativity <= 0 || Integer.bitCount(associativity) != 1 || associativity > entries) {
+            throw new IllegalArgumentException("Invalid TLB associativity: " + associativity);
+        }
+        this.entries = entries;
+        this.associativity = associativity;
+        this.setMask = entries / associativity - 1;
+        this.tags = new long[entries];
+        this.pages = new Memory.MemoryPage[entries];
+        this.lastUse = new long[entries];
+        flush();
+    }
+
+    /**
+     * Looks up a virtual page number.
+     *
+     * @param virtualPageNumber The virtual page number (virtual address shifted right by the page size).
+     * @return The cached page, or null on a TLB miss.
+     */
+    public Memory.MemoryPage lookup(long virtualPageNumber) {
+        int base = ((int) virtualPageNumber & setMask) * associativity;
+        for (int i = base; i < base + associativity; i++) {
+            if (tags[i] == virtualPageNumber) {
+                lastUse[i] = ++useClock;
+                hits++;
+                return pages[i];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches a translation, replacing the least recently used entry of its set.
+     */
+    public void insert(long virtualPageNumber, Memory.MemoryPage page) {
+        int base = ((int) virtualPageNumber & setMask) * associativity;
+        int victim = base;
+        for (int i = base; i < base + associativity; i++) {
+            if (tags[i] == INVALID) {
+                victim = i;
+                break;
+            }
+            if (lastUse[i] < lastUse[victim]) {
+                victim = i;
+            }
+        }
+        tags[victim] = virtualPageNumber;
+        pages[victim] = page;
+        lastUse[victim] = ++useClock;
+    }
+
+    /**
+     * Drops the cached translation of one virtual page, if present.
+     */
+    public void invalidate(long virtualPageNumber) {
+        int base = ((int) virtualPageNumber & setMask) * associativity;
+        for (int i = base; i < base + associativity; i++) {
+            if (tags[i] == virtualPageNumber) {
+                tags[i] = INVALID;
+                pages[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Drops every cached translation. Hit and miss counters are kept.
+     */
+    public void flush() {
+        Arrays.fill(tags, INVALID);
+        Arrays.fill(pages, null);
+        Arrays.fill(lastUse, 0);
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public int getAssociativity() {
+        return associativity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitPercentage() {
+        long total = hits + misses;
+        return total > 0 ? (double) hits / total * 100 : 0;
+    }
+
+    public void tlbMonitor() {
+        System.out.println("No. of TLB hits: " + hits + "\n");
+        System.out.println("No. of TLB misses: " + misses + "\n");
+    }
+
+    @Override
+    public String toString() {
+        return "Tlb{" +
+                "entries=" + entries +
+                ", associativity=" + associativity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+}
@@ -0,0 +1,410 @@
+package processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles a {@link DecodedBlock} into a hidden JVM class implementing {@link TranslatedBlock}.
+ *
+ * Only the longest prefix of the block made of translatable instructions is compiled:
+ * ALU operations, MOV_REG/MOV_IMM/MOV_RAM, CMP and the jumps. INPUT_CHAR, OUTPUT_CHAR, HALT and
+ * invalid opcodes are never compiled, so the processor falls back to the interpreter for them.
+ * The generated method has no branches (conditions are evaluated in {@link TranslationRuntime}),
+ * which keeps the class file free of stack map frames.
+ */
+public class BlockTranslator {
+    private static final String CLASS_NAME = "processor/GeneratedBlock";
+    private static final String RUNTIME = "processor/TranslationRuntime";
+    private static final String EXECUTE_DESCRIPTOR = "(Lprocessor/Processor;[J[I)J";
+
+    private static final int NUM_REGISTERS = Processor.NUM_GENERAL_PURPOSE_REGISTERS;
+
+    // Lokalne varijable generisane metode execute(): 0 this, 1 processor, 2 registers, 3 flags
+    private static final int LOCAL_FIRST_REGISTER = 4;      // registar i je u slotovima 4 + 2i (long)
+    private static final int LOCAL_FLAGS = LOCAL_FIRST_REGISTER + 2 * NUM_REGISTERS;
+    private static final int LOCAL_NEXT_PC = LOCAL_FLAGS + 1;
+    private static final int MAX_LOCALS = LOCAL_NEXT_PC + 2;
+    private static final int MAX_STACK = 8;
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private long blocksTranslated = 0;
+    private long translationFailures = 0;
+
+    /**
+     * Returns how many leading instructions of {@code block} can be compiled.
+     * CMP does not advance the program counter in {@link Processor#cmp(int, int)},
+     * so it always ends the compiled prefix.
+     */
+    public int translatableLength(DecodedBlock block) {
+        for (int i = 0; i < block.length(); i++) {
+            DecodedInstruction instruction = block.get(i);
+            if (!isTranslatable(instruction)) {
+                return i;
+            }
+            if (instruction.endsBlock() || instruction.getOpcode() == Opcode.CMP) {
+                return i + 1;
+            }
+        }
+        return block.length();
+    }
+
+    private boolean isTranslatable(DecodedInstruction instruction) {
+        Opcode opcode = instruction.getOpcode();
+        if (opcode == null) {
+            return false;
+        }
+        switch (opcode) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case AND:
+            case OR:
+            case XOR:
+                return validRegister(instruction.getDestRegister()) && validRegister(instruction.getSrcRegister1())
+                        && validRegister(instruction.getSrcRegister2());
+            case NOT:
+            case MOV_REG:
+                return validRegister(instruction.getDestRegister()) && validRegister(instruction.getSrcRegister1());
+            case MOV_IMM:
+            case MOV_RAM:
+                return validRegister(instruction.getDestRegister());
+            case CMP:
+                return validRegister(instruction.getSrcRegister1()) && validRegister(instruction.getSrcRegister2());
+            case JMP:
+            case JE:
+            case JNE:
+            case JGE:
+            case JL:
+                return true;
+            default:
+                // INPUT_CHAR, OUTPUT_CHAR i HALT ostaju interpreteru
+                return false;
+        }
+    }
+
+    private boolean validRegister(int register) {
+        return register >= 0 && register < NUM_REGISTERS;
+    }
+
+    /**
+     * Compiles the translatable prefix of {@code block}.
+     *
+     * @param block The block to compile.
+     * @return The compiled block, or null if not even the first instruction can be compiled.
+     */
+    public TranslatedBlock translate(DecodedBlock block) {
+        int length = translatableLength(block);
+        if (length == 0) {
+            translationFailures++;
+            return null;
+        }
+        try {
+            byte[] classBytes = generateClass(block, length);
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(classBytes, true);
+            TranslatedBlock translated = (TranslatedBlock) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            blocksTranslated++;
+            return translated;
+        } catch (Throwable e) {
+            // Prevođenje nije uspjelo - blok ostaje u interpreteru
+            System.err.println("Block translation failed at " + block.getStartAddress() + ": " + e);
+            translationFailures++;
+            return null;
+        }
+    }
+
+    private byte[] generateClass(DecodedBlock block, int length) throws IOException {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int interfaceClass = pool.classRef("processor/TranslatedBlock");
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int executeName = pool.utf8("execute");
+        int executeDescriptor = pool.utf8(EXECUTE_DESCRIPTOR);
+        int codeName = pool.utf8("Code");
+
+        ByteArrayOutputStream initCode = new ByteArrayOutputStream();
+        initCode.write(0x2a);                               // aload_0
+        writeOp2(initCode, 0xb7, objectInit);               // invokespecial Object.<init>
+        initCode.write(0xb1);                               // return
+
+        byte[] executeCode = generateExecute(block, length, pool);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);                                  // minor
+        out.writeShort(52);                                 // major (Java 8), bez StackMapTable
+        pool.writeTo(out);
+        out.writeShort(0x0001 | 0x0010 | 0x0020);           // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(interfaceClass);
+        out.writeShort(0);                                  // fields
+        out.writeShort(2);                                  // methods
+        writeMethod(out, initName, initDescriptor, codeName, 1, 1, initCode.toByteArray());
+        writeMethod(out, executeName, executeDescriptor, codeName, MAX_STACK, MAX_LOCALS, executeCode);
+        out.writeShort(0);                                  // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                             int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001);                             // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);                                  // Code attribute
+        out.writeShort(codeName);
+        out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);                                  // exception table
+        out.writeShort(0);                                  // attributes
+    }
+
+    private byte[] generateExecute(DecodedBlock block, int length, ConstantPool pool) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+        // Učitaj registre i zastavice u lokalne varijable
+        for (int r = 0; r < NUM_REGISTERS; r++) {
+            code.write(0x2c);                               // aload_2
+            pushInt(code, r);
+            code.write(0x2f);                               // laload
+            writeOp1(code, 0x37, registerLocal(r));         // lstore
+        }
+        code.write(0x2d);                                   // aload_3
+        code.write(0x03);                                   // iconst_0
+        code.write(0x2e);                                   // iaload
+        writeOp1(code, 0x36, LOCAL_FLAGS);                  // istore
+
+        long nextPc = block.getStartAddress() + length;
+        boolean pcComputed = false;
+        for (int i = 0; i < length; i++) {
+            DecodedInstruction instruction = block.get(i);
+            long address = block.getStartAddress() + i;
+            int dest = instruction.getDestRegister();
+            int src1 = instruction.getSrcRegister1();
+            int src2 = instruction.getSrcRegister2();
+            switch (instruction.getOpcode()) {
+                case ADD:
+                    binary(code, 0x61, dest, src1, src2);
+                    break;
+                case SUB:
+                    binary(code, 0x65, dest, src1, src2);
+                    break;
+                case MUL:
+                    binary(code, 0x69, dest, src1, src2);
+                    break;
+                case AND:
+                    binary(code, 0x7f, dest, src1, src2);
+                    break;
+                case OR:
+                    binary(code, 0x81, dest, src1, src2);
+                    break;
+                case XOR:
+                    binary(code, 0x83, dest, src1, src2);
+                    break;
+                case DIV:
+                    writeOp1(code, 0x16, registerLocal(src1));
+                    writeOp1(code, 0x16, registerLocal(src2));
+                    writeOp1(code, 0x16, registerLocal(dest));
+                    writeOp2(code, 0xb8, pool.methodRef(RUNTIME, "div", "(JJJ)J"));
+                    writeOp1(code, 0x37, registerLocal(dest));
+                    break;
+                case NOT:
+                    writeOp1(code, 0x16, registerLocal(src1));
+                    writeOp2(code, 0x14, pool.longConstant(-1L));   // ldc2_w -1
+                    code.write(0x83);                                // lxor
+                    writeOp1(code, 0x37, registerLocal(dest));
+                    break;
+                case MOV_REG:
+                    writeOp1(code, 0x16, registerLocal(src1));
+                    writeOp1(code, 0x37, registerLocal(dest));
+                    break;
+                case MOV_IMM:
+                    writeOp2(code, 0x14, pool.longConstant(instruction.getOperand()));
+                    writeOp1(code, 0x37, registerLocal(dest));
+                    break;
+                case MOV_RAM:
+                    code.write(0x2b);                                // aload_1
+                    writeOp2(code, 0x14, pool.longConstant(instruction.getOperand()));
+                    writeOp2(code, 0xb8, pool.methodRef(RUNTIME, "loadIndirect", "(Lprocessor/Processor;J)J"));
+                    writeOp1(code, 0x37, registerLocal(dest));
+                    break;
+                case CMP:
+                    writeOp1(code, 0x16, registerLocal(src1));
+                    writeOp1(code, 0x16, registerLocal(src2));
+                    writeOp2(code, 0xb8, pool.methodRef(RUNTIME, "compare", "(JJ)I"));
+                    writeOp1(code, 0x36, LOCAL_FLAGS);
+                    // CMP ne pomjera programski brojač
+                    nextPc = address;
+                    break;
+                case JMP:
+                    code.write(0x2b);                                // aload_1
+                    writeOp2(code, 0x14, pool.longConstant(instruction.getOperand()));
+                    writeOp2(code, 0xb8, pool.methodRef(RUNTIME, "jmp", "(Lprocessor/Processor;J)J"));
+                    writeOp1(code, 0x37, LOCAL_NEXT_PC);
+                    pcComputed = true;
+                    break;
+                case JE:
+                case JNE:
+                case JGE:
+                case JL:
+                    code.write(0x2b);                                // aload_1
+                    writeOp1(code, 0x15, LOCAL_FLAGS);               // iload
+                    writeOp2(code, 0x14, pool.longConstant(instruction.getOperand()));
+                    writeOp2(code, 0x14, pool.longConstant(address + 1));
+                    writeOp2(code, 0xb8, pool.methodRef(RUNTIME, instruction.getOpcode().name().toLowerCase(),
+                            "(Lprocessor/Processor;IJJ)J"));
+                    writeOp1(code, 0x37, LOCAL_NEXT_PC);
+                    pcComputed = true;
+                    break;
+                default:
+                    throw new IllegalStateException("Not translatable: " + instruction);
+            }
+        }
+        if (!pcComputed) {
+            writeOp2(code, 0x14, pool.longConstant(nextPc));
+            writeOp1(code, 0x37, LOCAL_NEXT_PC);
+        }
+
+        // Vrati registre i zastavice u procesor
+        for (int r = 0; r < NUM_REGISTERS; r++) {
+            code.write(0x2c);                               // aload_2
+            pushInt(code, r);
+            writeOp1(code, 0x16, registerLocal(r));         // lload
+            code.write(0x50);                               // lastore
+        }
+        code.write(0x2d);                                   // aload_3
+        code.write(0x03);                                   // iconst_0
+        writeOp1(code, 0x15, LOCAL_FLAGS);                  // iload
+        code.write(0x4f);                                   // iastore
+        writeOp1(code, 0x16, LOCAL_NEXT_PC);                // lload
+        code.write(0xad);                                   // lreturn
+        return code.toByteArray();
+    }
+
+    private void binary(ByteArrayOutputStream code, int opcode, int dest, int src1, int src2) {
+        writeOp1(code, 0x16, registerLocal(src1));          // lload
+        writeOp1(code, 0x16, registerLocal(src2));          // lload
+        code.write(opcode);
+        writeOp1(code, 0x37, registerLocal(dest));          // lstore
+    }
+
+    private static int registerLocal(int register) {
+        return LOCAL_FIRST_REGISTER + 2 * register;
+    }
+
+    private static void pushInt(ByteArrayOutputStream code, int value) {
+        if (value >= -1 && value <= 5) {
+            code.write(0x03 + value);                       // iconst_<value>
+        } else {
+            code.write(0x10);                               // bipush
+            code.write(value);
+        }
+    }
+
+    private static void writeOp1(ByteArrayOutputStream code, int opcode, int operand) {
+        code.write(opcode);
+        code.write(operand);
+    }
+
+    private static void writeOp2(ByteArrayOutputStream code, int opcode, int operand) {
+        code.write(opcode);
+        code.write(operand >> 8);
+        code.write(operand);
+    }
+
+    public long getBlocksTranslated() {
+        return blocksTranslated;
+    }
+
+    public long getTranslationFailures() {
+        return translationFailures;
+    }
+
+    // Minimalni constant pool za generisanu klasu
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int nextIndex = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int longConstant(long value) {
+            return entry("J" + value, 2, () -> {
+                out.writeByte(5);
+                out.writeLong(value);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, () -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int entry(String key, int slots, Writer writer) {
+            Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = nextIndex;
+            nextIndex += slots;
+            entries.put(key, index);
+            return index;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(nextIndex);
+            target.write(bytes.toByteArray());
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package processor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Character device behind INPUT_CHAR and OUTPUT_CHAR. Input is read through one buffer that lives as
+ * long as the device, so nothing typed ahead is lost between instructions. Output is collected in a
+ * buffer and written in one call when a line ends (for interactive consoles), when the buffer is full,
+ * before input is read and when the processor halts.
+ * <p>
+ * INPUT_CHAR skips whitespace like {@code Scanner.next()} did and returns the next character; the
+ * rest of the word is returned by the following INPUT_CHARs instead of being discarded. At the end of
+ * the input {@link #readChar()} returns -1 and the processor halts.
+ * <p>
+ * The device is thread-safe, so one device (such as {@link #system()}) may be shared by processors
+ * running on different threads.
+ */
+public class ConsoleDevice implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    private static InputChannel systemInput;
+    private static ConsoleDevice system;
+
+    private final InputChannel input;
+    private final Writer output;
+    private final boolean lineFlush;
+    private final boolean closeOutput;     // izlaz host konzole se ne zatvara
+
+    private final char[] outputBuffer = new char[BUFFER_SIZE];
+    private int outputSize = 0;
+
+    private long charactersRead = 0;
+    private long charactersWritten = 0;
+    private long outputWrites = 0;           // pozivi prema host-u (write + flush)
+
+    /**
+     * Creates a device over the given streams. The device closes them in {@link #close()}.
+     *
+     * @param input     Source of INPUT_CHAR, e.g. a {@code StringReader}.
+     * @param output    Destination of OUTPUT_CHAR, e.g. a {@code StringWriter}.
+     * @param lineFlush Whether every completed line is written at once (interactive output).
+     */
+    public ConsoleDevice(Reader input, Writer output, boolean lineFlush) {
+        this(new InputChannel(input, true), output, lineFlush, true);
+    }
+
+    private ConsoleDevice(InputChannel input, Writer output, boolean lineFlush, boolean closeOutput) {
+        this.input = input;
+        this.output = output;
+        this.lineFlush = lineFlush;
+        this.closeOutput = closeOutput;
+    }
+
+    /**
+     * Returns the device of the host console (standard input and output), shared by every processor
+     * that has no device of its own. Output is flushed at line ends.
+     */
+    public static synchronized ConsoleDevice system() {
+        if (system == null) {
+            system = new ConsoleDevice(systemInput(), new OutputStreamWriter(System.out, Charset.defaultCharset()),
+                    true, false);
+        }
+        return system;
+    }
+
+    // Standardni ulaz ima samo jedan bafer, koji dijele svi uređaji koji čitaju sa konzole
+    private static synchronized InputChannel systemInput() {
+        if (systemInput == null) {
+            systemInput = new InputChannel(new InputStreamReader(System.in, Charset.defaultCharset()), false);
+        }
+        return systemInput;
+    }
+
+    /**
+     * Creates a device that reads and writes files. A null path uses the host console for that direction.
+     *
+     * @throws IOException If a file cannot be opened.
+     */
+    public static ConsoleDevice open(Path inputFile, Path outputFile) throws IOException {
+        InputChannel input = inputFile != null
+                ? new InputChannel(new InputStreamReader(Files.newInputStream(inputFile), Charset.defaultCharset()), true)
+                : systemInput();
+        Writer output;
+        try {
+            output = outputFile != null
+                    ? new OutputStreamWriter(Files.newOutputStream(outputFile), Charset.defaultCharset())
+                    : new OutputStreamWriter(System.out, Charset.defaultCharset());
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        // Fajl se ne gleda uživo, pa se piše tek kada se bafer napuni
+        return new ConsoleDevice(input, output, outputFile == null, outputFile != null);
+    }
+
+    /**
+     * Returns the next non-whitespace character, or -1 at the end of the input.
+     * Buffered output is written first, so a prompt is visible before the read blocks.
+     */
+    public int readChar() {
+        flush();
+        // Čekanje na ulaz ne drži bravu uređaja, pa flush (npr. iz shutdown hook-a) ne blokira
+        int c = input.readChar();
+        if (c >= 0) {
+            synchronized (this) {
+                charactersRead++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Returns the rest of the current input line without its line terminator, or null at the end of
+     * the input. Used by the step-by-step mode so its commands and the guest share one input buffer.
+     */
+    public String readLine() {
+        flush();
+        return input.readLine();
+    }
+
+    public synchronized void writeChar(char c) {
+        if (outputSize == outputBuffer.length) {
+            writeOutput();
+        }
+        outputBuffer[outputSize++] = c;
+        charactersWritten++;
+        if (lineFlush && c == '\n') {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered output to the host.
+     */
+    public synchronized void flush() {
+        if (outputSize == 0) {
+            return;
+        }
+        writeOutput();
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeOutput() {
+        try {
+            output.write(outputBuffer, 0, outputSize);
+            outputSize = 0;
+            outputWrites++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the output and closes the streams; the host console is only flushed.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            input.close();
+            if (closeOutput) {
+                output.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized long getCharactersRead() {
+        return charactersRead;
+    }
+
+    public synchronized long getCharactersWritten() {
+        return charactersWritten;
+    }
+
+    /**
+     * Returns how many times buffered output was handed to the host.
+     */
+    public synchronized long getOutputWrites() {
+        return outputWrites;
+    }
+
+    // Ulaz sa baferom koji traje koliko i uređaj (ili, za konzolu, koliko i proces)
+    private static final class InputChannel {
+        private final Reader reader;
+        private final boolean closeable;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        InputChannel(Reader reader, boolean closeable) {
+            this.reader = reader;
+            this.closeable = closeable;
+        }
+
+        synchronized int readChar() {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return -1;
+                }
+                char c = buffer[position++];
+                if (!Character.isWhitespace(c)) {
+                    return c;
+                }
+            }
+        }
+
+        synchronized String readLine() {
+            StringBuilder line = new StringBuilder();
+            while (true) {
+                if (position == limit && !fill()) {
+                    return line.length() > 0 ? line.toString() : null;
+                }
+                char c = buffer[position++];
+                if (c == '\n') {
+                    int end = line.length();
+                    return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+                }
+                line.append(c);
+            }
+        }
+
+        private boolean fill() {
+            try {
+                int read = reader.read(buffer, 0, buffer.length);
+                if (read <= 0) {
+                    return false;
+                }
+                position = 0;
+                limit = read;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() throws IOException {
+            if (closeable) {
+                reader.close();
+            }
+        }
+    }
+}
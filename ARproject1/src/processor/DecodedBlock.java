@@ -0,0 +1,85 @@
+package processor;
+
+/**
+ * A basic block of already decoded instructions starting at a fixed program counter.
+ * Instruction {@code i} of the block lives at address {@code startAddress + i}.
+ */
+public final class DecodedBlock {
+    private final long startAddress;
+    private final DecodedInstruction[] instructions;
+    private boolean valid = true;
+
+    // Tiered izvršavanje: broj izvršavanja i prevedeni kod (ako postoji)
+    private int executionCount;
+    private boolean translationAttempted;
+    private TranslatedBlock translated;
+    private int translatedLength;
+
+    public DecodedBlock(long startAddress, DecodedInstruction[] instructions) {
+        this.startAddress = startAddress;
+        this.instructions = instructions;
+    }
+
+    public long getStartAddress() {
+        return startAddress;
+    }
+
+    /**
+     * Returns the last guest byte address read while decoding this block.
+     * Every instruction is fetched as {@link DecodedBlockCache#INSTRUCTION_BYTES} bytes.
+     */
+    public long getEndAddress() {
+        return startAddress + instructions.length - 1 + DecodedBlockCache.INSTRUCTION_BYTES - 1;
+    }
+
+    public int length() {
+        return instructions.length;
+    }
+
+    public DecodedInstruction get(int index) {
+        return instructions[index];
+    }
+
+    public boolean overlaps(long address, int length) {
+        return address <= getEndAddress() && address + length - 1 >= startAddress;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        this.valid = false;
+        // Deoptimizacija: prevedeni kod više ne odgovara memoriji
+        this.translated = null;
+    }
+
+    int recordExecution() {
+        return ++executionCount;
+    }
+
+    public int getExecutionCount() {
+        return executionCount;
+    }
+
+    boolean isTranslationAttempted() {
+        return translationAttempted;
+    }
+
+    void setTranslated(TranslatedBlock translated, int translatedLength) {
+        this.translationAttempted = true;
+        this.translated = translated;
+        this.translatedLength = translated != null ? translatedLength : 0;
+    }
+
+    public TranslatedBlock getTranslated() {
+        return translated;
+    }
+
+    /**
+     * Returns how many leading instructions of this block are covered by {@link #getTranslated()}.
+     */
+    public int getTranslatedLength() {
+        return translatedLength;
+    }
+}
@@ -0,0 +1,134 @@
+package processor;
+
+import cache.MemoryWriteListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of decoded basic blocks keyed by the program counter of their first instruction.
+ * A hot loop is fetched and decoded once; later executions reuse the decoded records.
+ * Writes that reach guest memory through the cache invalidate every block that covers the
+ * written bytes, so self-modifying code is re-decoded on its next execution.
+ */
+public class DecodedBlockCache implements MemoryWriteListener {
+    // Svaka instrukcija se dohvata kao 4 bajta (vidi Processor.fetchInstructionFromMemory)
+    public static final int INSTRUCTION_BYTES = 4;
+    // Gornja granica dužine bloka, da dugi pravolinijski kod ne pravi ogromne blokove
+    public static final int MAX_BLOCK_LENGTH = 64;
+    // Granularnost indeksa za invalidaciju (64 bajta po regionu)
+    private static final int REGION_SHIFT = 6;
+
+    private final Map<Long, DecodedBlock> blocks = new HashMap<>();
+    // region -> blokovi koji pokrivaju bar jedan bajt tog regiona
+    private final Map<Long, List<DecodedBlock>> blocksByRegion = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    /**
+     * Returns the decoded block starting at {@code programCounter}, decoding it on a miss.
+     *
+     * @param programCounter The address of the first instruction of the block.
+     * @param processor      The processor used to fetch and decode instructions on a miss.
+     * @return The decoded block.
+     */
+    public DecodedBlock getBlock(long programCounter, Processor processor) {
+        DecodedBlock block = blocks.get(programCounter);
+        if (block != null) {
+            hits++;
+            return block;
+        }
+        misses++;
+        block = decodeBlock(programCounter, processor);
+        blocks.put(programCounter, block);
+        for (long region = block.getStartAddress() >> REGION_SHIFT; region <= block.getEndAddress() >> REGION_SHIFT; region++) {
+            blocksByRegion.computeIfAbsent(region, k -> new ArrayList<>()).add(block);
+        }
+        return block;
+    }
+
+    private DecodedBlock decodeBlock(long programCounter, Processor processor) {
+        List<DecodedInstruction> instructions = new ArrayList<>();
+        long address = programCounter;
+        while (instructions.size() < MAX_BLOCK_LENGTH) {
+            DecodedInstruction instruction = processor.decodeAt(address);
+            instructions.add(instruction);
+            if (instruction.endsBlock()) {
+                break;
+            }
+            address += 1;
+        }
+        return new DecodedBlock(programCounter, instructions.toArray(new DecodedInstruction[0]));
+    }
+
+    @Override
+    public void onMemoryWrite(long address, int length) {
+        for (long region = address >> REGION_SHIFT; region <= (address + length - 1) >> REGION_SHIFT; region++) {
+            List<DecodedBlock> candidates = blocksByRegion.get(region);
+            if (candidates == null) {
+                continue;
+            }
+            // Kopija liste jer invalidate() uklanja blokove iz indeksa
+            for (DecodedBlock block : new ArrayList<>(candidates)) {
+                if (block.overlaps(address, length)) {
+                    invalidate(block);
+                }
+            }
+        }
+    }
+
+    private void invalidate(DecodedBlock block) {
+        if (!block.isValid()) {
+            return;
+        }
+        block.invalidate();
+        blocks.remove(block.getStartAddress());
+        for (long region = block.getStartAddress() >> REGION_SHIFT; region <= block.getEndAddress() >> REGION_SHIFT; region++) {
+            List<DecodedBlock> list = blocksByRegion.get(region);
+            if (list != null) {
+                list.remove(block);
+                if (list.isEmpty()) {
+                    blocksByRegion.remove(region);
+                }
+            }
+        }
+        invalidations++;
+    }
+
+    /**
+     * Drops every decoded block, e.g. after a new program has been loaded.
+     */
+    public void clear() {
+        for (DecodedBlock block : blocks.values()) {
+            block.invalidate();
+        }
+        blocks.clear();
+        blocksByRegion.clear();
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public void blockCacheMonitor() {
+        System.out.println("No. of decoded block hits: " + hits + "\n");
+        System.out.println("No. of decoded block misses: " + misses + "\n");
+        System.out.println("No. of decoded block invalidations: " + invalidations + "\n");
+    }
+}
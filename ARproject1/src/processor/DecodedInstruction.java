@@ -0,0 +1,86 @@
+package processor;
+
+/**
+ * An instruction whose opcode, registers and immediate/address operand have already been
+ * extracted from the raw instruction word, so executing it again does not repeat the decode.
+ */
+public final class DecodedInstruction {
+    private final Opcode opcode;          // null ako opcode nije validan
+    private final int destRegister;
+    private final int srcRegister1;
+    private final int srcRegister2;
+    private final long operand;           // donjih 32 bita instrukcije (immediate ili adresa)
+    private final InstructionHandler handler;   // razriješen jednom, pri dekodiranju
+
+    public DecodedInstruction(Opcode opcode, int destRegister, int srcRegister1, int srcRegister2, long operand) {
+        this.opcode = opcode;
+        this.destRegister = destRegister;
+        this.srcRegister1 = srcRegister1;
+        this.srcRegister2 = srcRegister2;
+        this.operand = operand;
+        this.handler = DispatchTable.handlerFor(opcode);
+    }
+
+    /**
+     * Executes this instruction through its pre-resolved {@link DispatchTable} handler.
+     */
+    public void executeOn(Processor processor) {
+        handler.execute(processor, destRegister, srcRegister1, srcRegister2, operand);
+    }
+
+    /**
+     * Returns true if this instruction ends a basic block: any jump, HALT or an invalid opcode,
+     * because the next program counter can no longer be assumed to be the following address.
+     */
+    public boolean endsBlock() {
+        if (opcode == null) {
+            return true;
+        }
+        switch (opcode) {
+            case JMP:
+            case JE:
+            case JNE:
+            case JGE:
+            case JL:
+            case HALT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    public int getDestRegister() {
+        return destRegister;
+    }
+
+    public int getSrcRegister1() {
+        return srcRegister1;
+    }
+
+    public int getSrcRegister2() {
+        return srcRegister2;
+    }
+
+    public long getOperand() {
+        return operand;
+    }
+
+    public InstructionHandler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedInstruction{" +
+                "opcode=" + opcode +
+                ", destRegister=" + destRegister +
+                ", srcRegister1=" + srcRegister1 +
+                ", srcRegister2=" + srcRegister2 +
+                ", operand=" + operand +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package processor;
+
+/**
+ * Selects how {@link Processor} dispatches an instruction to its implementation.
+ */
+public enum DispatchMode {
+    /** The original switch over {@link Opcode} in Processor, kept as the reference path. */
+    SWITCH,
+    /** Pre-built handler objects looked up by opcode byte in {@link DispatchTable}. */
+    TABLE
+}
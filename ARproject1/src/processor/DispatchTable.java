@@ -0,0 +1,73 @@
+package processor;
+
+/**
+ * Table-driven opcode dispatch. Every possible opcode byte maps straight to a pre-built
+ * {@link InstructionHandler}, so dispatching an instruction allocates nothing and each
+ * handler calls exactly one Processor method.
+ */
+public final class DispatchTable {
+    private static final InstructionHandler INVALID = (p, d, s1, s2, op) -> p.halt();
+
+    // Indeks je bajt opcode-a (0-255), neiskorišteni bajtovi zaustavljaju procesor
+    private static final InstructionHandler[] HANDLERS = new InstructionHandler[256];
+
+    static {
+        for (int i = 0; i < HANDLERS.length; i++) {
+            HANDLERS[i] = INVALID;
+        }
+        HANDLERS[Opcode.ADD.ordinal()] = (p, d, s1, s2, op) -> p.add(d, s1, s2);
+        HANDLERS[Opcode.SUB.ordinal()] = (p, d, s1, s2, op) -> p.sub(d, s1, s2);
+        HANDLERS[Opcode.MUL.ordinal()] = (p, d, s1, s2, op) -> p.mul(d, s1, s2);
+        HANDLERS[Opcode.DIV.ordinal()] = (p, d, s1, s2, op) -> p.div(d, s1, s2);
+        HANDLERS[Opcode.AND.ordinal()] = (p, d, s1, s2, op) -> p.and(d, s1, s2);
+        HANDLERS[Opcode.OR.ordinal()] = (p, d, s1, s2, op) -> p.or(d, s1, s2);
+        HANDLERS[Opcode.XOR.ordinal()] = (p, d, s1, s2, op) -> p.xor(d, s1, s2);
+        HANDLERS[Opcode.NOT.ordinal()] = (p, d, s1, s2, op) -> p.not(d, s1);
+        HANDLERS[Opcode.MOV_REG.ordinal()] = (p, d, s1, s2, op) -> p.mov(d, s1);
+        HANDLERS[Opcode.MOV_IMM.ordinal()] = (p, d, s1, s2, op) -> p.mov(d, op);
+        HANDLERS[Opcode.MOV_RAM.ordinal()] = (p, d, s1, s2, op) -> p.movFromRam(d, op, true);
+        HANDLERS[Opcode.JMP.ordinal()] = (p, d, s1, s2, op) -> p.jmp(op, true);
+        HANDLERS[Opcode.JE.ordinal()] = (p, d, s1, s2, op) -> p.je(op, true);
+        HANDLERS[Opcode.JNE.ordinal()] = (p, d, s1, s2, op) -> p.jne(op, true);
+        HANDLERS[Opcode.JGE.ordinal()] = (p, d, s1, s2, op) -> p.jge(op, true);
+        HANDLERS[Opcode.JL.ordinal()] = (p, d, s1, s2, op) -> p.jl(op, true);
+        HANDLERS[Opcode.CMP.ordinal()] = (p, d, s1, s2, op) -> p.cmp(s1, s2);
+        HANDLERS[Opcode.INPUT_CHAR.ordinal()] = (p, d, s1, s2, op) -> p.inputChar(d);
+        HANDLERS[Opcode.OUTPUT_CHAR.ordinal()] = (p, d, s1, s2, op) -> p.outputChar(s1);
+        // HALT ostaje INVALID, isto kao default grana u switch-u
+    }
+
+    private DispatchTable() {
+    }
+
+    /**
+     * Returns the handler for an opcode byte.
+     *
+     * @param opcodeValue The opcode byte (0-255).
+     * @return The handler, never null.
+     */
+    public static InstructionHandler handlerFor(int opcodeValue) {
+        return HANDLERS[opcodeValue & 0xFF];
+    }
+
+    /**
+     * Returns the handler for an already decoded opcode; null means an invalid opcode.
+     */
+    public static InstructionHandler handlerFor(Opcode opcode) {
+        return opcode == null ? INVALID : HANDLERS[opcode.ordinal()];
+    }
+
+    /**
+     * Decodes the fields of {@code decodedInstruction} and executes it through the table.
+     *
+     * @param processor          The processor executing the instruction.
+     * @param decodedInstruction The instruction as returned by {@link Processor#decodeInstruction(long)}.
+     */
+    public static void dispatch(Processor processor, long decodedInstruction) {
+        HANDLERS[(int) ((decodedInstruction >> 56) & 0xFF)].execute(processor,
+                (int) ((decodedInstruction >> 48) & 0xFF),
+                (int) ((decodedInstruction >> 40) & 0xFF),
+                (int) ((decodedInstruction >> 32) & 0xFF),
+                decodedInstruction & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,19 @@
+package processor;
+
+/**
+ * Implementation of a single opcode, used by the table-driven dispatch in {@link DispatchTable}.
+ */
+@FunctionalInterface
+public interface InstructionHandler {
+
+    /**
+     * Executes the instruction on the given processor.
+     *
+     * @param processor    The processor executing the instruction.
+     * @param destRegister The destination register index.
+     * @param srcRegister1 The first source register index.
+     * @param srcRegister2 The second source register index.
+     * @param operand      The immediate value or address in the lower 32 bits of the instruction.
+     */
+    void execute(Processor processor, int destRegister, int srcRegister1, int srcRegister2, long operand);
+}
@@ -20,5 +20,22 @@ public enum Opcode {
     CMP,
     INPUT_CHAR,
     OUTPUT_CHAR,
-    HALT
+    HALT;
+
+    // values() svaki put klonira niz, zato ga čuvamo jednom
+    private static final Opcode[] VALUES = values();
+
+    /**
+     * Returns the opcode encoded by {@code value}, or null if the value is not a valid opcode.
+     * Unlike {@code values()[value]} this does not clone the enum array on every call.
+     *
+     * @param value The opcode byte of an instruction (0-255).
+     * @return The matching opcode or null.
+     */
+    public static Opcode fromValue(int value) {
+        if (value < 0 || value >= VALUES.length) {
+            return null;
+        }
+        return VALUES[value];
+    }
 }
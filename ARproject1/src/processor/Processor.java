@@ -1,13 +1,18 @@
 package processor;
 
 import cache.Cache;
+import cache.CacheLevel;
 import memory.Memory;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.File;
 import java.io.FileNotFoundException;
 
 public class Processor{
-    private static final int NUM_GENERAL_PURPOSE_REGISTERS = 4;
+    static final int NUM_GENERAL_PURPOSE_REGISTERS = 4;
     public int getNUM_GENERAL_PURPOSE_REGISTERS(){
         return NUM_GENERAL_PURPOSE_REGISTERS;
     }
@@ -24,11 +29,125 @@ public class Processor{
     //  for halting..
     private boolean isRunning = true;
 
+    //  keš dekodiranih osnovnih blokova i pozicija unutar trenutnog bloka
+    private final DecodedBlockCache blockCache = new DecodedBlockCache();
+    private DecodedBlock currentBlock;
+    private int blockCursor;
+
+    //  način dispečovanja instrukcija: switch (referentni) ili tabela handlera
+    private DispatchMode dispatchMode = DispatchMode.SWITCH;
+
+    //  dinamičko prevođenje vrućih blokova u JVM bytecode
+    public static final int DEFAULT_TRANSLATION_THRESHOLD = 50;
+    private final BlockTranslator translator = new BlockTranslator();
+    private boolean translationEnabled = true;
+    private int translationThreshold = DEFAULT_TRANSLATION_THRESHOLD;
+    private final int[] packedFlags = new int[1];
+
+    //  statistika izvršavanja i kontrola batch izvršavanja (run)
+    private long instructionsRetired = 0;
+    private long cycleCount = 0;
+    private long[] breakpoints = new long[0];     // sortirano, za binarnu pretragu
+    private boolean ioEventPending = false;
+
+    //  uređaj iza INPUT_CHAR i OUTPUT_CHAR; podrazumijevano konzola host-a
+    private ConsoleDevice console = ConsoleDevice.system();
+
     public Processor(Memory memory, Cache cache) {
         this.generalPurposeRegisters = new long[NUM_GENERAL_PURPOSE_REGISTERS];
         this.programCounter = 0;
         this.memory = memory;
         this.cache = cache;
+        if (cache != null) {
+            // Upisi u memoriju (samomodifikujući kod) poništavaju dekodirane blokove
+            cache.addWriteListener(blockCache);
+            // Stride prefetcher grupiše pristupe po instrukciji
+            cache.setProgramCounterSource(this::getProgramCounter);
+        }
+    }
+
+    // Kopija arhitekturnog stanja (registri, PC, zastavice, brojači) nad drugom memorijom i kešom
+    Processor(Processor source, Memory memory, Cache cache) {
+        this(memory, cache);
+        System.arraycopy(source.generalPurposeRegisters, 0, generalPurposeRegisters, 0, NUM_GENERAL_PURPOSE_REGISTERS);
+        this.programCounter = source.programCounter;
+        this.zeroFlag = source.zeroFlag;
+        this.greaterThanFlag = source.greaterThanFlag;
+        this.lessThanFlag = source.lessThanFlag;
+        this.isRunning = source.isRunning;
+        this.instructionsRetired = source.instructionsRetired;
+        this.cycleCount = source.cycleCount;
+        this.breakpoints = source.breakpoints.clone();
+        this.dispatchMode = source.dispatchMode;
+        this.console = source.console;
+        this.translationEnabled = source.translationEnabled;
+        this.translationThreshold = source.translationThreshold;
+    }
+
+    /**
+     * Writes the architectural state: program counter, registers, flags, the running flag and the
+     * retired instruction and cycle counters. Memory and cache are saved separately.
+     */
+    public void saveState(DataOutput out) throws IOException {
+        out.writeLong(programCounter);
+        out.writeInt(NUM_GENERAL_PURPOSE_REGISTERS);
+        for (long register : generalPurposeRegisters) {
+            out.writeLong(register);
+        }
+        out.writeByte((zeroFlag ? 1 : 0) | (greaterThanFlag ? 2 : 0) | (lessThanFlag ? 4 : 0) | (isRunning ? 8 : 0));
+        out.writeLong(instructionsRetired);
+        out.writeLong(cycleCount);
+    }
+
+    /**
+     * Reads a state written by {@link #saveState(DataOutput)}. Decoded blocks are dropped, since the
+     * memory they were decoded from may have changed.
+     *
+     * @throws IOException If the register count does not match this processor.
+     */
+    public void loadState(DataInput in) throws IOException {
+        long pc = in.readLong();
+        int registers = in.readInt();
+        if (registers != NUM_GENERAL_PURPOSE_REGISTERS) {
+            throw new IOException("Saved state has " + registers + " registers, expected " + NUM_GENERAL_PURPOSE_REGISTERS);
+        }
+        for (int i = 0; i < registers; i++) {
+            generalPurposeRegisters[i] = in.readLong();
+        }
+        int flags = in.readByte();
+        programCounter = pc;
+        zeroFlag = (flags & 1) != 0;
+        greaterThanFlag = (flags & 2) != 0;
+        lessThanFlag = (flags & 4) != 0;
+        isRunning = (flags & 8) != 0;
+        instructionsRetired = in.readLong();
+        cycleCount = in.readLong();
+        blockCache.clear();
+        currentBlock = null;
+    }
+
+    /**
+     * Takes an O(1) snapshot of the architectural state: the registers, program counter and flags
+     * are copied and the memory is forked copy-on-write (see {@link Memory#fork()}). Cache contents
+     * and decoded blocks are not part of the snapshot.
+     *
+     * @throws UnsupportedOperationException If the memory is not on the heap.
+     */
+    public ProcessorSnapshot snapshot() {
+        return new ProcessorSnapshot(new Processor(this, memory.fork(), null));
+    }
+
+    /**
+     * Forks this processor: the child continues from the current state on a copy-on-write fork of
+     * the memory, with a cache built by {@code cacheFactory} on the child memory. Parent and child
+     * then run independently.
+     *
+     * @param cacheFactory Builds the child's cache for the forked memory; may return null, and the child
+     *                     then accesses memory directly.
+     */
+    public Processor fork(Function<Memory, Cache> cacheFactory) {
+        Memory child = memory.fork();
+        return new Processor(this, child, cacheFactory.apply(child));
     }
 
     public void add(int destRegister, int srcRegister1, int srcRegister2) {
@@ -115,11 +234,10 @@ public class Processor{
     public void movFromRam(int destRegister, long address, boolean indirect) {
         // Indirektno adresiranje
         if (indirect) {
-            long targetAddress = cache.readFromCache(address);
-            generalPurposeRegisters[destRegister] = memory.readFromVirtualAddress(targetAddress);
+            generalPurposeRegisters[destRegister] = loadIndirect(address);
         } else {
-            // Direktno adresiranje
-            generalPurposeRegisters[destRegister] = memory.readFromVirtualAddress(address);
+            // Direktno adresiranje (kroz keš, da bi pristup vidjela i magistrala koherencije)
+            generalPurposeRegisters[destRegister] = readFromMemory(address);
         }
         programCounter += 1;
     }
@@ -132,22 +250,34 @@ public class Processor{
         // Dohvati podatak iz odredišnog registra
         long dataToMove = generalPurposeRegisters[destRegisterIndex];
 
+        if (!indirect) {
+            // Direktno adresiranje: jedan 64-bitni upis kroz hijerarhiju umjesto osam bajtova
+            if (cache != null) {
+                cache.writeLongToCache(memoryAddress, dataToMove);
+            } else {
+                memory.writeLong(memoryAddress, dataToMove);
+                blockCache.onMemoryWrite(memoryAddress, Long.BYTES);
+            }
+            programCounter += 1;
+            return;
+        }
+
         // Razdvoji 64-bitni podatak u osam 8-bitnih vrijednosti
         for (int i = 0; i < Long.BYTES; i++) {
             byte dataByte = (byte) (dataToMove >>> (i * Byte.SIZE));
 
-            // Ako je indirektno adresiranje, pročitaj stvarnu adresu iz keš memorije
-            long actualAddress = indirect ? cache.readFromCache(memoryAddress + i) : memoryAddress + i;
+            // Indirektno adresiranje: pročitaj stvarnu adresu iz keš memorije
+            long actualAddress = readFromMemory(memoryAddress + i);
 
-            // Pozovi writeToMemory metodu iz Cache klase za pisanje u RAM memoriju
-            cache.writeToRAM(actualAddress, dataByte);
+            // Upis kroz hijerarhiju keša (write politike, MESI)
+            writeToMemory(actualAddress, dataByte);
         }
         programCounter += 1;
     }
 
     public void jmp(long targetAddress, boolean indirect) {
         // Ako je indirektno grananje, pročitaj stvarnu adresu iz keš memorije
-        long actualAddress = indirect ? cache.readFromCache(targetAddress) : targetAddress;
+        long actualAddress = indirect ? resolveJumpTarget(targetAddress) : targetAddress;
 
         // Postavi programski brojač na novu adresu
         //programCounter = actualAddress;
@@ -210,18 +340,33 @@ public class Processor{
         }
     }
 
+    // Indirektno čitanje: adresa podatka se čita iz keša, podatak iz memorije
+    long loadIndirect(long address) {
+        long targetAddress = readFromMemory(address);
+        return readFromMemory(targetAddress);
+    }
+
+    // Indirektni skok: stvarna adresa skoka se čita iz keša
+    long resolveJumpTarget(long targetAddress) {
+        return readFromMemory(targetAddress);
+    }
+
     public void inputChar(int destRegisterIndex) {
         if (destRegisterIndex < 0 || destRegisterIndex >= NUM_GENERAL_PURPOSE_REGISTERS) {
             halt(); // Prekid izvršavanja ako je indeks registra neispravan
         }
 
-        // Simulacija učitavanja znaka sa tastature
-        Scanner scanner = new Scanner(System.in);
-        char inputChar = scanner.next().charAt(0);
+        // Učitavanje znaka sa konzole (jedan bafer za cijeli rad, ništa se ne gubi između instrukcija)
+        int inputChar = console.readChar();
+        if (inputChar < 0) {
+            halt(); // Kraj ulaza
+            return;
+        }
 
         // Smjesti učitani znak u odredišni registar
         generalPurposeRegisters[destRegisterIndex] = inputChar;
         programCounter += 1;
+        ioEventPending = true;
     }
 
     public void outputChar(int srcRegisterIndex) {
@@ -231,12 +376,15 @@ public class Processor{
 
         // Simulacija ispisa znaka na ekran
         char outputChar = (char) generalPurposeRegisters[srcRegisterIndex];
-        System.out.print(outputChar);
+        console.writeChar(outputChar);
         programCounter += 1;
+        ioEventPending = true;
     }
 
     public void halt(){
         this.isRunning = false;
+        // Ispis koji čeka u baferu konzole mora izaći prije kraja
+        console.flush();
     }
 
     public long getGeneralPurposeRegisterValue(int registerIndex) {
@@ -246,14 +394,20 @@ public class Processor{
         return generalPurposeRegisters[registerIndex];
     }
 
-    // Method to read from memory (using cache)
+    // Method to read from memory (using cache; bez keša direktno iz memorije)
     public byte readFromMemory(long address) {
-        return cache.readFromCache(address);
+        return cache != null ? cache.readFromCache(address) : memory.readFromVirtualAddress(address);
     }
 
-    // Method to write to memory (using cache)
+    // Method to write to memory (using cache; bez keša direktno u memoriju)
     public void writeToMemory(long address, byte data) {
-        cache.writeToCache(address, data);
+        if (cache != null) {
+            cache.writeToCache(address, data);
+            return;
+        }
+        memory.writeToVirtualAddress(address, data);
+        // Bez keša nema ni njegovih listener-a: dekodirani blokovi se poništavaju ovdje
+        blockCache.onMemoryWrite(address, 1);
     }
 
     // Method to read from a virtual address
@@ -270,7 +424,9 @@ public class Processor{
 
     // Method to translate virtual address to physical address
     public long translateVirtualToPhysical(long virtualAddress) {
-        return memory.translateVirtualToPhysical(virtualAddress).getIndex();
+        Memory.MemoryPage page = memory.translateVirtualToPhysical(virtualAddress);
+        // -1 za adresu na koju još nije upisivano (stranica nije alocirana)
+        return page != null ? page.getIndex() : -1;
     }
 
     // Method to get the offset from a virtual address
@@ -279,12 +435,13 @@ public class Processor{
     }
 
     // Method to get the cache level based on the address
-    public Cache.CacheLevel getCacheLevel(long address) {
+    public CacheLevel getCacheLevel(long address) {
         return cache.getCacheLevel(address);
     }
 
     // Method to print the processor state
     public void printProcessorState() {
+        console.flush();
         System.out.println("======= Processor State =======");
         System.out.println("Program Counter (PC): " + programCounter);
         System.out.println("General Purpose Registers:");
@@ -299,25 +456,47 @@ public class Processor{
 
    public long fetchInstructionFromMemory(long programCounter) {
         // Koristi programski brojač za čitanje instrukcije iz memorije
-        byte[] instructionBytes = new byte[4]; // Pretpostavljamo da je svaka instrukcija 4 bajta
-        for (int i = 0; i < 4; i++) {
-            instructionBytes[i] = readFromMemory(programCounter + i);
-        }
-
-        // Pretvori niz bajtova u 32-bitni long (instrukciju)
-        long instruction = 0;
-        for (int i = 0; i < 4; i++) {
-            instruction |= (instructionBytes[i] & 0xFFL) << (i * 8);
-        }
-        return instruction;
+        // Pretpostavljamo da je svaka instrukcija 4 bajta (little-endian), čitana jednim prevođenjem;
+        // dohvat ide kroz keš da bi ulazio u statistike (pogoci, AMAT, MRC), a bajtovi dolaze iz memorije
+        int instruction = cache != null ? cache.readIntFromCache(programCounter) : memory.readInt(programCounter);
+        return instruction & 0xFFFFFFFFL;
     }
 
     public void executeInstruction(long decodedInstruction) {
+        if (dispatchMode == DispatchMode.TABLE) {
+            DispatchTable.dispatch(this, decodedInstruction);
+            return;
+        }
         Opcode opcode = extractOpcode(decodedInstruction);
         int destRegister = extractDestRegister(decodedInstruction);
         int srcRegister1 = extractSrcRegister1(decodedInstruction);
         int srcRegister2 = extractSrcRegister2(decodedInstruction);
+        // Assuming immediate value / address is in the lower 32 bits of the decodedInstruction
+        long operand = decodedInstruction & 0xFFFFFFFFL;
+
+        execute(opcode, destRegister, srcRegister1, srcRegister2, operand);
+    }
 
+    /**
+     * Executes one already decoded instruction.
+     *
+     * @param instruction The decoded instruction to execute.
+     */
+    public void executeInstruction(DecodedInstruction instruction) {
+        if (dispatchMode == DispatchMode.TABLE) {
+            instruction.executeOn(this);
+            return;
+        }
+        execute(instruction.getOpcode(), instruction.getDestRegister(), instruction.getSrcRegister1(),
+                instruction.getSrcRegister2(), instruction.getOperand());
+    }
+
+    private void execute(Opcode opcode, int destRegister, int srcRegister1, int srcRegister2, long operand) {
+        if (opcode == null) {
+            // Invalid instruction
+            halt();
+            return;
+        }
         switch (opcode) {
             case ADD:
                 add(destRegister, srcRegister1, srcRegister2);
@@ -347,39 +526,25 @@ public class Processor{
                 mov(destRegister, srcRegister1);
                 break;
             case MOV_IMM:
-                // Assuming immediate value is in the lower 32 bits of the decodedInstruction
-                long immediateValue = decodedInstruction & 0xFFFFFFFFL;
-                mov(destRegister, immediateValue);
+                mov(destRegister, operand);
                 break;
             case MOV_RAM:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long memoryAddress = decodedInstruction & 0xFFFFFFFFL;
-                movFromRam(destRegister, memoryAddress, true);
+                movFromRam(destRegister, operand, true);
                 break;
             case JMP:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long jumpAddress = decodedInstruction & 0xFFFFFFFFL;
-                jmp(jumpAddress, true);
+                jmp(operand, true);
                 break;
             case JE:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long jeAddress = decodedInstruction & 0xFFFFFFFFL;
-                je(jeAddress, true);
+                je(operand, true);
                 break;
             case JNE:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long jneAddress = decodedInstruction & 0xFFFFFFFFL;
-                jne(jneAddress, true);
+                jne(operand, true);
                 break;
             case JGE:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long jgeAddress = decodedInstruction & 0xFFFFFFFFL;
-                jge(jgeAddress, true);
+                jge(operand, true);
                 break;
             case JL:
-                // Assuming address is in the lower 32 bits of the decodedInstruction
-                long jlAddress = decodedInstruction & 0xFFFFFFFFL;
-                jl(jlAddress, true);
+                jl(operand, true);
                 break;
             case CMP:
                 cmp(srcRegister1, srcRegister2);
@@ -397,6 +562,272 @@ public class Processor{
         }
     }
 
+    /**
+     * Executes the instruction at the current program counter using the decoded block cache.
+     * The instruction is fetched and decoded only the first time its block is reached;
+     * afterwards the already extracted fields are reused until the block is invalidated.
+     */
+    public void step() {
+        DecodedBlock block = blockAtProgramCounter();
+        DecodedInstruction instruction = block.get(blockCursor++);
+        executeInstruction(instruction);
+        retire(1);
+    }
+
+    /**
+     * Executes instructions from the current basic block until the block ends, control leaves it
+     * or the processor halts. When translation is enabled, a block that has been entered
+     * {@link #getTranslationThreshold()} times is compiled to JVM bytecode and later entries run
+     * the compiled code; instructions that cannot be compiled (I/O, HALT) and blocks invalidated by
+     * guest memory writes always fall back to the interpreter.
+     *
+     * @return The number of instructions retired.
+     */
+    public int executeBlock() {
+        DecodedBlock block = blockAtProgramCounter();
+
+        TranslatedBlock translated = hotTranslation(block);
+        if (translated != null) {
+            return runTranslated(block, translated);
+        }
+
+        int retired = 0;
+        while (isRunning && block.isValid() && blockCursor < block.length()
+                && programCounter == block.getStartAddress() + blockCursor) {
+            executeInstruction(block.get(blockCursor++));
+            retired++;
+        }
+        retire(retired);
+        return retired;
+    }
+
+    /**
+     * Runs up to {@code maxInstructions} instructions in one loop. The run stops early when the
+     * processor halts, when the program counter reaches a breakpoint (except at the very first
+     * instruction, so a run can resume from a breakpoint) or right after an INPUT_CHAR/OUTPUT_CHAR
+     * instruction, so the caller can service the console.
+     *
+     * @param maxInstructions The maximum number of instructions to retire.
+     * @return The number of retired instructions, the exit reason and the elapsed cycles.
+     */
+    public RunResult run(long maxInstructions) {
+        long retired = 0;
+        long startCycles = cycleCount;
+        RunResult.ExitReason exitReason;
+        ioEventPending = false;
+
+        while (true) {
+            if (!isRunning) {
+                exitReason = RunResult.ExitReason.HALTED;
+                break;
+            }
+            if (retired >= maxInstructions) {
+                exitReason = RunResult.ExitReason.INSTRUCTION_LIMIT;
+                break;
+            }
+            if (retired > 0 && breakpoints.length > 0 && isBreakpoint(programCounter)) {
+                exitReason = RunResult.ExitReason.BREAKPOINT;
+                break;
+            }
+
+            DecodedBlock block = blockAtProgramCounter();
+
+            // Prevedeni blok se koristi samo ako cijeli stane u preostali budžet i nema breakpoint-a unutar njega
+            TranslatedBlock translated = hotTranslation(block);
+            if (translated != null && block.getTranslatedLength() <= maxInstructions - retired
+                    && !hasBreakpointIn(block.getStartAddress() + 1, block.getStartAddress() + block.getTranslatedLength())) {
+                retired += runTranslated(block, translated);
+                continue;
+            }
+
+            executeInstruction(block.get(blockCursor++));
+            retired++;
+            retire(1);
+
+            if (ioEventPending) {
+                ioEventPending = false;
+                exitReason = isRunning ? RunResult.ExitReason.IO_EVENT : RunResult.ExitReason.HALTED;
+                break;
+            }
+        }
+        return new RunResult(retired, exitReason, cycleCount - startCycles);
+    }
+
+    // Blok na trenutnom programskom brojaču; nastavlja trenutni blok ako smo na očekivanoj poziciji
+    private DecodedBlock blockAtProgramCounter() {
+        DecodedBlock block = currentBlock;
+        if (block == null || !block.isValid() || blockCursor >= block.length()
+                || programCounter != block.getStartAddress() + blockCursor) {
+            // Nismo na očekivanoj poziciji u bloku (skok, kraj bloka ili invalidacija) - traži blok u kešu
+            block = blockCache.getBlock(programCounter, this);
+            currentBlock = block;
+            blockCursor = 0;
+        }
+        return block;
+    }
+
+    // Prevedeni kod bloka ako je blok dovoljno vruć; null znači interpretiranje
+    private TranslatedBlock hotTranslation(DecodedBlock block) {
+        if (!translationEnabled || blockCursor != 0) {
+            return null;
+        }
+        if (!block.isTranslationAttempted() && block.recordExecution() >= translationThreshold) {
+            block.setTranslated(translator.translate(block), translator.translatableLength(block));
+        }
+        return block.getTranslated();
+    }
+
+    private int runTranslated(DecodedBlock block, TranslatedBlock translated) {
+        packedFlags[0] = packFlags();
+        programCounter = translated.execute(this, generalPurposeRegisters, packedFlags);
+        unpackFlags(packedFlags[0]);
+        // Ostatak bloka (npr. I/O na kraju) nastavlja interpreter
+        blockCursor = block.getTranslatedLength();
+        retire(block.getTranslatedLength());
+        return block.getTranslatedLength();
+    }
+
+    private void retire(int count) {
+        instructionsRetired += count;
+        // Jednostavan model: jedna instrukcija po ciklusu
+        cycleCount += count;
+    }
+
+    /**
+     * Adds a breakpoint: {@link #run(long)} stops before executing the instruction at {@code address}.
+     */
+    public void addBreakpoint(long address) {
+        if (isBreakpoint(address)) {
+            return;
+        }
+        long[] updated = Arrays.copyOf(breakpoints, breakpoints.length + 1);
+        updated[breakpoints.length] = address;
+        Arrays.sort(updated);
+        breakpoints = updated;
+    }
+
+    public void removeBreakpoint(long address) {
+        int index = Arrays.binarySearch(breakpoints, address);
+        if (index < 0) {
+            return;
+        }
+        long[] updated = new long[breakpoints.length - 1];
+        System.arraycopy(breakpoints, 0, updated, 0, index);
+        System.arraycopy(breakpoints, index + 1, updated, index, breakpoints.length - index - 1);
+        breakpoints = updated;
+    }
+
+    public void clearBreakpoints() {
+        breakpoints = new long[0];
+    }
+
+    public boolean isBreakpoint(long address) {
+        return Arrays.binarySearch(breakpoints, address) >= 0;
+    }
+
+    // Da li postoji breakpoint u opsegu [from, to)
+    private boolean hasBreakpointIn(long from, long to) {
+        if (breakpoints.length == 0 || from >= to) {
+            return false;
+        }
+        int index = Arrays.binarySearch(breakpoints, from);
+        if (index >= 0) {
+            return true;
+        }
+        int insertion = -index - 1;
+        return insertion < breakpoints.length && breakpoints[insertion] < to;
+    }
+
+    public long getInstructionsRetired() {
+        return instructionsRetired;
+    }
+
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public ConsoleDevice getConsole() {
+        return console;
+    }
+
+    /**
+     * Connects INPUT_CHAR and OUTPUT_CHAR to another device, e.g. files or in-memory streams.
+     */
+    public void setConsole(ConsoleDevice console) {
+        this.console = console;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    private int packFlags() {
+        return (zeroFlag ? TranslationRuntime.ZERO_FLAG : 0)
+                | (greaterThanFlag ? TranslationRuntime.GREATER_THAN_FLAG : 0)
+                | (lessThanFlag ? TranslationRuntime.LESS_THAN_FLAG : 0);
+    }
+
+    private void unpackFlags(int flags) {
+        setFlags((flags & TranslationRuntime.ZERO_FLAG) != 0,
+                (flags & TranslationRuntime.GREATER_THAN_FLAG) != 0,
+                (flags & TranslationRuntime.LESS_THAN_FLAG) != 0);
+    }
+
+    public boolean isTranslationEnabled() {
+        return translationEnabled;
+    }
+
+    /**
+     * Turns translation of hot blocks on or off. Turning it off makes {@link #executeBlock()}
+     * interpret every instruction; already compiled blocks are simply not used.
+     */
+    public void setTranslationEnabled(boolean translationEnabled) {
+        this.translationEnabled = translationEnabled;
+    }
+
+    public int getTranslationThreshold() {
+        return translationThreshold;
+    }
+
+    public void setTranslationThreshold(int translationThreshold) {
+        this.translationThreshold = translationThreshold;
+    }
+
+    public BlockTranslator getTranslator() {
+        return translator;
+    }
+
+    /**
+     * Fetches and fully decodes the instruction at {@code address}.
+     * Used by the {@link DecodedBlockCache} when it builds a new block.
+     */
+    DecodedInstruction decodeAt(long address) {
+        long decodedInstruction = decodeInstruction(fetchInstructionFromMemory(address));
+        return new DecodedInstruction(extractOpcode(decodedInstruction), extractDestRegister(decodedInstruction),
+                extractSrcRegister1(decodedInstruction), extractSrcRegister2(decodedInstruction),
+                decodedInstruction & 0xFFFFFFFFL);
+    }
+
+    public DecodedBlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * Selects the dispatch mode used by {@link #executeInstruction(long)} and {@link #step()}.
+     * Both modes execute the same Processor methods, so a program gives identical results in either.
+     */
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
     // Metoda za dekodiranje instrukcije
     public long decodeInstruction(long instruction) {
         // Pretpostavljamo da su stariji 8 bitova opcode, a preostalih 56 bitova su registri
@@ -413,7 +844,7 @@ public class Processor{
     private Opcode extractOpcode(long decodedInstruction) {
         // Prvi bajt instrukcije predstavlja opcode
         int opcodeValue = (int) ((decodedInstruction >> 56) & 0xFF);
-        return Opcode.values()[opcodeValue];
+        return Opcode.fromValue(opcodeValue);
     }
 
     // Pomoćna metoda za ekstrakciju destinacionog registra
@@ -0,0 +1,45 @@
+package processor;
+
+import cache.Cache;
+import memory.Memory;
+
+import java.util.function.Function;
+
+/**
+ * Frozen architectural state of a {@link Processor}, taken with {@link Processor#snapshot()}.
+ * The snapshot memory is never written, so every {@link #restore} starts from exactly the same
+ * point; each restore forks the memory again in O(1), so restores share all unmodified pages.
+ */
+public final class ProcessorSnapshot {
+    private final Processor frozen;     // nikad se ne izvršava
+
+    ProcessorSnapshot(Processor frozen) {
+        this.frozen = frozen;
+    }
+
+    /**
+     * Creates a processor that continues from the snapshot with its own cache.
+     *
+     * @param cacheFactory Builds the cache of the new processor for its memory; may return null, and the
+     *                     processor then accesses memory directly.
+     */
+    public Processor restore(Function<Memory, Cache> cacheFactory) {
+        Memory memory = frozen.getMemory().fork();
+        return new Processor(frozen, memory, cacheFactory.apply(memory));
+    }
+
+    public long getProgramCounter() {
+        return frozen.getProgramCounter();
+    }
+
+    public long getInstructionsRetired() {
+        return frozen.getInstructionsRetired();
+    }
+
+    /**
+     * Returns the memory held by the snapshot. It must only be read or forked.
+     */
+    public Memory getMemory() {
+        return frozen.getMemory();
+    }
+}
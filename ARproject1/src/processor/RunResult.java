@@ -0,0 +1,52 @@
+package processor;
+
+/**
+ * Result of {@link Processor#run(long)}.
+ */
+public final class RunResult {
+
+    /**
+     * Why a call to {@link Processor#run(long)} returned.
+     */
+    public enum ExitReason {
+        /** The processor executed HALT (or an invalid instruction). */
+        HALTED,
+        /** The requested number of instructions was retired. */
+        INSTRUCTION_LIMIT,
+        /** The program counter reached a breakpoint. */
+        BREAKPOINT,
+        /** An INPUT_CHAR or OUTPUT_CHAR instruction was executed. */
+        IO_EVENT
+    }
+
+    private final long retired;
+    private final ExitReason exitReason;
+    private final long elapsedCycles;
+
+    public RunResult(long retired, ExitReason exitReason, long elapsedCycles) {
+        this.retired = retired;
+        this.exitReason = exitReason;
+        this.elapsedCycles = elapsedCycles;
+    }
+
+    public long getRetired() {
+        return retired;
+    }
+
+    public ExitReason getExitReason() {
+        return exitReason;
+    }
+
+    public long getElapsedCycles() {
+        return elapsedCycles;
+    }
+
+    @Override
+    public String toString() {
+        return "RunResult{" +
+                "retired=" + retired +
+                ", exitReason=" + exitReason +
+                ", elapsedCycles=" + elapsedCycles +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package processor;
+
+/**
+ * A guest basic block compiled to JVM bytecode by {@link BlockTranslator}.
+ * The generated implementation keeps the general purpose registers and the flags in
+ * JVM locals and writes them back before returning.
+ */
+public interface TranslatedBlock {
+
+    /**
+     * Runs the compiled block.
+     *
+     * @param processor The processor the block runs on (used for memory and jump target access).
+     * @param registers The general purpose registers, read on entry and written back on exit.
+     * @param flags     One element holding the packed flags (see {@link TranslationRuntime}).
+     * @return The program counter after the block.
+     */
+    long execute(Processor processor, long[] registers, int[] flags);
+}
@@ -0,0 +1,54 @@
+package processor;
+
+/**
+ * Helpers called from code generated by {@link BlockTranslator}.
+ * Everything that needs a branch or touches the cache lives here, so the generated
+ * methods stay straight-line code; HotSpot inlines these small static methods.
+ */
+public final class TranslationRuntime {
+    // Zastavice spakovane u jedan int
+    public static final int ZERO_FLAG = 1;
+    public static final int GREATER_THAN_FLAG = 2;
+    public static final int LESS_THAN_FLAG = 4;
+
+    private TranslationRuntime() {
+    }
+
+    public static long div(long operand1, long operand2, long previous) {
+        // Dijeljenje nulom ostavlja odredišni registar nepromijenjen, isto kao Processor.div
+        return operand2 != 0 ? operand1 / operand2 : previous;
+    }
+
+    public static int compare(long value1, long value2) {
+        if (value1 == value2) {
+            return ZERO_FLAG;
+        } else if (value1 > value2) {
+            return GREATER_THAN_FLAG;
+        }
+        return LESS_THAN_FLAG;
+    }
+
+    public static long loadIndirect(Processor processor, long address) {
+        return processor.loadIndirect(address);
+    }
+
+    public static long jmp(Processor processor, long targetAddress) {
+        return processor.resolveJumpTarget(targetAddress);
+    }
+
+    public static long je(Processor processor, int flags, long targetAddress, long nextAddress) {
+        return (flags & ZERO_FLAG) != 0 ? processor.resolveJumpTarget(targetAddress) : nextAddress;
+    }
+
+    public static long jne(Processor processor, int flags, long targetAddress, long nextAddress) {
+        return (flags & ZERO_FLAG) == 0 ? processor.resolveJumpTarget(targetAddress) : nextAddress;
+    }
+
+    public static long jge(Processor processor, int flags, long targetAddress, long nextAddress) {
+        return (flags & (GREATER_THAN_FLAG | ZERO_FLAG)) != 0 ? processor.resolveJumpTarget(targetAddress) : nextAddress;
+    }
+
+    public static long jl(Processor processor, int flags, long targetAddress, long nextAddress) {
+        return (flags & (GREATER_THAN_FLAG | ZERO_FLAG)) == 0 ? processor.resolveJumpTarget(targetAddress) : nextAddress;
+    }
+}
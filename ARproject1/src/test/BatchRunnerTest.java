@@ -0,0 +1,155 @@
+package test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import emulator.BatchResult;
+import emulator.BatchRunner;
+import memory.Memory;
+import processor.Processor;
+import processor.RunResult;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BatchRunnerTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("batch");
+        for (int i = 0; i < 6; i++) {
+            Files.write(directory.resolve("program" + i + ".txt"), Arrays.asList("MOV R1, " + i, "ADD R1, R1"));
+        }
+        Files.createDirectory(directory.resolve("nested"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static BatchRunner newRunner(int parallelism, long limit) {
+        BatchRunner runner = new BatchRunner(parallelism, limit);
+        runner.setCacheGeometry(new int[]{1024, 4096}, new int[]{2, 4}, 64);
+        return runner;
+    }
+
+    @Test
+    public void testListProgramsSkipsDirectories() throws IOException {
+        List<Path> programs = BatchRunner.listPrograms(directory);
+        assertEquals(6, programs.size());
+        assertEquals("program0.txt", programs.get(0).getFileName().toString());
+    }
+
+    @Test
+    public void testEveryProgramRunsInIsolationWithinItsBudget() throws IOException {
+        // Gost ne može izvršiti HALT (svaka instrukcija se dekodira kao ADD), pa svaki program troši cijeli budžet
+        List<BatchResult> results = newRunner(3, 5000).run(BatchRunner.listPrograms(directory));
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            // Rezultati su u redoslijedu ulaza, bez obzira na redoslijed završavanja
+            assertEquals("program" + i + ".txt", result.getProgram());
+            assertEquals(RunResult.ExitReason.INSTRUCTION_LIMIT, result.getExitReason());
+            assertTrue(result.isTimedOut());
+            assertEquals(5000, result.getRetired());
+        }
+        // Isti program daje isti rezultat i kada se izvršava sekvencijalno
+        BatchResult sequential = newRunner(1, 5000).runProgram(directory.resolve("program0.txt"));
+        assertEquals(RunResult.ExitReason.INSTRUCTION_LIMIT, sequential.getExitReason());
+        assertEquals(results.get(0).getRetired(), sequential.getRetired());
+        assertEquals(results.get(0).getCacheMisses(), sequential.getCacheMisses());
+    }
+
+    @Test
+    public void testHaltingProgramIsNotTimedOut() throws IOException {
+        // Procesor parnih programa izvršava HALT poslije 250 instrukcija
+        BatchRunner runner = new BatchRunner(2, 5000) {
+            @Override
+            protected Processor newProcessor(Path program, Memory memory, Cache cache) {
+                if (program.getFileName().toString().matches("program[0-9]*[02468]\\.txt")) {
+                    return new HaltingProcessor(memory, cache, 250);
+                }
+                return super.newProcessor(program, memory, cache);
+            }
+        };
+        runner.setCacheGeometry(new int[]{1024, 4096}, new int[]{2, 4}, 64);
+        List<BatchResult> results = runner.run(BatchRunner.listPrograms(directory));
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            if (i % 2 == 0) {
+                assertEquals(RunResult.ExitReason.HALTED, result.getExitReason());
+                assertTrue(result.isHalted());
+                assertEquals(250, result.getRetired());
+            } else {
+                assertEquals(RunResult.ExitReason.INSTRUCTION_LIMIT, result.getExitReason());
+                assertEquals(5000, result.getRetired());
+            }
+        }
+    }
+
+    private static final class HaltingProcessor extends Processor {
+        private final long haltAfter;
+
+        HaltingProcessor(Memory memory, Cache cache, long haltAfter) {
+            super(memory, cache);
+            this.haltAfter = haltAfter;
+        }
+
+        @Override
+        public RunResult run(long maxInstructions) {
+            RunResult result = super.run(Math.min(maxInstructions, haltAfter - getInstructionsRetired()));
+            if (getInstructionsRetired() >= haltAfter) {
+                halt();
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void testMissingProgramIsReportedAsFailure() {
+        BatchResult result = newRunner(1, 100).runProgram(directory.resolve("missing.txt"));
+        assertTrue(result.isFailed());
+        assertNull(result.getExitReason());
+        assertNotNull(result.getError());
+    }
+
+    @Test
+    public void testCsvAndJsonReports() throws IOException {
+        List<BatchResult> results = newRunner(2, 1000).run(Arrays.asList(directory.resolve("program0.txt"),
+                directory.resolve("missing,\"quoted\".txt")));
+
+        StringWriter csv = new StringWriter();
+        BatchRunner.writeCsv(csv, results);
+        String[] rows = csv.toString().split("\n");
+        assertEquals(3, rows.length);
+        assertEquals("program,exitReason,instructions,cacheHits,cacheMisses,amat,wallMillis,error", rows[0]);
+        assertTrue(rows[1].startsWith("program0.txt,"));
+        assertTrue(rows[2].startsWith("\"missing,\"\"quoted\"\".txt\",FAILED,0,"));
+
+        StringWriter json = new StringWriter();
+        BatchRunner.writeJson(json, results);
+        String text = json.toString();
+        assertTrue(text.startsWith("[\n  {\"program\": \"program0.txt\""));
+        assertTrue(text.contains("\"program\": \"missing,\\\"quoted\\\".txt\", \"exitReason\": \"FAILED\""));
+        assertTrue(text.trim().endsWith("]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsZeroParallelism() {
+        new BatchRunner(0, 100);
+    }
+}
@@ -0,0 +1,102 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import processor.BlockTranslator;
+import processor.DecodedBlock;
+import processor.DecodedBlockCache;
+import processor.DecodedInstruction;
+import processor.Opcode;
+import processor.Processor;
+import processor.TranslatedBlock;
+
+public class BlockTranslatorTest {
+
+    private static DecodedInstruction insn(Opcode opcode, int dest, int src1, int src2, long operand) {
+        return new DecodedInstruction(opcode, dest, src1, src2, operand);
+    }
+
+    private static Processor newProcessor() {
+        Memory memory = new Memory();
+        return new Processor(memory, new Cache(memory));
+    }
+
+    @Test
+    public void testTranslatedBlockMatchesInterpreter() {
+        DecodedInstruction[] instructions = {
+                insn(Opcode.MOV_IMM, 0, 0, 0, 100),
+                insn(Opcode.MOV_IMM, 1, 0, 0, 7),
+                insn(Opcode.ADD, 2, 0, 1, 0),
+                insn(Opcode.SUB, 3, 0, 1, 0),
+                insn(Opcode.MUL, 2, 2, 3, 0),
+                insn(Opcode.DIV, 2, 2, 1, 0),
+                insn(Opcode.AND, 3, 3, 2, 0),
+                insn(Opcode.OR, 1, 1, 3, 0),
+                insn(Opcode.XOR, 0, 0, 1, 0),
+                insn(Opcode.NOT, 1, 1, 0, 0),
+                insn(Opcode.MOV_REG, 3, 2, 0, 0),
+                insn(Opcode.DIV, 3, 3, 1, 0),
+                insn(Opcode.JMP, 0, 0, 0, 0x40)
+        };
+        DecodedBlock block = new DecodedBlock(0x100, instructions);
+
+        Processor interpreted = newProcessor();
+        interpreted.setProgramCounter(0x100);
+        for (DecodedInstruction instruction : instructions) {
+            interpreted.executeInstruction(instruction);
+        }
+
+        BlockTranslator translator = new BlockTranslator();
+        TranslatedBlock translated = translator.translate(block);
+        assertNotNull(translated);
+
+        Processor compiled = newProcessor();
+        long nextPc = translated.execute(compiled, compiled.generalPurposeRegisters, new int[1]);
+
+        for (int i = 0; i < interpreted.getNUM_GENERAL_PURPOSE_REGISTERS(); i++) {
+            assertEquals(interpreted.getGeneralPurposeRegisterValue(i), compiled.getGeneralPurposeRegisterValue(i));
+        }
+        assertEquals(interpreted.getProgramCounter(), nextPc);
+        assertEquals(1, translator.getBlocksTranslated());
+    }
+
+    @Test
+    public void testIoIsLeftToInterpreter() {
+        DecodedInstruction[] instructions = {
+                insn(Opcode.MOV_IMM, 0, 0, 0, 5),
+                insn(Opcode.OUTPUT_CHAR, 0, 0, 0, 0),
+                insn(Opcode.HALT, 0, 0, 0, 0)
+        };
+        BlockTranslator translator = new BlockTranslator();
+        assertEquals(1, translator.translatableLength(new DecodedBlock(0, instructions)));
+        assertEquals(0, translator.translatableLength(new DecodedBlock(0, new DecodedInstruction[]{instructions[2]})));
+    }
+
+    @Test
+    public void testHotBlockIsTranslatedAndDeoptimizedOnWrite() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory);
+        Processor processor = new Processor(memory, cache);
+        processor.setTranslationThreshold(2);
+
+        for (int i = 0; i < 3; i++) {
+            processor.setProgramCounter(0);
+            processor.executeBlock();
+        }
+        DecodedBlock block = processor.getBlockCache().getBlock(0, processor);
+        assertNotNull(block.getTranslated());
+        assertEquals(1, processor.getTranslator().getBlocksTranslated());
+
+        // Upis u kod bloka - prevedeni kod se odbacuje
+        cache.writeToRAM(3, (byte) 0);
+        assertNull(block.getTranslated());
+        assertFalse(block.isValid());
+
+        processor.setTranslationEnabled(false);
+        processor.setProgramCounter(0);
+        assertEquals(DecodedBlockCache.MAX_BLOCK_LENGTH, processor.executeBlock());
+    }
+}
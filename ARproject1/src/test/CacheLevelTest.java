@@ -0,0 +1,75 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.CacheLevel;
+import memory.Memory;
+
+public class CacheLevelTest {
+
+    @Test
+    public void testAddressSplitFollowsGeometry() {
+        CacheLevel level = new CacheLevel(0, 32 * 1024, 4, 64);    // 128 setova
+        assertEquals(128, level.getNumSets());
+        long address = (0xABCL << 13) | (5L << 6) | 17;
+        assertEquals(17, level.getLineOffset(address));
+        assertEquals(5, level.getSetIndex(address));
+        assertEquals(0xABC, level.getTag(address));
+    }
+
+    @Test
+    public void testSameLineHitsAndLruEviction() {
+        CacheLevel level = new CacheLevel(0, 2 * 2 * 64, 2, 64);   // 2 seta, 2 puta
+        long setStride = 2 * 64;                                    // adrese sa istim setom
+
+        assertFalse(level.access(0, false));
+        assertTrue(level.access(63, false));                        // ista linija
+        assertFalse(level.access(setStride, false));
+        assertTrue(level.access(0, false));                         // linija setStride je sada LRU
+
+        assertFalse(level.access(2 * setStride, false));
+        assertTrue(level.hasEvicted());
+        assertEquals(setStride, level.getEvictedAddress());
+        assertTrue(level.contains(0));
+        assertFalse(level.contains(setStride));
+        assertEquals(2, level.getHits());
+        assertEquals(3, level.getMisses());
+        assertEquals(1, level.getEvictions());
+    }
+
+    @Test
+    public void testDirectMappedConflict() {
+        CacheLevel level = new CacheLevel(0, 1024, 1, 64);
+        level.access(0, true);
+        assertTrue(level.isDirty(0));
+        level.access(1024, false);                                  // isti set, drugi tag
+        assertTrue(level.hasEvicted());
+        assertTrue(level.isEvictedDirty());
+        assertFalse(level.contains(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPowerOfTwoSets() {
+        new CacheLevel(0, 3 * 64, 1, 64);
+    }
+
+    @Test
+    public void testHierarchyFillsMissingLevels() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, 2, new int[]{256, 1024}, new int[]{1, 4}, 64);
+        memory.writeToVirtualAddress(0x40, (byte) 9);
+
+        assertEquals(9, cache.readFromCache(0x40));
+        assertSame(cache.getLevel(0), cache.getCacheLevel(0x40));
+        assertTrue(cache.getLevel(1).contains(0x40));
+
+        cache.readFromCache(0x40 + 256);                            // izbacuje 0x40 iz L1
+        assertSame(cache.getLevel(1), cache.getCacheLevel(0x40));
+        cache.readFromCache(0x41);                                  // pogodak u L2
+        assertEquals(1, cache.getCacheHits());
+        assertEquals(2, cache.getCacheMisses());
+        assertEquals(1, cache.getLevel(1).getHits());
+    }
+}
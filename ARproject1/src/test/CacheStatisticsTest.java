@@ -0,0 +1,78 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.WriteHitPolicy;
+import cache.WriteMissPolicy;
+import memory.Memory;
+
+public class CacheStatisticsTest {
+
+    private static Cache twoLevels() {
+        Cache cache = new Cache(new Memory(), 2, new int[]{1024, 8192}, new int[]{2, 4}, 64);
+        cache.setLatency(0, 2);
+        cache.setLatency(1, 10);
+        cache.setMemoryLatency(100);
+        return cache;
+    }
+
+    @Test
+    public void testReadAndWriteCountersPerLevel() {
+        Cache cache = twoLevels();
+        cache.readFromCache(0);                      // promašaj u oba nivoa
+        cache.writeToCache(8, (byte) 1);             // pogodak upisa u L1
+        cache.writeToCache(4096, (byte) 2);          // promašaj upisa u L1, čitanje linije iz L2
+
+        CacheLevel l1 = cache.getLevel(0);
+        assertEquals(0, l1.getReadHits());
+        assertEquals(1, l1.getReadMisses());
+        assertEquals(1, l1.getWriteHits());
+        assertEquals(1, l1.getWriteMisses());
+        assertEquals(2, cache.getLevel(1).getReadMisses());
+        assertEquals(0, cache.getLevel(1).getWriteMisses());
+        assertEquals(1, cache.getCacheHits());
+        assertEquals(2, cache.getCacheMisses());
+    }
+
+    @Test
+    public void testAverageMemoryAccessTime() {
+        Cache cache = twoLevels();
+        cache.readFromCache(0);                      // 2 + 10 + 100
+        cache.readFromCache(1);                      // 2
+        cache.readFromCache(1024);                   // 112, isti L1 set kao 0
+        cache.readFromCache(2048);                   // 112, izbacuje 0 iz L1
+        cache.readFromCache(0);                      // 2 + 10, pogodak u L2
+
+        assertEquals(112 * 3 + 2 + 12, cache.getAccessCycles());
+        assertEquals((112 * 3 + 2 + 12) / 5.0, cache.getAverageMemoryAccessTime(), 1e-9);
+        assertEquals(112 * 3 + 2 + 12 - 5 * 2, cache.getStallCycles());
+    }
+
+    @Test
+    public void testResetStatisticsKeepsContents() {
+        Cache cache = twoLevels();
+        cache.readFromCache(0);
+        cache.resetStatistics();
+        assertEquals(0, cache.getCacheMisses());
+        assertEquals(0, cache.getLevel(0).getMisses());
+        assertEquals(0, cache.getAccessCycles());
+
+        cache.readFromCache(0);                      // toplo: pogodak
+        assertEquals(1, cache.getLevel(0).getReadHits());
+        assertEquals(2.0, cache.getAverageMemoryAccessTime(), 1e-9);
+    }
+
+    @Test
+    public void testWriteThroughStoresCountAsWrites() {
+        Cache cache = twoLevels();
+        cache.setWritePolicy(0, WriteHitPolicy.WRITE_THROUGH, WriteMissPolicy.WRITE_ALLOCATE);
+        cache.writeToCache(0, (byte) 1);
+        cache.writeToCache(0, (byte) 2);
+        assertEquals(1, cache.getLevel(0).getWriteMisses());
+        assertEquals(1, cache.getLevel(0).getWriteHits());
+        assertFalse(cache.getLevel(0).isDirty(0));
+    }
+}
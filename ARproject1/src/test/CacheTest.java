@@ -62,6 +62,34 @@ public class CacheTest {
     }
 
 
+    @Test
+    public void testStartupPerformance() {
+        // Podrazumijevana konfiguracija Emulator-a: 32 KiB / 512 KiB / 32 MiB, asocijativnost 4/8/16, linije od 64 B
+        int[] cacheSizes = {32 * 1024, 512 * 1024, 32 * 1024 * 1024};
+        int[] associativities = {4, 8, 16};
+        Memory memory = new Memory();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        long startTime = System.nanoTime();
+        Cache cache = new Cache(memory, 3, cacheSizes, associativities, 64);
+        long buildNanos = System.nanoTime() - startTime;
+
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        long stateBytes = 0;
+        for (int i = 0; i < cache.getNumCacheLevels(); i++) {
+            stateBytes += cache.getLevel(i).getStateBytes();
+        }
+
+        System.out.printf("Cache startup: %.3f ms, retained heap ~%d KiB, tag state %d KiB%n",
+                buildNanos / 1e6, Math.max(0, heapAfter - heapBefore) / 1024, stateBytes / 1024);
+        assertTrue(stateBytes < 4L * 1024 * 1024);
+        assertNotNull(cache.getLevel(2));
+    }
+
     @Test
     public void testLRUAlgorithm() {
         // Inicijalizacija sustava (stvori Cache i Memory)
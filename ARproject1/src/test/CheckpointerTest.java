@@ -0,0 +1,285 @@
+package test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import emulator.Checkpointer;
+import memory.Memory;
+import memory.MemoryBackend;
+import processor.Processor;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class CheckpointerTest {
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("checkpoint");
+        file = directory.resolve("run.ckpt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Processor newProcessor() {
+        Memory memory = new Memory();
+        return new Processor(memory, new Cache(memory, 2, new int[]{1024, 4096}, new int[]{2, 4}, 64));
+    }
+
+    @Test
+    public void testDirtyTrackingReportsWrittenPages() {
+        Memory memory = new Memory();
+        memory.writeToVirtualAddress(0x1000, (byte) 1);
+        memory.writeToVirtualAddress(0x5000, (byte) 2);
+        memory.setDirtyTracking(true);
+        assertTrue(memory.isAllDirty());
+        assertArrayEquals(new long[]{1, 5}, memory.takeDirtyPages());
+
+        assertEquals(0, memory.takeDirtyPages().length);
+        memory.writeToVirtualAddress(0x5001, (byte) 3);      // TLB pogodak: stranica se ipak bilježi
+        memory.writeToVirtualAddress(0x5002, (byte) 4);
+        memory.writeToVirtualAddress(0x9000, (byte) 5);
+        assertArrayEquals(new long[]{5, 9}, memory.takeDirtyPages());
+        assertEquals(3, memory.readFromVirtualAddress(0x5001));
+
+        memory.initializeMemory();
+        assertTrue(memory.isAllDirty());
+        assertEquals(0, memory.takeDirtyPages().length);
+    }
+
+    @Test
+    public void testZeroFillMarksThePageDirty() {
+        Memory memory = new Memory();
+        memory.writeLong(0x1000, 5);
+        memory.setDirtyTracking(true);
+        assertArrayEquals(new long[]{1}, memory.takeDirtyPages());
+
+        memory.fill(0x1000, 16, (byte) 0);
+        assertArrayEquals(new long[]{1}, memory.takeDirtyPages());
+    }
+
+    @Test
+    public void testZeroFillBetweenCheckpointsIsRestored() throws IOException {
+        Processor processor = newProcessor();
+        processor.getMemory().writeLong(0x6000, 42);
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+        checkpointer.checkpoint();
+        // Brisanje ne smije promijeniti stranicu koju pisač možda još čita
+        processor.getMemory().fill(0x6000, 8, (byte) 0);
+        checkpointer.awaitPending();
+        assertEquals(42, Checkpointer.restore(file).getMemory().readLong(0x6000));
+
+        checkpointer.checkpoint();
+        checkpointer.close();
+        assertFalse(checkpointer.isLastFull());
+        assertEquals(0, Checkpointer.restore(file).getMemory().readLong(0x6000));
+    }
+
+    @Test
+    public void testDirtyTrackingDoesNotGrowTheMemory() {
+        Memory memory = new Memory();
+        for (int page = 0; page < 100; page++) {
+            memory.writeToVirtualAddress(page * (long) Memory.PAGE_SIZE, (byte) 1);
+        }
+        memory.setDirtyTracking(true);
+        for (int interval = 0; interval < 50; interval++) {
+            assertEquals(100, memory.takeDirtyPages().length);
+            for (int page = 0; page < 100; page++) {
+                memory.writeToVirtualAddress(page * (long) Memory.PAGE_SIZE, (byte) interval);
+            }
+        }
+        // Kopija stranice zauzima okvir stranice koju zamjenjuje
+        assertEquals(100, memory.getAllocatedPageCount());
+        assertEquals(100L * Memory.PAGE_SIZE, memory.getResidentBytes());
+        assertEquals(49, memory.readFromVirtualAddress(99L * Memory.PAGE_SIZE));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOffHeapMemoryCannotTrackDirtyPages() {
+        new Memory(MemoryBackend.OFF_HEAP, 1 << 20, 0, 1).setDirtyTracking(true);
+    }
+
+    @Test
+    public void testIncrementalCheckpointsRestoreTheLatestState() throws IOException {
+        Processor processor = newProcessor();
+        for (int page = 0; page < 16; page++) {
+            processor.writeToMemory(0x10000 + page * (long) Memory.PAGE_SIZE, (byte) page);
+        }
+        processor.generalPurposeRegisters[1] = 7;
+        processor.run(10);
+
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+        checkpointer.checkpoint();
+        checkpointer.awaitPending();
+        assertTrue(checkpointer.isLastFull());
+        assertEquals(16, checkpointer.getLastPageCount());
+
+        processor.writeToMemory(0x10000, (byte) 100);
+        processor.writeToMemory(0x20000, (byte) 101);
+        processor.generalPurposeRegisters[2] = -3;
+        processor.setFlags(true, false, false);
+        processor.run(5);
+        checkpointer.checkpoint();
+        checkpointer.close();
+        assertFalse(checkpointer.isLastFull());
+        assertEquals(2, checkpointer.getLastPageCount());
+
+        Processor restored = Checkpointer.restore(file);
+        assertEquals(processor.getProgramCounter(), restored.getProgramCounter());
+        assertEquals(15, restored.getInstructionsRetired());
+        assertEquals(7, restored.getGeneralPurposeRegisterValue(1));
+        assertEquals(-3, restored.getGeneralPurposeRegisterValue(2));
+        assertTrue(restored.isZeroFlag());
+        assertEquals(100, restored.getMemory().readFromVirtualAddress(0x10000));
+        assertEquals(101, restored.getMemory().readFromVirtualAddress(0x20000));
+        assertEquals(5, restored.getMemory().readFromVirtualAddress(0x15000));
+
+        // Keš ima istu geometriju, iste linije i iste dirty bitove
+        Cache cache = processor.getCache();
+        Cache restoredCache = restored.getCache();
+        assertEquals(cache.getNumCacheLevels(), restoredCache.getNumCacheLevels());
+        for (int level = 0; level < cache.getNumCacheLevels(); level++) {
+            assertEquals(cache.getLevel(level).getValidLineCount(), restoredCache.getLevel(level).getValidLineCount());
+        }
+        assertTrue(restoredCache.getLevel(0).contains(0x20000));
+        assertEquals(cache.getLevel(0).isDirty(0x20000), restoredCache.getLevel(0).isDirty(0x20000));
+    }
+
+    @Test
+    public void testWritesAfterCheckpointAreNotInIt() throws IOException {
+        Processor processor = newProcessor();
+        processor.writeToMemory(0x3000, (byte) 1);
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+        checkpointer.checkpoint();
+        // Pisač možda još radi; emulacija nastavlja nad svojom kopijom stranica
+        processor.writeToMemory(0x3000, (byte) 2);
+        checkpointer.close();
+
+        assertEquals(1, Checkpointer.restore(file).getMemory().readFromVirtualAddress(0x3000));
+        assertEquals(2, processor.getMemory().readFromVirtualAddress(0x3000));
+    }
+
+    @Test
+    public void testTornRecordIsIgnoredAndCorruptionIsReported() throws IOException {
+        Processor processor = newProcessor();
+        processor.writeToMemory(0x4000, (byte) 1);
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+        checkpointer.checkpoint();
+        checkpointer.awaitPending();
+        long firstEnd = Files.size(file);
+
+        processor.writeToMemory(0x4000, (byte) 2);
+        checkpointer.checkpoint();
+        checkpointer.close();
+        long secondEnd = Files.size(file);
+        assertEquals(2, Checkpointer.restore(file).getMemory().readFromVirtualAddress(0x4000));
+
+        // Pad usred pisanja drugog zapisa
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(firstEnd + (secondEnd - firstEnd) / 2);
+        }
+        assertEquals(1, Checkpointer.restore(file).getMemory().readFromVirtualAddress(0x4000));
+
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(firstEnd / 2);
+            raw.write(raw.read() ^ 0xFF);
+        }
+        try {
+            Checkpointer.restore(file);
+            fail("Corrupt record was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Corrupt"));
+        }
+    }
+
+    @Test
+    public void testGrowingFileIsCompactedByAFullCheckpoint() throws IOException {
+        Processor processor = newProcessor();
+        processor.writeToMemory(0, (byte) 1);
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+        checkpointer.checkpoint();
+        checkpointer.awaitPending();
+        long fullSize = checkpointer.getFileBytes();
+
+        boolean compacted = false;
+        for (int i = 0; i < 10 && !compacted; i++) {
+            processor.writeToMemory(0, (byte) (i + 2));
+            checkpointer.checkpoint();
+            checkpointer.awaitPending();
+            compacted = checkpointer.isLastFull();
+        }
+        checkpointer.close();
+        assertTrue(compacted);
+        assertTrue(checkpointer.getFileBytes() <= Checkpointer.COMPACTION_FACTOR * fullSize);
+        assertFalse(Files.exists(directory.resolve("run.ckpt.tmp")));
+    }
+
+    @Test
+    public void testFailedCheckpointIsFollowedByAFullOne() throws IOException {
+        Processor processor = newProcessor();
+        processor.writeToMemory(0x1000, (byte) 1);
+        Checkpointer checkpointer = new Checkpointer(processor, file);
+
+        // Prvi (pun) checkpoint ne uspijeva: na mjestu privremenog fajla je direktorijum
+        Path temporary = directory.resolve("run.ckpt.tmp");
+        Files.createDirectory(temporary);
+        checkpointer.checkpoint();
+        assertCheckpointFails(checkpointer);
+        Files.delete(temporary);
+
+        processor.writeToMemory(0x2000, (byte) 2);
+        checkpointer.checkpoint();
+        checkpointer.awaitPending();
+        assertTrue(checkpointer.isLastFull());
+        assertEquals(1, Checkpointer.restore(file).getMemory().readFromVirtualAddress(0x1000));
+
+        // Inkrementalni checkpoint ne uspijeva: fajl ne može da se otvori za pisanje
+        processor.writeToMemory(0x3000, (byte) 3);
+        Files.delete(file);
+        Files.createDirectory(file);
+        checkpointer.checkpoint();
+        assertCheckpointFails(checkpointer);
+        Files.delete(file);
+
+        checkpointer.checkpoint();
+        checkpointer.close();
+        assertTrue(checkpointer.isLastFull());
+        Memory restored = Checkpointer.restore(file).getMemory();
+        assertEquals(1, restored.readFromVirtualAddress(0x1000));
+        assertEquals(2, restored.readFromVirtualAddress(0x2000));
+        assertEquals(3, restored.readFromVirtualAddress(0x3000));
+    }
+
+    private static void assertCheckpointFails(Checkpointer checkpointer) {
+        try {
+            checkpointer.awaitPending();
+            fail("Checkpoint was written");
+        } catch (UncheckedIOException expected) {
+            assertTrue(expected.getMessage().contains("failed"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsOtherFiles() throws IOException {
+        Files.write(file, new byte[64]);
+        Checkpointer.restore(file);
+    }
+}
@@ -0,0 +1,172 @@
+package test;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.CoherenceBus;
+import cache.MesiState;
+import emulator.MultiCoreEmulator;
+import memory.Memory;
+import processor.Processor;
+
+public class CoherenceBusTest {
+
+    private Memory memory;
+    private CoherenceBus bus;
+    private Cache core0;
+    private Cache core1;
+
+    @Before
+    public void setUp() {
+        memory = new Memory();
+        bus = new CoherenceBus(new CacheLevel(2, 16384, 4, 64), 64);
+        core0 = new Cache(memory, 2, new int[]{1024, 4096}, new int[]{2, 4}, 64);
+        core1 = new Cache(memory.newCoreView(), 2, new int[]{1024, 4096}, new int[]{2, 4}, 64);
+        assertEquals(0, bus.attach(core0));
+        assertEquals(1, bus.attach(core1));
+    }
+
+    @Test
+    public void testExclusiveSharedModifiedTransitions() {
+        core0.readFromCache(0x100);
+        assertEquals(MesiState.EXCLUSIVE, bus.getState(0, 0x100));
+        assertEquals(MesiState.INVALID, bus.getState(1, 0x100));
+
+        core1.readFromCache(0x108);
+        assertEquals(MesiState.SHARED, bus.getState(0, 0x100));
+        assertEquals(MesiState.SHARED, bus.getState(1, 0x100));
+        assertEquals(2, bus.getBusReads());
+
+        // Upis u dijeljenu liniju: BusUpgr poništava kopiju drugog jezgra
+        core0.writeToCache(0x100, (byte) 5);
+        assertEquals(MesiState.MODIFIED, bus.getState(0, 0x100));
+        assertEquals(MesiState.INVALID, bus.getState(1, 0x100));
+        assertEquals(1, bus.getInvalidations());
+        assertEquals(1, bus.getBusUpgrades());
+
+        // Čitanje poništene linije: vlasnik je isporučuje i prelazi u S
+        assertEquals(5, core1.readFromCache(0x100));
+        assertEquals(MesiState.SHARED, bus.getState(0, 0x100));
+        assertEquals(MesiState.SHARED, bus.getState(1, 0x100));
+        assertEquals(1, bus.getCacheToCacheTransfers());
+        assertEquals(1, bus.getCoherenceWritebacks());
+        assertEquals(1, bus.getCoherenceMisses(1));
+        assertEquals(1, bus.getTrueSharingMisses(1));
+        assertEquals(0, bus.getFalseSharingMisses(1));
+    }
+
+    @Test
+    public void testExclusiveLineIsWrittenSilently() {
+        core0.readFromCache(0x400);
+        core0.writeToCache(0x400, (byte) 1);
+        assertEquals(MesiState.MODIFIED, bus.getState(0, 0x400));
+        assertEquals(0, bus.getInvalidations());
+        assertEquals(0, bus.getBusUpgrades());
+        assertEquals(0, bus.getBusReadExclusives());
+    }
+
+    @Test
+    public void testWriteMissIssuesReadExclusive() {
+        core0.readFromCache(0x300);
+        core1.writeToCache(0x300, (byte) 2);
+        assertEquals(1, bus.getBusReadExclusives());
+        assertEquals(1, bus.getInvalidations());
+        assertEquals(0, bus.getBusUpgrades());
+        assertEquals(MesiState.MODIFIED, bus.getState(1, 0x300));
+        assertEquals(MesiState.INVALID, bus.getState(0, 0x300));
+    }
+
+    @Test
+    public void testFalseSharingIsSeparatedFromTrueSharing() {
+        core0.readFromCache(0x200);
+        core1.readFromCache(0x200);
+        core1.writeToCache(0x200, (byte) 3);            // riječ 0
+
+        core0.readFromCache(0x238);                     // riječ 7 iste linije
+        assertEquals(1, bus.getCoherenceMisses(0));
+        assertEquals(1, bus.getFalseSharingMisses(0));
+        assertEquals(0, bus.getTrueSharingMisses(0));
+    }
+
+    @Test
+    public void testResetStatisticsKeepsLines() {
+        core0.readFromCache(0x100);
+        core1.readFromCache(0x100);
+        bus.resetStatistics();
+        assertEquals(0, bus.getBusReads());
+        assertEquals(MesiState.SHARED, bus.getState(1, 0x100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsCacheAttachedTwice() {
+        bus.attach(core0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDifferentLineSize() {
+        bus.attach(new Cache(memory.newCoreView(), 1, new int[]{1024}, new int[]{2}, 32));
+    }
+
+    @Test
+    public void testCoreViewsShareMemory() {
+        Memory view = memory.newCoreView();
+        memory.writeToVirtualAddress(0x5000, (byte) 7);
+        assertEquals(7, view.readFromVirtualAddress(0x5000));
+
+        // Obje instance su već prevele stranicu; upis kroz pogled mora biti vidljiv originalu
+        view.writeToVirtualAddress(0x5001, (byte) 8);
+        assertEquals(8, memory.readFromVirtualAddress(0x5001));
+        assertEquals(memory.getAllocatedPageCount(), view.getAllocatedPageCount());
+        assertNotSame(memory.getTlb(), view.getTlb());
+    }
+
+    @Test
+    public void testGuestMovesOnTwoCoresReachTheBus() {
+        MultiCoreEmulator emulator = new MultiCoreEmulator(new Memory(), 2, new int[]{1024, 4096}, new int[]{2, 4},
+                16384, 4, 64);
+        CoherenceBus bus = emulator.getBus();
+        Processor first = emulator.getProcessor(0);
+        Processor second = emulator.getProcessor(1);
+        first.generalPurposeRegisters[1] = 0x1111;
+        second.generalPurposeRegisters[1] = 0x2222;
+
+        // Jezgra pišu različite riječi iste linije (MOV u RAM)
+        first.movToRam(1, 0x1000, false);
+        second.movToRam(1, 0x1008, false);
+        assertEquals(2, bus.getBusReadExclusives());
+        assertEquals(1, bus.getInvalidations());
+        assertEquals(MesiState.MODIFIED, bus.getState(1, 0x1000));
+
+        // Prvo jezgro ponovo čita svoju riječ: promašaj zbog lažnog dijeljenja
+        first.movFromRam(2, 0x1000, false);
+        assertEquals(0x11, first.getGeneralPurposeRegisterValue(2));
+        assertEquals(1, bus.getFalseSharingMisses(0));
+        assertEquals(0, bus.getTrueSharingMisses(0));
+
+        // Upis u riječ koju drugo jezgro zatim čita: stvarno dijeljenje
+        first.movToRam(1, 0x1008, false);
+        second.movFromRam(2, 0x1008, false);
+        assertEquals(0x11, second.getGeneralPurposeRegisterValue(2));
+        assertEquals(1, bus.getTrueSharingMisses(1));
+        assertEquals(2, bus.getInvalidations());
+    }
+
+    @Test
+    public void testMultiCoreRunRetiresBudgetOnEveryCore() throws InterruptedException {
+        MultiCoreEmulator emulator = new MultiCoreEmulator(new Memory(), 3, new int[]{1024, 4096}, new int[]{2, 4},
+                16384, 4, 64);
+        assertEquals(3, emulator.getCoreCount());
+        assertEquals(3, emulator.getBus().getCoreCount());
+
+        emulator.run(1000);
+        assertEquals(3000, emulator.getInstructionsRetired());
+        for (int core = 0; core < 3; core++) {
+            Processor processor = emulator.getProcessor(core);
+            assertEquals(1000, processor.getInstructionsRetired());
+            assertEquals(core, processor.getGeneralPurposeRegisterValue(processor.getNUM_GENERAL_PURPOSE_REGISTERS() - 1));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import processor.ConsoleDevice;
+import processor.Processor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ConsoleDeviceTest {
+
+    private static Processor newProcessor(ConsoleDevice console) {
+        Memory memory = new Memory();
+        Processor processor = new Processor(memory, new Cache(memory, 1, new int[]{1024}, new int[]{2}, 64));
+        processor.setConsole(console);
+        return processor;
+    }
+
+    @Test
+    public void testInputCharReadsEveryCharacterOfAWord() {
+        ConsoleDevice console = new ConsoleDevice(new StringReader("ab\n  c"), new StringWriter(), false);
+        Processor processor = newProcessor(console);
+        // Ranije je Scanner.next() vraćao cijelu riječ i ostatak se gubio
+        processor.inputChar(1);
+        processor.inputChar(2);
+        processor.inputChar(3);
+        assertEquals('a', processor.getGeneralPurposeRegisterValue(1));
+        assertEquals('b', processor.getGeneralPurposeRegisterValue(2));
+        assertEquals('c', processor.getGeneralPurposeRegisterValue(3));
+        assertEquals(3, processor.getProgramCounter());
+        assertEquals(3, console.getCharactersRead());
+        assertTrue(processor.isRunning());
+    }
+
+    @Test
+    public void testEndOfInputHaltsTheProcessor() {
+        Processor processor = newProcessor(new ConsoleDevice(new StringReader(" \n"), new StringWriter(), false));
+        processor.generalPurposeRegisters[1] = 9;
+        processor.inputChar(1);
+        assertFalse(processor.isRunning());
+        assertEquals(9, processor.getGeneralPurposeRegisterValue(1));
+        assertEquals(0, processor.getProgramCounter());
+    }
+
+    @Test
+    public void testOutputIsBatchedUntilHalt() {
+        StringWriter out = new StringWriter();
+        ConsoleDevice console = new ConsoleDevice(new StringReader(""), out, false);
+        Processor processor = newProcessor(console);
+        String text = "Hello,\nworld!\n";
+        for (char c : text.toCharArray()) {
+            processor.generalPurposeRegisters[1] = c;
+            processor.outputChar(1);
+        }
+        assertEquals("", out.toString());
+        assertEquals(0, console.getOutputWrites());
+
+        processor.halt();
+        assertEquals(text, out.toString());
+        assertEquals(1, console.getOutputWrites());
+        assertEquals(text.length(), console.getCharactersWritten());
+    }
+
+    @Test
+    public void testLineFlushWritesCompletedLines() {
+        StringWriter out = new StringWriter();
+        ConsoleDevice console = new ConsoleDevice(new StringReader(""), out, true);
+        for (char c : "ab\ncd".toCharArray()) {
+            console.writeChar(c);
+        }
+        assertEquals("ab\n", out.toString());
+        assertEquals(1, console.getOutputWrites());
+        console.close();
+        assertEquals("ab\ncd", out.toString());
+    }
+
+    @Test
+    public void testPromptIsFlushedBeforeInput() {
+        StringWriter out = new StringWriter();
+        ConsoleDevice console = new ConsoleDevice(new StringReader("x"), out, false);
+        console.writeChar('?');
+        assertEquals('x', console.readChar());
+        assertEquals("?", out.toString());
+    }
+
+    @Test
+    public void testLargeOutputIsWrittenInBufferSizedChunks() {
+        StringWriter out = new StringWriter();
+        ConsoleDevice console = new ConsoleDevice(new StringReader(""), out, false);
+        for (int i = 0; i < 100_000; i++) {
+            console.writeChar((char) ('a' + i % 26));
+        }
+        console.flush();
+        assertEquals(100_000, out.toString().length());
+        assertTrue(console.getOutputWrites() < 20);
+    }
+
+    @Test
+    public void testReadLineSharesTheInputBuffer() {
+        ConsoleDevice console = new ConsoleDevice(new StringReader("step\r\nq\nz"), new StringWriter(), false);
+        assertEquals("step", console.readLine());
+        assertEquals('q', console.readChar());
+        assertEquals("", console.readLine());
+        assertEquals("z", console.readLine());
+        assertNull(console.readLine());
+        assertEquals(-1, console.readChar());
+    }
+
+    @Test
+    public void testFilesCanBeUsedAsConsole() throws IOException {
+        Path input = Files.createTempFile("console", ".in");
+        Path output = Files.createTempFile("console", ".out");
+        try {
+            Files.write(input, "hi".getBytes());
+            ConsoleDevice console = ConsoleDevice.open(input, output);
+            Processor processor = newProcessor(console);
+            processor.inputChar(1);
+            processor.inputChar(2);
+            processor.outputChar(2);
+            processor.outputChar(1);
+            processor.inputChar(3);
+            assertFalse(processor.isRunning());
+            console.close();
+            assertEquals("ih", new String(Files.readAllBytes(output)));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+}
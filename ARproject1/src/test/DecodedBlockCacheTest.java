@@ -0,0 +1,58 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import processor.DecodedBlockCache;
+import processor.Processor;
+
+public class DecodedBlockCacheTest {
+
+    @Test
+    public void testBlockIsDecodedOnce() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory);
+        Processor processor = new Processor(memory, cache);
+        DecodedBlockCache blockCache = processor.getBlockCache();
+
+        // Prvi prolaz kroz blok - jedan promašaj
+        for (int i = 0; i < DecodedBlockCache.MAX_BLOCK_LENGTH; i++) {
+            processor.step();
+        }
+        assertEquals(0, blockCache.getHits());
+        assertEquals(1, blockCache.getMisses());
+
+        // Drugi prolaz od iste adrese - pogodak, bez ponovnog dekodiranja
+        processor.setProgramCounter(0);
+        processor.step();
+        assertEquals(1, blockCache.getHits());
+        assertEquals(1, blockCache.getMisses());
+        assertEquals(1, processor.getProgramCounter());
+    }
+
+    @Test
+    public void testWriteInvalidatesBlock() {
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory);
+        Processor processor = new Processor(memory, cache);
+        DecodedBlockCache blockCache = processor.getBlockCache();
+
+        processor.step();
+        assertEquals(1, blockCache.size());
+
+        // Upis van bloka ne dira keš
+        cache.writeToRAM(0x10000, (byte) 1);
+        assertEquals(0, blockCache.getInvalidations());
+
+        // Upis unutar bloka ga poništava
+        cache.writeToRAM(10, (byte) 1);
+        assertEquals(1, blockCache.getInvalidations());
+        assertEquals(0, blockCache.size());
+
+        processor.setProgramCounter(0);
+        processor.step();
+        assertEquals(2, blockCache.getMisses());
+    }
+}
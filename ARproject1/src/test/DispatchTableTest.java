@@ -0,0 +1,67 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import processor.DispatchMode;
+import processor.Opcode;
+import processor.Processor;
+
+public class DispatchTableTest {
+
+    // Kodiranje: opcode u bitovima 56-63, dest 48-55, src1 40-47, src2 32-39, operand 0-31
+    private static long encode(Opcode opcode, int dest, int src1, int src2, long operand) {
+        return ((long) opcode.ordinal() << 56) | ((long) dest << 48) | ((long) src1 << 40)
+                | ((long) src2 << 32) | (operand & 0xFFFFFFFFL);
+    }
+
+    private static final long[] PROGRAM = {
+            encode(Opcode.MOV_IMM, 0, 0, 0, 10),
+            encode(Opcode.MOV_IMM, 1, 0, 0, 3),
+            encode(Opcode.ADD, 2, 0, 1, 0),
+            encode(Opcode.SUB, 3, 0, 1, 0),
+            encode(Opcode.MUL, 2, 2, 3, 0),
+            encode(Opcode.DIV, 2, 2, 1, 0),
+            encode(Opcode.XOR, 3, 3, 0, 0),
+            encode(Opcode.NOT, 1, 1, 0, 0),
+            encode(Opcode.CMP, 0, 0, 2, 0),
+            encode(Opcode.JMP, 0, 0, 0, 0x1234)
+    };
+
+    private static Processor runProgram(DispatchMode mode) {
+        Memory memory = new Memory();
+        Processor processor = new Processor(memory, new Cache(memory));
+        processor.setDispatchMode(mode);
+        for (long instruction : PROGRAM) {
+            processor.executeInstruction(instruction);
+        }
+        return processor;
+    }
+
+    @Test
+    public void testTableMatchesSwitch() {
+        Processor reference = runProgram(DispatchMode.SWITCH);
+        Processor table = runProgram(DispatchMode.TABLE);
+
+        for (int i = 0; i < reference.getNUM_GENERAL_PURPOSE_REGISTERS(); i++) {
+            assertEquals(reference.getGeneralPurposeRegisterValue(i), table.getGeneralPurposeRegisterValue(i));
+        }
+        assertEquals(reference.getProgramCounter(), table.getProgramCounter());
+        assertEquals(reference.isZeroFlag(), table.isZeroFlag());
+        assertEquals(reference.isGreaterThanFlag(), table.isGreaterThanFlag());
+        assertEquals(reference.isLessThanFlag(), table.isLessThanFlag());
+        assertEquals(30, table.getGeneralPurposeRegisterValue(2));
+        assertTrue(table.isLessThanFlag());
+    }
+
+    @Test
+    public void testInvalidOpcodeHalts() {
+        Memory memory = new Memory();
+        Processor processor = new Processor(memory, new Cache(memory));
+        processor.setDispatchMode(DispatchMode.TABLE);
+        processor.executeInstruction(0xFFL << 56);
+        assertFalse(processor.isRunning());
+    }
+}
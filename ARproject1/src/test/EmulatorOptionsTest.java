@@ -0,0 +1,102 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import emulator.EmulatorOptions;
+import emulator.RunMode;
+import memory.MemoryBackend;
+import processor.DispatchMode;
+
+public class EmulatorOptionsTest {
+
+    @Test
+    public void testDefaultsKeepLegacyBehaviour() {
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"program.txt"});
+        assertEquals("program.txt", options.getProgramPath());
+        assertEquals(RunMode.THROTTLED, options.getRunMode());
+        assertEquals(1.0, options.getInstructionsPerSecond(), 0.0);
+        assertEquals(1, options.getPrintEvery());
+    }
+
+    @Test
+    public void testFastMode() {
+        EmulatorOptions options = EmulatorOptions.parse(
+                new String[]{"--mode=fast", "program.txt", "--dispatch=table", "--no-translate"});
+        assertEquals(RunMode.FAST, options.getRunMode());
+        assertEquals(0, options.getPrintEvery());
+        assertEquals(DispatchMode.TABLE, options.getDispatchMode());
+        assertFalse(options.isTranslationEnabled());
+    }
+
+    @Test
+    public void testThrottledWithPrintEvery() {
+        EmulatorOptions options = EmulatorOptions.parse(
+                new String[]{"program.txt", "--mode=throttled", "--ips=5000", "--print-every=1000"});
+        assertEquals(5000.0, options.getInstructionsPerSecond(), 0.0);
+        assertEquals(1000, options.getPrintEvery());
+    }
+
+    @Test
+    public void testMemoryBackend() {
+        assertEquals(MemoryBackend.HEAP, EmulatorOptions.parse(new String[]{"program.txt"}).getMemoryBackend());
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"program.txt", "--memory=off-heap"});
+        assertEquals(MemoryBackend.OFF_HEAP, options.getMemoryBackend());
+    }
+
+    @Test
+    public void testRamFileMakesProgramOptional() {
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"--ram-file=guest.img"});
+        assertEquals(MemoryBackend.MAPPED_FILE, options.getMemoryBackend());
+        assertEquals("guest.img", options.getRamFile());
+        assertNull(options.getProgramPath());
+    }
+
+    @Test
+    public void testMissRatioCurveFile() {
+        assertNull(EmulatorOptions.parse(new String[]{"program.txt"}).getMissRatioCurveFile());
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"program.txt", "--mrc=mrc.csv"});
+        assertEquals("mrc.csv", options.getMissRatioCurveFile());
+    }
+
+    @Test
+    public void testCores() {
+        assertEquals(1, EmulatorOptions.parse(new String[]{"program.txt"}).getCores());
+        assertEquals(4, EmulatorOptions.parse(new String[]{"program.txt", "--cores=4"}).getCores());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsZeroCores() {
+        EmulatorOptions.parse(new String[]{"program.txt", "--cores=0"});
+    }
+
+    @Test
+    public void testBatchOptions() {
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"--batch=programs", "--jobs=3", "--limit=5000",
+                "--report=out.json"});
+        assertNull(options.getProgramPath());
+        assertEquals("programs", options.getBatchDirectory());
+        assertEquals(3, options.getJobs());
+        assertEquals(5000, options.getInstructionLimit());
+        assertEquals("out.json", options.getReportFile());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchTakesNoProgramPath() {
+        EmulatorOptions.parse(new String[]{"program.txt", "--batch=programs"});
+    }
+
+    @Test
+    public void testConsoleOptions() {
+        EmulatorOptions options = EmulatorOptions.parse(new String[]{"program.txt", "--console-in=in.txt",
+                "--console-out=out.txt"});
+        assertEquals("in.txt", options.getConsoleInput());
+        assertEquals("out.txt", options.getConsoleOutput());
+        assertNull(EmulatorOptions.parse(new String[]{"program.txt"}).getConsoleInput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOption() {
+        EmulatorOptions.parse(new String[]{"program.txt", "--turbo"});
+    }
+}
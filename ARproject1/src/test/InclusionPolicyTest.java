@@ -0,0 +1,70 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.InclusionPolicy;
+import memory.Memory;
+
+public class InclusionPolicyTest {
+
+    // L1: 2 linije, L2: 4 direktno mapirane linije, linije od 64 B
+    private static Cache cache(InclusionPolicy policy, int l1Associativity) {
+        return new Cache(new Memory(), 2, new int[]{128, 256}, new int[]{l1Associativity, 1}, 64, policy);
+    }
+
+    @Test
+    public void testInclusiveBackInvalidatesUpperLevel() {
+        Cache cache = cache(InclusionPolicy.INCLUSIVE, 2);  // potpuno asocijativan L1
+        cache.writeToCache(0, (byte) 1);             // prljava u L1 i L2
+        cache.readFromCache(256);                    // isti set u L2: izbacuje liniju 0 i iz L1
+
+        assertFalse(cache.getLevel(0).contains(0));
+        assertFalse(cache.getLevel(1).contains(0));
+        assertEquals(1, cache.getLevel(0).getBackInvalidations());
+        assertEquals(1, cache.getMemoryWritebacks());    // prljavi podatak iz L1 nije izgubljen
+
+        cache.readFromCache(64);
+        cache.readFromCache(64 + 256);               // L1 izbacuje 256 (LRU), L2 izbacuje 64 i iz L1
+        assertEquals(2, cache.getLevel(0).getBackInvalidations());
+        assertFalse(cache.getLevel(0).contains(64));
+        assertTrue(cache.getLevel(0).contains(64 + 256));
+        assertEquals(64, cache.getEffectiveCapacity(1)); // linija 256 postoji samo u L2
+    }
+
+    @Test
+    public void testExclusiveKeepsEachLineInOneLevel() {
+        Cache cache = cache(InclusionPolicy.EXCLUSIVE, 1);
+        cache.readFromCache(0);
+        assertTrue(cache.getLevel(0).contains(0));
+        assertFalse(cache.getLevel(1).contains(0));  // promašaj puni samo L1
+
+        cache.writeToCache(128, (byte) 1);           // isti L1 set: linija 0 silazi u L2
+        assertTrue(cache.getLevel(1).contains(0));
+        assertEquals(1, cache.getLevel(1).getVictimFills());
+
+        cache.readFromCache(0);                      // pogodak u L2: linija se vraća u L1, 128 silazi
+        assertEquals(1, cache.getLevel(1).getHits());
+        assertTrue(cache.getLevel(0).contains(0));
+        assertFalse(cache.getLevel(1).contains(0));
+        assertTrue(cache.getLevel(1).isDirty(128));
+        assertEquals(2, cache.getMemoryReads());
+
+        assertEquals(128, cache.getEffectiveCapacity());
+        cache.flush();
+        assertEquals(1, cache.getMemoryWritebacks());
+    }
+
+    @Test
+    public void testNineEvictionsDoNotAffectOtherLevels() {
+        Cache cache = cache(InclusionPolicy.NINE, 1);
+        cache.readFromCache(0);
+        cache.readFromCache(128);                    // L1 set 0: izbacuje 0, L2 ga zadržava
+        assertFalse(cache.getLevel(0).contains(0));
+        assertTrue(cache.getLevel(1).contains(0));
+        assertEquals(0, cache.getLevel(0).getBackInvalidations());
+        assertEquals(64, cache.getEffectiveCapacity(1));   // samo linija 0 nije u L1
+        assertEquals(InclusionPolicy.NINE, new Cache(new Memory()).getInclusionPolicy());
+    }
+}
@@ -0,0 +1,69 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import utility.LongHashSet;
+import utility.LongIntHashMap;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutGetAndGrow() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 64L - 5000, i);
+        }
+        assertEquals(10_000, map.size());
+        assertEquals(1234, map.get(1234 * 64L - 5000, -1));
+        assertEquals(-1, map.get(7, -1));
+        assertTrue(map.containsKey(0 * 64L - 5000));
+
+        assertEquals(1234, map.put(1234 * 64L - 5000, 1, -1));
+        assertEquals(-1, map.put(Long.MIN_VALUE, 3, -1));
+        assertEquals(3, map.get(Long.MIN_VALUE, -1));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testRemoveKeepsProbeRunsReachable() {
+        LongIntHashMap map = new LongIntHashMap(8);
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                reference.put(key, i);
+            } else {
+                Integer expected = reference.remove(key);
+                assertEquals(expected == null ? -1 : (int) expected, map.remove(key, -1));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(reference.getOrDefault(key, -1).intValue(), map.get(key, -1));
+        }
+    }
+
+    @Test
+    public void testLongHashSet() {
+        LongHashSet set = new LongHashSet(2);
+        for (long i = 0; i < 5000; i++) {
+            assertTrue(set.add(i * 4096));
+        }
+        assertFalse(set.add(4096));
+        assertEquals(5000, set.size());
+        assertTrue(set.contains(4999 * 4096L));
+        assertFalse(set.contains(1));
+        set.clear();
+        assertFalse(set.contains(0));
+    }
+}
@@ -0,0 +1,227 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import memory.MemoryBackend;
+import processor.Processor;
+import processor.ProcessorSnapshot;
+
+import java.util.Arrays;
+
+public class MemoryForkTest {
+
+    @Test
+    public void testForkSharesPagesUntilWritten() {
+        Memory parent = new Memory();
+        for (int page = 0; page < 8; page++) {
+            parent.writeToVirtualAddress(page * (long) Memory.PAGE_SIZE, (byte) page);
+        }
+        Memory child = parent.fork();
+        assertEquals(8, child.getAllocatedPageCount());
+        assertEquals(0, child.getCopiedPageCount());
+        for (int page = 0; page < 8; page++) {
+            assertEquals(page, child.readFromVirtualAddress(page * (long) Memory.PAGE_SIZE));
+        }
+        // Čitanja ne kopiraju ništa
+        assertEquals(0, child.getCopiedPageCount());
+        assertEquals(0, parent.getCopiedPageCount());
+    }
+
+    @Test
+    public void testWritesAreIsolatedBothWays() {
+        Memory parent = new Memory();
+        parent.writeLong(0x1000, 11);
+        parent.writeLong(0x2000, 22);
+        Memory child = parent.fork();
+
+        child.writeLong(0x1000, 111);
+        assertEquals(11, parent.readLong(0x1000));
+        assertEquals(111, child.readLong(0x1000));
+        assertEquals(1, child.getCopiedPageCount());
+        assertEquals(3, child.getCopiedTableCount());   // putanja nivoa 3, 2 i 1
+        // Kopija zamjenjuje dijeljenu stranicu, pa broj stranica ostaje isti
+        assertEquals(2, child.getAllocatedPageCount());
+        assertEquals(2, parent.getAllocatedPageCount());
+
+        parent.writeLong(0x2000, 222);
+        assertEquals(22, child.readLong(0x2000));
+        assertEquals(1, parent.getCopiedPageCount());
+
+        // Drugi upis u već kopiranu stranicu ne kopira ponovo
+        child.writeLong(0x1008, 5);
+        assertEquals(1, child.getCopiedPageCount());
+
+        // Nova stranica se alocira bez kopiranja i vidljiva je samo u svojoj memoriji
+        child.writeLong(0x9000, 9);
+        assertEquals(0, parent.readLong(0x9000));
+        assertEquals(1, child.getCopiedPageCount());
+    }
+
+    @Test
+    public void testTlbEntryOfSharedPageIsNotWrittenThrough() {
+        Memory parent = new Memory();
+        parent.writeToVirtualAddress(0x3000, (byte) 1);
+        assertEquals(1, parent.readFromVirtualAddress(0x3000));   // stranica je u TLB-u roditelja
+        Memory child = parent.fork();
+
+        parent.writeToVirtualAddress(0x3000, (byte) 2);
+        assertEquals(2, parent.readFromVirtualAddress(0x3000));
+        assertEquals(1, child.readFromVirtualAddress(0x3000));
+    }
+
+    @Test
+    public void testZeroFillCopiesASharedPage() {
+        Memory parent = new Memory();
+        parent.writeLong(0x1000, 77);
+        Memory child = parent.fork();
+
+        child.fill(0x1000, 8, (byte) 0);
+        assertEquals(0, child.readLong(0x1000));
+        assertEquals(77, parent.readLong(0x1000));
+        assertEquals(1, child.getCopiedPageCount());
+
+        // Brisanje stranice koja nikad nije pisana i dalje ništa ne alocira
+        long allocated = child.getAllocatedPageCount();
+        child.fill(0x40000, Memory.PAGE_SIZE, (byte) 0);
+        assertEquals(allocated, child.getAllocatedPageCount());
+    }
+
+    @Test
+    public void testSnapshotCanBeForkedRepeatedly() {
+        Memory memory = new Memory();
+        memory.writeInt(0x100, 7);
+        Memory snapshot = memory.fork();
+        memory.writeInt(0x100, 8);
+
+        for (int i = 0; i < 3; i++) {
+            Memory restored = snapshot.fork();
+            assertEquals(7, restored.readInt(0x100));
+            restored.writeInt(0x100, 100 + i);
+        }
+        assertEquals(7, snapshot.readInt(0x100));
+        assertEquals(0, snapshot.getCopiedPageCount());
+        assertEquals(8, memory.readInt(0x100));
+    }
+
+    @Test
+    public void testInitializeMemoryClearsOnlyTheFork() {
+        Memory parent = new Memory();
+        parent.writeToVirtualAddress(0x10, (byte) 3);
+        Memory child = parent.fork();
+        child.initializeMemory();
+        child.writeToVirtualAddress(0x20, (byte) 4);
+        assertEquals(0, child.readFromVirtualAddress(0x10));
+        assertEquals(3, parent.readFromVirtualAddress(0x10));
+        assertEquals(0, parent.readFromVirtualAddress(0x20));
+    }
+
+    @Test
+    public void testForkPerformance() {
+        // Fork kopira samo korijensku tabelu, pa trajanje ne zavisi od broja stranica
+        int[] residentPages = {16, 16384};
+        long[] medianNanos = new long[residentPages.length];
+        for (int i = 0; i < residentPages.length; i++) {
+            Memory memory = new Memory();
+            for (int page = 0; page < residentPages[i]; page++) {
+                memory.writeToVirtualAddress(page * (long) Memory.PAGE_SIZE, (byte) 1);
+            }
+            Processor processor = new Processor(memory, new Cache(memory, 1, new int[]{1024}, new int[]{2}, 64));
+            long[] samples = new long[201];
+            for (int run = 0; run < samples.length; run++) {
+                long startTime = System.nanoTime();
+                ProcessorSnapshot snapshot = processor.snapshot();
+                samples[run] = System.nanoTime() - startTime;
+                assertEquals(residentPages[i], snapshot.getMemory().getAllocatedPageCount());
+            }
+            Arrays.sort(samples);
+            medianNanos[i] = samples[samples.length / 2];
+            System.out.printf("Snapshot of %d resident pages: median %.2f us%n", residentPages[i], medianNanos[i] / 1e3);
+            assertEquals(0, memory.getCopiedTableCount());
+        }
+        // 1024 puta više stranica; linearna kopija bi bila višestruko sporija
+        assertTrue(medianNanos[1] < 10 * medianNanos[0] + 50_000);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOffHeapMemoryCannotBeForked() {
+        new Memory(MemoryBackend.OFF_HEAP, 1 << 20, 0, 1).fork();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMemoryWithCoreViewsCannotBeForked() {
+        Memory memory = new Memory();
+        memory.newCoreView();
+        memory.fork();
+    }
+
+    @Test
+    public void testProcessorForkContinuesWithOwnCache() {
+        Memory memory = new Memory();
+        Processor parent = new Processor(memory, new Cache(memory));
+        parent.generalPurposeRegisters[1] = 42;
+        parent.setFlags(false, true, false);
+        parent.writeToMemory(0x500, (byte) 6);
+        parent.run(10);
+
+        Processor child = parent.fork(m -> new Cache(m, 1, new int[]{1024}, new int[]{2}, 32));
+        assertEquals(parent.getProgramCounter(), child.getProgramCounter());
+        assertEquals(parent.getInstructionsRetired(), child.getInstructionsRetired());
+        assertEquals(42, child.getGeneralPurposeRegisterValue(1));
+        assertTrue(child.isGreaterThanFlag());
+        assertEquals(1, child.getCache().getNumCacheLevels());
+
+        child.writeToMemory(0x500, (byte) 9);
+        assertEquals(6, parent.readFromMemory(0x500));
+        assertEquals(9, child.readFromMemory(0x500));
+
+        parent.run(5);
+        child.run(5);
+        assertEquals(parent.getProgramCounter(), child.getProgramCounter());
+    }
+
+    @Test
+    public void testForkWithoutCacheUsesMemoryDirectly() {
+        Memory memory = new Memory();
+        Processor parent = new Processor(memory, new Cache(memory));
+        parent.writeToMemory(0x10, (byte) 4);
+        parent.generalPurposeRegisters[2] = 0x0102;
+
+        Processor child = parent.fork(m -> null);
+        assertNull(child.getCache());
+        child.movFromRam(1, 0x10, false);
+        assertEquals(4, child.getGeneralPurposeRegisterValue(1));
+        child.movToRam(2, 0x20, false);
+        assertEquals(0x0102, child.getMemory().readLong(0x20));
+        assertEquals(0, parent.getMemory().readLong(0x20));
+        child.run(5);
+        assertEquals(5, child.getInstructionsRetired() - parent.getInstructionsRetired());
+    }
+
+    @Test
+    public void testSnapshotRestoresTheSameStateEveryTime() {
+        Memory memory = new Memory();
+        Processor processor = new Processor(memory, new Cache(memory));
+        processor.generalPurposeRegisters[2] = 5;
+        processor.writeToMemory(0x700, (byte) 1);
+        processor.run(3);
+        ProcessorSnapshot snapshot = processor.snapshot();
+
+        processor.generalPurposeRegisters[2] = 50;
+        processor.writeToMemory(0x700, (byte) 2);
+        processor.run(4);
+
+        for (int i = 0; i < 2; i++) {
+            Processor restored = snapshot.restore(Cache::new);
+            assertEquals(3, restored.getProgramCounter());
+            assertEquals(3, restored.getInstructionsRetired());
+            assertEquals(5, restored.getGeneralPurposeRegisterValue(2));
+            assertEquals(1, restored.readFromMemory(0x700));
+            restored.writeToMemory(0x700, (byte) 3);
+        }
+        assertEquals(3, snapshot.getProgramCounter());
+        assertEquals(2, processor.readFromMemory(0x700));
+    }
+}
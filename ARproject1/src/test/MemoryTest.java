@@ -4,6 +4,12 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import memory.Memory;
+import memory.MemoryBackend;
+import memory.OffHeapFrameStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class MemoryTest {
 
@@ -53,6 +59,147 @@ public class MemoryTest {
         assertEquals(0, memory.readFromVirtualAddress(virtualAddress));
     }
 
+    @Test
+    public void testInstancesAreIsolated() {
+        Memory first = new Memory();
+        Memory second = new Memory();
+        long virtualAddress = 0x2000;
+
+        first.writeToVirtualAddress(virtualAddress, (byte) 42);
+
+        assertEquals(42, first.readFromVirtualAddress(virtualAddress));
+        assertEquals(0, second.readFromVirtualAddress(virtualAddress));
+    }
+
+    @Test
+    public void testPagesAreAllocatedOnFirstWrite() {
+        Memory memory = new Memory();
+        assertEquals(0, memory.getAllocatedPageCount());
+
+        // Čitanje ne alocira stranice
+        memory.readFromVirtualAddress(0x7FFF00001000L);
+        assertEquals(0, memory.getAllocatedPageCount());
+
+        // Dvije udaljene adrese - dvije stranice, bez preklapanja
+        memory.writeToVirtualAddress(0x1000, (byte) 1);
+        memory.writeToVirtualAddress(0x7FFF00001000L, (byte) 2);
+        assertEquals(2, memory.getAllocatedPageCount());
+        assertEquals(1, memory.readFromVirtualAddress(0x1000));
+        assertEquals(2, memory.readFromVirtualAddress(0x7FFF00001000L));
+        assertEquals(0, memory.readFromVirtualAddress(0x1000 + (1L << 21)));
+    }
+
+    @Test
+    public void testOffHeapBackendCommitsLazily() {
+        Memory memory = new Memory(MemoryBackend.OFF_HEAP, 64L << 20, 0, 1);
+        assertEquals(64L << 20, memory.getReservedBytes());
+        assertEquals(0, memory.getResidentBytes());
+
+        memory.writeToVirtualAddress(0x123456789ABCDEFL, (byte) 42);
+        memory.writeToVirtualAddress(0x2000, (byte) -1);
+        assertEquals(42, memory.readFromVirtualAddress(0x123456789ABCDEFL));
+        assertEquals(-1, memory.readFromVirtualAddress(0x2000));
+        assertEquals(0, memory.readFromVirtualAddress(0x2001));
+        // Dvije stranice staju u jedan slab
+        assertEquals((long) OffHeapFrameStore.FRAMES_PER_SLAB * Memory.PAGE_SIZE, memory.getResidentBytes());
+    }
+
+    @Test
+    public void testMultiByteAccessIsLittleEndianOnBothBackends() {
+        for (MemoryBackend backend : new MemoryBackend[]{MemoryBackend.HEAP, MemoryBackend.OFF_HEAP}) {
+            Memory memory = new Memory(backend);
+            memory.writeToVirtualAddress(0x10, (byte) 0);
+            Memory.MemoryPage page = memory.translateVirtualToPhysical(0x10);
+
+            page.writeLong(8, 0x0102030405060708L);
+            assertEquals(0x08, page.read(8));
+            assertEquals(0x01, page.read(15));
+            assertEquals(0x05060708, page.readInt(8));
+            assertEquals((short) 0x0708, page.readShort(8));
+            page.writeInt(100, -2);
+            assertEquals(-2L & 0xFFFFFFFFL, page.readLong(100));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOffHeapReservationExhausted() {
+        Memory memory = new Memory(MemoryBackend.OFF_HEAP, 1, 0, 1);
+        for (int i = 0; i <= OffHeapFrameStore.FRAMES_PER_SLAB; i++) {
+            memory.writeToVirtualAddress((long) i * Memory.PAGE_SIZE, (byte) 1);
+        }
+    }
+
+    @Test
+    public void testMappedFileSurvivesRestart() throws IOException {
+        Path image = Files.createTempDirectory("guest").resolve("ram.img");
+        Memory memory = new Memory(image, 64L << 20);
+        assertFalse(memory.isRestored());
+        memory.writeToVirtualAddress(0x123456789ABCDEFL, (byte) 42);
+        memory.writeToVirtualAddress(0x3000, (byte) 7);
+        memory.close();
+
+        Memory remapped = new Memory(image, 64L << 20);
+        assertTrue(remapped.isRestored());
+        assertEquals(42, remapped.readFromVirtualAddress(0x123456789ABCDEFL));
+        assertEquals(7, remapped.readFromVirtualAddress(0x3000));
+        assertEquals(2, remapped.getAllocatedPageCount());
+
+        // Nova stranica ne smije naslijediti stare podatke
+        remapped.writeToVirtualAddress(0x9000, (byte) 1);
+        assertEquals(0, remapped.readFromVirtualAddress(0x9001));
+
+        remapped.initializeMemory();
+        remapped.close();
+        assertFalse(new Memory(image, 64L << 20).isRestored());
+    }
+
+    @Test
+    public void testWideAccessAcrossPageBoundary() {
+        Memory memory = new Memory();
+        long address = Memory.PAGE_SIZE - 3;                 // 3 bajta u prvoj, 5 u drugoj stranici
+        memory.writeLong(address, 0x1122334455667788L);
+        assertEquals(0x1122334455667788L, memory.readLong(address));
+        assertEquals((byte) 0x88, memory.readFromVirtualAddress(address));
+        assertEquals((byte) 0x11, memory.readFromVirtualAddress(address + 7));
+        assertEquals(0x55667788, memory.readInt(address));
+        assertEquals((short) 0x6677, memory.readShort(address + 1));
+
+        memory.writeInt(0x40, 0xCAFEBABE);
+        memory.writeShort(0x44, (short) -1);
+        assertEquals(0xFFFFCAFEBABEL, memory.readLong(0x40));
+        assertEquals(0, memory.readLong(0x7FFF0000L));      // nikad upisano
+    }
+
+    @Test
+    public void testBlockOperations() {
+        for (MemoryBackend backend : new MemoryBackend[]{MemoryBackend.HEAP, MemoryBackend.OFF_HEAP}) {
+            Memory memory = new Memory(backend);
+            byte[] source = new byte[3 * Memory.PAGE_SIZE];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = (byte) i;
+            }
+            long address = Memory.PAGE_SIZE / 2;
+            memory.writeBlock(address, source, 0, source.length);
+            assertEquals(4, memory.getAllocatedPageCount());
+
+            byte[] copy = new byte[source.length + 16];
+            memory.readBlock(address - 8, copy, 0, copy.length);
+            for (int i = 0; i < source.length; i++) {
+                assertEquals(source[i], copy[i + 8]);
+            }
+            assertEquals(0, copy[0]);
+
+            memory.fill(address + 10, Memory.PAGE_SIZE, (byte) 7);
+            assertEquals(9, memory.readFromVirtualAddress(address + 9));
+            assertEquals(7, memory.readFromVirtualAddress(address + 10));
+            assertEquals(7, memory.readFromVirtualAddress(address + 9 + Memory.PAGE_SIZE));
+
+            // Nuliranje neupisanog opsega ne alocira stranice
+            memory.fill(1L << 40, 10 * Memory.PAGE_SIZE, (byte) 0);
+            assertEquals(4, memory.getAllocatedPageCount());
+        }
+    }
+
     @Test   // passed 14.02.2024
     public void testPerformance() {
         Memory memory = new Memory();
@@ -0,0 +1,58 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.MissClassifier;
+import memory.Memory;
+
+public class MissClassificationTest {
+
+    @Test
+    public void testCompulsoryConflictAndCapacity() {
+        CacheLevel level = new CacheLevel(0, 4 * 64, 1, 64);      // 4 direktno mapirana seta
+        level.setMissClassification(true);
+        MissClassifier classifier = level.getMissClassifier();
+
+        level.access(0, false);                                   // prvi dodir
+        level.access(256, false);                                 // prvi dodir, izbacuje 0 (isti set)
+        level.access(0, false);                                   // LRU od 4 linije bi pogodio: konflikt
+        assertEquals(2, classifier.getCompulsoryMisses());
+        assertEquals(1, classifier.getConflictMisses());
+
+        for (long line = 1; line <= 4; line++) {                  // 4 nove linije potiskuju 0 iz sjene
+            level.access(line * 64 + 1024, false);
+        }
+        level.access(0, false);
+        assertEquals(6, classifier.getCompulsoryMisses());
+        assertEquals(1, classifier.getCapacityMisses());
+        assertEquals(classifier.getCompulsoryMisses() + classifier.getCapacityMisses()
+                + classifier.getConflictMisses(), level.getMisses());
+    }
+
+    @Test
+    public void testFullyAssociativeLevelHasNoConflictMisses() {
+        Cache cache = new Cache(new Memory(), 1, new int[]{16 * 64}, new int[]{16}, 64);
+        cache.setMissClassification(true);
+        for (int round = 0; round < 3; round++) {
+            for (long line = 0; line < 20; line++) {              // ciklus veći od kapaciteta
+                cache.readFromCache(line * 64);
+            }
+        }
+        MissClassifier classifier = cache.getLevel(0).getMissClassifier();
+        assertEquals(0, classifier.getConflictMisses());
+        assertEquals(20, classifier.getCompulsoryMisses());
+        assertEquals(40, classifier.getCapacityMisses());
+
+        cache.resetStatistics();
+        cache.readFromCache(19 * 64);                             // istorija prvih dodira ostaje
+        assertEquals(0, classifier.getCompulsoryMisses());
+    }
+
+    @Test
+    public void testClassificationIsOffByDefault() {
+        assertNull(new CacheLevel(0, 1024, 2, 64).getMissClassifier());
+    }
+}
@@ -0,0 +1,93 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.NextLinePrefetcher;
+import cache.StreamPrefetcher;
+import cache.StridePrefetcher;
+import memory.Memory;
+
+public class PrefetcherTest {
+
+    private static Cache singleLevel(int size, int associativity) {
+        return new Cache(new Memory(), 1, new int[]{size}, new int[]{associativity}, 64);
+    }
+
+    @Test
+    public void testNextLineHidesSequentialMisses() {
+        Cache cache = singleLevel(8 * 1024, 4);
+        cache.setPrefetcher(0, new NextLinePrefetcher());
+        for (long address = 0; address < 64 * 64; address += 8) {
+            cache.readFromCache(address);
+        }
+        CacheLevel l1 = cache.getLevel(0);
+        assertEquals(1, l1.getMisses());                 // samo prva linija
+        assertEquals(63, l1.getUsefulPrefetches());
+        assertEquals(64, l1.getPrefetches());            // posljednji prefetch nije iskorišten
+        assertTrue(l1.getPrefetchCoverage() > 98);
+        assertTrue(l1.getPrefetchAccuracy() > 98);
+    }
+
+    @Test
+    public void testStrideIsTrackedPerInstruction() {
+        Cache cache = singleLevel(64 * 1024, 8);
+        long[] pc = {0};
+        cache.setProgramCounterSource(() -> pc[0]);
+        cache.setPrefetcher(0, new StridePrefetcher(64, 1, 2));
+        for (int i = 0; i < 20; i++) {
+            pc[0] = 10;
+            cache.readFromCache(i * 512L);               // stride 512 B
+            pc[0] = 11;
+            cache.readFromCache(0x100000 + i * 4096L * 3);   // druga instrukcija, drugi stride
+        }
+        CacheLevel l1 = cache.getLevel(0);
+        // Tri pristupa za treniranje i jedan koji udaljenost 2 preskače, ostalo su pogoci
+        assertEquals(2 * 4, l1.getMisses());
+        assertEquals(2 * 16, l1.getUsefulPrefetches());
+    }
+
+    @Test
+    public void testStreamFollowsDescendingScan() {
+        Cache cache = singleLevel(8 * 1024, 4);
+        cache.setPrefetcher(0, new StreamPrefetcher(4, 2, 1));
+        long top = 64 * 64;
+        for (long line = 0; line < 32; line++) {
+            cache.readFromCache(top - line * 64);
+        }
+        CacheLevel l1 = cache.getLevel(0);
+        assertEquals(3, l1.getMisses());                 // dva promašaja za smjer, treći ga potvrđuje
+        assertEquals(29, l1.getUsefulPrefetches());
+    }
+
+    @Test
+    public void testPollutionAndUnusedPrefetches() {
+        Cache cache = singleLevel(128, 1);               // dva direktno mapirana seta
+        cache.setPrefetcher(0, new NextLinePrefetcher());
+        cache.readFromCache(0);                          // prefetch linije 1 (set 1)
+        cache.readFromCache(192);                        // linija 3 izbacuje neiskorištenu liniju 1,
+                                                         // prefetch linije 4 izbacuje liniju 0
+        cache.readFromCache(0);                          // promašaj zbog prefetch-a; izbacuje i liniju 4
+        CacheLevel l1 = cache.getLevel(0);
+        assertEquals(2, l1.getUnusedPrefetches());
+        assertEquals(1, l1.getPollutionMisses());
+    }
+
+    @Test
+    public void testPrefetchFillsLowerLevelsOnce() {
+        Cache cache = new Cache(new Memory(), 2, new int[]{1024, 4096}, new int[]{2, 4}, 64);
+        cache.setPrefetcher(0, new NextLinePrefetcher(2, 1));
+        cache.readFromCache(0);
+        assertTrue(cache.getLevel(0).contains(128));
+        assertTrue(cache.getLevel(1).contains(128));
+        assertEquals(3, cache.getMemoryReads());
+        assertEquals(1, cache.getLevel(1).getMisses()); // prefetch nije zahtjev
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsZeroDegree() {
+        new NextLinePrefetcher(0, 1);
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import memory.Memory;
+import processor.DecodedBlockCache;
+import processor.Processor;
+import processor.RunResult;
+
+public class ProcessorRunTest {
+
+    private static Processor newProcessor() {
+        Memory memory = new Memory();
+        return new Processor(memory, new Cache(memory));
+    }
+
+    @Test
+    public void testInstructionLimit() {
+        Processor processor = newProcessor();
+        RunResult result = processor.run(10);
+        assertEquals(RunResult.ExitReason.INSTRUCTION_LIMIT, result.getExitReason());
+        assertEquals(10, result.getRetired());
+        assertEquals(10, result.getElapsedCycles());
+        assertEquals(10, processor.getProgramCounter());
+        assertEquals(10, processor.getInstructionsRetired());
+    }
+
+    @Test
+    public void testBreakpoint() {
+        Processor processor = newProcessor();
+        processor.addBreakpoint(5);
+        RunResult result = processor.run(100);
+        assertEquals(RunResult.ExitReason.BREAKPOINT, result.getExitReason());
+        assertEquals(5, result.getRetired());
+        assertEquals(5, processor.getProgramCounter());
+
+        // Nastavak sa breakpoint-a ne staje odmah
+        result = processor.run(3);
+        assertEquals(RunResult.ExitReason.INSTRUCTION_LIMIT, result.getExitReason());
+        assertEquals(8, processor.getProgramCounter());
+    }
+
+    @Test
+    public void testHalted() {
+        Processor processor = newProcessor();
+        processor.halt();
+        RunResult result = processor.run(100);
+        assertEquals(RunResult.ExitReason.HALTED, result.getExitReason());
+        assertEquals(0, result.getRetired());
+    }
+
+    @Test
+    public void testTranslatedBlocksRespectLimit() {
+        Processor processor = newProcessor();
+        processor.setTranslationThreshold(1);
+        // Petlja preko istog bloka: prevedeni blok se koristi samo kada cijeli stane u budžet
+        long total = 0;
+        for (int i = 0; i < 5; i++) {
+            processor.setProgramCounter(0);
+            total += processor.run(DecodedBlockCache.MAX_BLOCK_LENGTH).getRetired();
+        }
+        assertEquals(5L * DecodedBlockCache.MAX_BLOCK_LENGTH, total);
+        assertEquals(1, processor.getTranslator().getBlocksTranslated());
+
+        processor.setProgramCounter(0);
+        RunResult result = processor.run(10);
+        assertEquals(10, result.getRetired());
+        assertEquals(10, processor.getProgramCounter());
+    }
+}
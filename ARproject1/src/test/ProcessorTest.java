@@ -164,4 +164,18 @@ class ProcessorTest {
         assertEquals(expectedInstruction, fetchedInstruction);
     }
 
+    @Test
+    void testInstructionFetchIsACacheAccess() {
+        memory.writeInt(0x2000, 0x01020304);
+        assertEquals(0x01020304, processor.fetchInstructionFromMemory(0x2000));
+        assertEquals(1, cache.getCacheMisses());
+        processor.fetchInstructionFromMemory(0x2000);
+        assertEquals(1, cache.getCacheHits());
+
+        // Instrukcija preko granice linije pristupa objema linijama
+        processor.fetchInstructionFromMemory(0x2000 + 62);
+        assertEquals(2, cache.getCacheHits());
+        assertEquals(2, cache.getCacheMisses());
+    }
+
 }
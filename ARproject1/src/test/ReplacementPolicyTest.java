@@ -0,0 +1,143 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.AccessTrace;
+import cache.BeladyPolicy;
+import cache.Cache;
+import cache.CacheLevel;
+import cache.FifoPolicy;
+import cache.LruPolicy;
+import cache.RandomPolicy;
+import cache.ReplacementPolicy;
+import cache.SrripPolicy;
+import cache.TreePlruPolicy;
+import memory.Memory;
+
+public class ReplacementPolicyTest {
+    private static final int LINE = 64;
+
+    // Jedan set sa 4 puta: adrese i * LINE se sve mapiraju u isti set
+    private static CacheLevel oneSet(ReplacementPolicy policy) {
+        return new CacheLevel(0, 4 * LINE, 4, LINE, policy);
+    }
+
+    private static void accessLines(CacheLevel level, int... lines) {
+        for (int line : lines) {
+            level.access((long) line * LINE, false);
+        }
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        CacheLevel level = oneSet(new LruPolicy());
+        accessLines(level, 0, 1, 2, 3, 0, 4);
+        assertTrue(level.contains(0));
+        assertFalse(level.contains(LINE));
+    }
+
+    @Test
+    public void testLruRanksAreAllocatedWithTheTags() {
+        // L3 podrazumijevane konfiguracije: 32 KiB setova, 16 puteva
+        CacheLevel level = new CacheLevel(2, 32 * 1024 * 1024, 16, LINE, new LruPolicy());
+        long emptyBytes = level.getStateBytes();
+        assertEquals(0, level.getReplacementPolicy().getStateBytes());
+
+        level.access(0, false);
+        assertEquals(64 * 16, level.getReplacementPolicy().getStateBytes());
+        assertEquals(emptyBytes + 64 * 16 * (Long.BYTES + 1), level.getStateBytes());
+    }
+
+    @Test
+    public void testFifoIgnoresHits() {
+        CacheLevel level = oneSet(new FifoPolicy());
+        accessLines(level, 0, 1, 2, 3, 0, 4);
+        assertFalse(level.contains(0));
+        assertTrue(level.contains(LINE));
+    }
+
+    @Test
+    public void testTreePlruProtectsRecentWay() {
+        CacheLevel level = oneSet(new TreePlruPolicy());
+        accessLines(level, 0, 1, 2, 3, 0, 4);
+        assertTrue(level.contains(0));
+        assertTrue(level.contains(3 * LINE));
+        assertEquals(1, level.getEvictions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTreePlruNeedsPowerOfTwoWays() {
+        new CacheLevel(0, 3 * LINE * 2, 3, LINE, new TreePlruPolicy());
+    }
+
+    @Test
+    public void testSrripKeepsReusedLine() {
+        CacheLevel level = oneSet(new SrripPolicy());
+        accessLines(level, 0, 1, 2, 3, 0, 4, 5);
+        assertTrue(level.contains(0));
+    }
+
+    @Test
+    public void testRandomIsReproducible() {
+        CacheLevel first = oneSet(new RandomPolicy(42));
+        CacheLevel second = oneSet(new RandomPolicy(42));
+        for (int i = 0; i < 100; i++) {
+            int line = (i * 7) % 11;
+            first.access((long) line * LINE, false);
+            second.access((long) line * LINE, false);
+        }
+        assertEquals(first.getHits(), second.getHits());
+    }
+
+    @Test
+    public void testBeladyUsesTheNextUseOfTheFilledLine() {
+        AccessTrace trace = new AccessTrace();
+        for (int line : new int[]{0, 1, 0, 3, 1}) {
+            trace.add((long) line * LINE, false);
+        }
+        BeladyPolicy policy = new BeladyPolicy(trace, LINE);
+        CacheLevel level = oneSet(policy);
+        policy.onTracePosition(0);
+        // Pristup liniji 0 puni i linije koje nije tražio (npr. prefetch): 3 se koristi na poziciji 3, 2 nikad
+        level.fill(0);
+        level.fill(3L * LINE);
+        level.fill(2L * LINE);
+        level.fill(1L * LINE);
+        assertEquals(2, policy.selectVictim(0));
+
+        // Poslije pozicije 3 samo linija 1 (put 3) ima sljedeću upotrebu
+        policy.onTracePosition(3);
+        level.access(3L * LINE, false);
+        assertNotEquals(3, policy.selectVictim(0));
+    }
+
+    @Test
+    public void testBeladyBeatsLruOnCyclicTrace() {
+        // Ciklus od 5 linija kroz set od 4 puta: LRU uvijek promašuje
+        Memory memory = new Memory();
+        Cache cache = new Cache(memory, 1, new int[]{4 * LINE}, new int[]{4}, LINE);
+        AccessTrace trace = new AccessTrace();
+        cache.setAccessTrace(trace);
+        for (int round = 0; round < 20; round++) {
+            for (int line = 0; line < 5; line++) {
+                cache.readFromCache((long) line * LINE);
+            }
+        }
+        cache.setAccessTrace(null);
+        assertEquals(100, trace.size());
+        assertEquals(0, cache.getCacheHits());
+
+        cache.clear();
+        cache.setReplacementPolicy(0, new BeladyPolicy(trace, LINE));
+        cache.replay(trace);
+        assertEquals(100, cache.getCacheHits() + cache.getCacheMisses());
+        assertTrue(cache.getCacheHits() >= 60);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBeladyRejectsOnlineUse() {
+        CacheLevel level = oneSet(new BeladyPolicy(new AccessTrace(), LINE));
+        level.access(0, false);
+    }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import cache.Cache;
+import cache.CacheLevel;
+import cache.ReuseDistanceAnalyzer;
+import memory.Memory;
+
+public class ReuseDistanceAnalyzerTest {
+
+    @Test
+    public void testCyclicScanDistances() {
+        ReuseDistanceAnalyzer analyzer = new ReuseDistanceAnalyzer(64);
+        for (int round = 0; round < 4; round++) {
+            for (long line = 0; line < 10; line++) {
+                analyzer.onCacheAccess(line * 64 + round, false);
+            }
+        }
+        long[] histogram = analyzer.getHistogram(64);
+        assertEquals(10, histogram.length);
+        assertEquals(30, histogram[9]);              // između dva pristupa liniji uvijek 9 drugih
+        assertEquals(10, analyzer.getColdMisses(64));
+        assertEquals(1.0, analyzer.getMissRatio(64, 9 * 64), 1e-12);     // LRU ciklus: sve promašaji
+        assertEquals(0.25, analyzer.getMissRatio(64, 10 * 64), 1e-12);   // samo hladni promašaji
+    }
+
+    @Test
+    public void testMatchesFullyAssociativeLruForEveryCapacity() {
+        // Dovoljno pristupa da se vremena više puta prenumerišu
+        Random random = new Random(7);
+        long[] trace = new long[20000];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = (random.nextInt(4) == 0 ? random.nextInt(200) : random.nextInt(24)) * 64L + random.nextInt(64);
+        }
+        ReuseDistanceAnalyzer analyzer = new ReuseDistanceAnalyzer(64, 128);
+        for (long address : trace) {
+            analyzer.onCacheAccess(address, false);
+        }
+        for (int lines = 1; lines <= 64; lines += 7) {
+            CacheLevel level = new CacheLevel(0, lines * 64, lines, 64);   // jedan set = potpuno asocijativan
+            for (long address : trace) {
+                level.access(address, false);
+            }
+            assertEquals(level.getMisses() / (double) trace.length, analyzer.getMissRatio(64, lines * 64L), 1e-12);
+        }
+        CacheLevel wide = new CacheLevel(0, 16 * 128, 16, 128);
+        for (long address : trace) {
+            wide.access(address, false);
+        }
+        assertEquals(wide.getMisses() / (double) trace.length, analyzer.getMissRatio(128, 16 * 128L), 1e-12);
+    }
+
+    @Test
+    public void testCsvFromCacheAccessStream() throws Exception {
+        Cache cache = new Cache(new Memory());
+        ReuseDistanceAnalyzer analyzer = new ReuseDistanceAnalyzer(64);
+        cache.addAccessListener(analyzer);
+        cache.readFromCache(0);
+        cache.readFromCache(64);
+        cache.writeToCache(0, (byte) 1);
+        cache.readFromCache(1);
+
+        StringWriter out = new StringWriter();
+        analyzer.writeMissRatioCurve(out);
+        String[] rows = out.toString().split("\n");
+        assertEquals("lineSize,capacityBytes,missRatio", rows[0]);
+        assertEquals("64,0,1.0", rows[1]);
+        assertEquals("64,64,0.75", rows[2]);         // udaljenost 0: drugi pristup liniji 0
+        assertEquals("64,128,0.5", rows[3]);         // udaljenost 1
+        assertEquals(4, rows.length);
+        assertEquals(4, analyzer.getAccesses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownLineSize() {
+        new ReuseDistanceAnalyzer(64).getMissRatio(32, 1024);
+    }
+}
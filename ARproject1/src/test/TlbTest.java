@@ -0,0 +1,78 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import memory.Memory;
+import memory.Tlb;
+
+public class TlbTest {
+
+    @Test
+    public void testRepeatedAccessHitsTlb() {
+        Memory memory = new Memory();
+        memory.writeToVirtualAddress(0x1000, (byte) 1);      // promašaj, pa upis u TLB
+        memory.readFromVirtualAddress(0x1001);
+        memory.readFromVirtualAddress(0x1FFF);
+
+        Tlb tlb = memory.getTlb();
+        assertEquals(1, tlb.getMisses());
+        assertEquals(2, tlb.getHits());
+    }
+
+    @Test
+    public void testDirectMappedConflictEvicts() {
+        Tlb tlb = new Tlb(4, 1);
+        Memory.MemoryPage first = new Memory.MemoryPage(0);
+        Memory.MemoryPage second = new Memory.MemoryPage(1);
+
+        tlb.insert(1, first);
+        tlb.insert(5, second);                               // isti set kao stranica 1
+        assertNull(tlb.lookup(1));
+        assertSame(second, tlb.lookup(5));
+    }
+
+    @Test
+    public void testLruReplacementWithinSet() {
+        Tlb tlb = new Tlb(4, 2);                             // 2 seta po 2 ulaza
+        Memory.MemoryPage a = new Memory.MemoryPage(0);
+        Memory.MemoryPage b = new Memory.MemoryPage(1);
+        Memory.MemoryPage c = new Memory.MemoryPage(2);
+
+        tlb.insert(0, a);
+        tlb.insert(2, b);
+        tlb.lookup(0);                                       // stranica 2 je sada najstarija
+        tlb.insert(4, c);
+
+        assertSame(a, tlb.lookup(0));
+        assertNull(tlb.lookup(2));
+        assertSame(c, tlb.lookup(4));
+    }
+
+    @Test
+    public void testInvalidateAndFlush() {
+        Tlb tlb = new Tlb(8, 8);
+        tlb.insert(3, new Memory.MemoryPage(0));
+        tlb.insert(7, new Memory.MemoryPage(1));
+
+        tlb.invalidate(3);
+        assertNull(tlb.lookup(3));
+        assertNotNull(tlb.lookup(7));
+
+        tlb.flush();
+        assertNull(tlb.lookup(7));
+    }
+
+    @Test
+    public void testMemoryWithoutTlbStillTranslates() {
+        Memory memory = new Memory(0, 1);
+        assertNull(memory.getTlb());
+        memory.writeToVirtualAddress(0xABCDEF, (byte) 9);
+        assertEquals(9, memory.readFromVirtualAddress(0xABCDEF));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPowerOfTwoSize() {
+        new Tlb(48, 4);
+    }
+}
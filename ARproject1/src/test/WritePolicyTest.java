@@ -0,0 +1,69 @@
+package test;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cache.Cache;
+import cache.WriteHitPolicy;
+import cache.WriteMissPolicy;
+import memory.Memory;
+
+public class WritePolicyTest {
+    private static final int LINE = 64;
+
+    // L1: 2 linije direktno mapirane, L2: 8 linija 2-struko asocijativno
+    private static Cache newCache(Memory memory) {
+        return new Cache(memory, 2, new int[]{2 * LINE, 8 * LINE}, new int[]{1, 2}, LINE);
+    }
+
+    @Test
+    public void testWriteBackDefersTrafficUntilEviction() {
+        Memory memory = new Memory();
+        Cache cache = newCache(memory);
+        for (int i = 0; i < 10; i++) {
+            cache.writeToCache(0, (byte) i);
+        }
+        assertEquals(9, memory.readFromVirtualAddress(0));      // podaci su uvijek u memoriji
+        assertTrue(cache.getLevel(0).isDirty(0));
+        assertEquals(0, cache.getMemoryWrites());
+        assertEquals(1, cache.getMemoryReads());                 // samo dohvat linije
+
+        cache.readFromCache(2 * LINE);                           // isti L1 set - prljava linija ide u L2
+        assertEquals(1, cache.getLevel(0).getWritebacks());
+        assertTrue(cache.getLevel(1).isDirty(0));
+        assertEquals(0, cache.getMemoryWritebacks());
+
+        cache.flush();
+        assertEquals(1, cache.getMemoryWritebacks());
+        assertFalse(cache.getLevel(1).isDirty(0));
+        cache.flush();
+        assertEquals(1, cache.getMemoryWritebacks());
+    }
+
+    @Test
+    public void testWriteThroughSendsEveryStoreDown() {
+        Memory memory = new Memory();
+        Cache cache = newCache(memory);
+        cache.setWritePolicy(0, WriteHitPolicy.WRITE_THROUGH, WriteMissPolicy.WRITE_ALLOCATE);
+        cache.setWritePolicy(1, WriteHitPolicy.WRITE_THROUGH, WriteMissPolicy.WRITE_ALLOCATE);
+        for (int i = 0; i < 10; i++) {
+            cache.writeToCache(0, (byte) i);
+        }
+        assertEquals(10, cache.getMemoryWrites());
+        assertFalse(cache.getLevel(0).isDirty(0));
+        assertEquals(9, cache.getCacheHits());
+        cache.flush();
+        assertEquals(0, cache.getMemoryWritebacks());
+    }
+
+    @Test
+    public void testNoWriteAllocateBypassesLevel() {
+        Memory memory = new Memory();
+        Cache cache = newCache(memory);
+        cache.setWritePolicy(0, WriteHitPolicy.WRITE_BACK, WriteMissPolicy.NO_WRITE_ALLOCATE);
+        cache.writeToCache(5 * LINE, (byte) 1);
+        assertFalse(cache.getLevel(0).contains(5 * LINE));
+        assertTrue(cache.getLevel(1).isDirty(5 * LINE));
+        assertEquals(1, cache.getLevel(0).getMisses());
+    }
+}
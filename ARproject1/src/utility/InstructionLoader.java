@@ -3,28 +3,43 @@ package utility;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 
 import memory.Memory;
 public class InstructionLoader {
     public static void loadProgram(Memory memory, String filePath) {
 
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-
-            String line;
-            long address = 0; // Adresa u memoriji gdje ćemo pohranjivati instrukcije
-
-            while ((line = reader.readLine()) != null) {
-                // Pohrani svaki znak iz linije u memoriju
-                for (byte b : line.getBytes()) {
-                    memory.writeToVirtualAddress(address, b);
-                    address += 1; // Promijeni adresu za sljedeći bajt
-                }
-                // Dodaj novi redak između instrukcija
-                memory.writeToVirtualAddress(address, (byte) '\n');
-                address += 1; // Promijeni adresu za novi redak
-            }
+            load(memory, reader);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Loads a program like {@link #loadProgram(Memory, String)} but reports a missing or
+     * unreadable file to the caller instead of printing it.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    public static void loadProgram(Memory memory, Path path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
+            load(memory, reader);
+        }
+    }
+
+    private static void load(Memory memory, BufferedReader reader) throws IOException {
+        String line;
+        long address = 0; // Adresa u memoriji gdje ćemo pohranjivati instrukcije
+
+        while ((line = reader.readLine()) != null) {
+            // Pohrani cijelu liniju u memoriju
+            byte[] bytes = line.getBytes();
+            memory.writeBlock(address, bytes, 0, bytes.length);
+            address += bytes.length; // Promijeni adresu za sljedeću liniju
+            // Dodaj novi redak između instrukcija
+            memory.writeToVirtualAddress(address, (byte) '\n');
+            address += 1; // Promijeni adresu za novi redak
+        }
+    }
 }
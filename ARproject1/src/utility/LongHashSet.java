@@ -0,0 +1,95 @@
+package utility;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of non-negative long keys (e.g. cache line numbers) stored in a single
+ * long array, eight bytes per slot at a load factor of at most one half.
+ */
+public class LongHashSet {
+    private static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int size;
+    private int mask;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key A non-negative key.
+     * @return True if the key was not yet present.
+     */
+    public boolean add(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key: " + key);
+        }
+        int index = slot(key);
+        if (keys[index] == key) {
+            return false;
+        }
+        keys[index] = key;
+        if (++size > keys.length * LOAD_FACTOR) {
+            long[] oldKeys = keys;
+            allocate(oldKeys.length * 2);
+            for (long oldKey : oldKeys) {
+                if (oldKey != EMPTY) {
+                    keys[slot(oldKey)] = oldKey;
+                    size++;
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        return key >= 0 && keys[slot(key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the heap bytes used by the key array.
+     */
+    public long getStateBytes() {
+        return (long) keys.length * Long.BYTES;
+    }
+}
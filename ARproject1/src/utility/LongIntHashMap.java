@@ -0,0 +1,137 @@
+package utility;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values without boxing.
+ * Used by the cache analysis code, where millions of line addresses are tracked.
+ */
+public class LongIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // Miješanje bitova (kao u MurmurHash3 finalizeru) da bi uzastopne adrese bile raspršene
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        int index = hash(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    public int get(long key, int defaultValue) {
+        int index = slot(key);
+        return used[index] ? values[index] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return used[slot(key)];
+    }
+
+    /**
+     * Associates {@code value} with {@code key}.
+     *
+     * @return The previous value, or {@code defaultValue} if the key was absent.
+     */
+    public int put(long key, int value, int defaultValue) {
+        int index = slot(key);
+        if (used[index]) {
+            int previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        used[index] = true;
+        keys[index] = key;
+        values[index] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash();
+        }
+        return defaultValue;
+    }
+
+    public void put(long key, int value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * Removes {@code key}. Later keys of the same probe run are shifted back, so no tombstones are left.
+     *
+     * @return The removed value, or {@code defaultValue} if the key was absent.
+     */
+    public int remove(long key, int defaultValue) {
+        int index = slot(key);
+        if (!used[index]) {
+            return defaultValue;
+        }
+        int removed = values[index];
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = hash(keys[next]) & mask;
+            // Ključ smije preći u rupu samo ako rupa leži između njegovog početnog i trenutnog mjesta
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+        return removed;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = slot(oldKeys[i]);
+                used[index] = true;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+}